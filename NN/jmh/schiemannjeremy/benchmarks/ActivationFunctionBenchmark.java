@@ -0,0 +1,80 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import schiemannjeremy.nn.ActivationFunction;
+
+/**
+ * The activation functions one value at a time against the array methods
+ * @author Jeremy Schiemann
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ActivationFunctionBenchmark {
+
+	private static final int N = 1 << 16;
+
+	@Param({"SIGMOID", "TAN_H", "RELU"})
+	public String activation;
+
+	private ActivationFunction func;
+	private double[] x;
+	private double[] y;
+	private double[] out;
+
+	@Setup
+	public void setup() {
+
+		this.func = BenchmarkData.activation(this.activation);
+		this.x = new double[N];
+		for(int i = 0; i < N; i++)
+			this.x[i] = Math.random() * 8 - 4;
+
+		this.y = new double[N];
+		this.func.apply(this.x, this.y, N);
+		this.out = new double[N];
+	}
+
+	@Benchmark
+	public double[] function() {
+		for(int i = 0; i < N; i++)
+			this.out[i] = this.func.function(this.x[i]);
+		return this.out;
+	}
+
+	@Benchmark
+	public double[] apply() {
+		this.func.apply(this.x, this.out, N);
+		return this.out;
+	}
+
+	@Benchmark
+	public double[] derivatedFunction() {
+		for(int i = 0; i < N; i++)
+			this.out[i] = this.func.derivatedFunction(this.x[i]);
+		return this.out;
+	}
+
+	@Benchmark
+	public double[] derivative() {
+		this.func.derivative(this.x, this.y, this.out, N);
+		return this.out;
+	}
+}
@@ -0,0 +1,102 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.Random;
+
+import schiemannjeremy.nn.ActivationFunction;
+import schiemannjeremy.nn.NeuralNetwork;
+import schiemannjeremy.nn.TrainingData;
+import schiemannjeremy.nn.TrainingSet;
+
+/**
+ * Creates the networks and training data the benchmarks run on
+ * @author Jeremy Schiemann
+ *
+ */
+final class BenchmarkData {
+
+	private BenchmarkData() {}
+
+	/**
+	 * Parses the layers of a benchmark parameter like "16,32,4"
+	 */
+	static int[] topology(String layers) {
+
+		String[] sizes = layers.split(",");
+		int[] topology = new int[sizes.length];
+		for(int i = 0; i < sizes.length; i++)
+			topology[i] = Integer.parseInt(sizes[i].trim());
+
+		return topology;
+	}
+
+	/**
+	 * Returns the built-in activation function with the given name, like "SIGMOID"
+	 */
+	static ActivationFunction activation(String name) {
+
+		try {
+			return (ActivationFunction)ActivationFunction.class.getField(name).get(null);
+		}catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("no activation function named " + name, e);
+		}
+	}
+
+	static NeuralNetwork network(int[] topology, ActivationFunction func) {
+
+		NeuralNetwork nn = new NeuralNetwork(topology.clone());
+		nn.setActivationFunction(func);
+		nn.randomizeWeights(-1, 1);
+		nn.randomizeBiases(-1, 1);
+
+		return nn;
+	}
+
+	static TrainingData trainingData(int[] topology, int size) {
+
+		TrainingData trainingData = new TrainingData();
+		for(int i = 0; i < size; i++) {
+			double[] inputs = new double[topology[0]];
+			double[] outputs = new double[topology[topology.length-1]];
+			for(int j = 0; j < inputs.length; j++)
+				inputs[j] = Math.random();
+			for(int j = 0; j < outputs.length; j++)
+				outputs[j] = Math.random();
+
+			trainingData.add(new TrainingSet(inputs, outputs));
+		}
+
+		return trainingData;
+	}
+
+	/**
+	 * Training data with the same targets on every run: every output is a smooth function of a fixed random mix of the inputs
+	 */
+	static TrainingData regression(int[] topology, int size) {
+
+		Random random = new Random(42);
+		int inputs = topology[0];
+		int outputs = topology[topology.length-1];
+		double[][] mix = new double[outputs][inputs];
+		for(double[] row : mix)
+			for(int j = 0; j < inputs; j++)
+				row[j] = random.nextGaussian();
+
+		TrainingData trainingData = new TrainingData();
+		for(int i = 0; i < size; i++) {
+			double[] in = new double[inputs];
+			double[] out = new double[outputs];
+			for(int j = 0; j < inputs; j++)
+				in[j] = random.nextDouble();
+			for(int r = 0; r < outputs; r++) {
+				double sum = 0;
+				for(int j = 0; j < inputs; j++)
+					sum += mix[r][j] * in[j];
+				out[r] = 0.5 + 0.4 * Math.sin(sum);
+			}
+
+			trainingData.add(new TrainingSet(in, out));
+		}
+
+		return trainingData;
+	}
+}
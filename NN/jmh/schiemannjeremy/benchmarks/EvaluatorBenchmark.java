@@ -0,0 +1,65 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import schiemannjeremy.nn.ActivationFunction;
+import schiemannjeremy.nn.Evaluator;
+import schiemannjeremy.nn.FrozenNetwork;
+import schiemannjeremy.nn.NeuralNetwork;
+import schiemannjeremy.nn.Precision;
+import schiemannjeremy.nn.TrainingData;
+
+/**
+ * Throughput of evaluating a snapshot on training data in parallel batches, in training sets per second
+ * @author Jeremy Schiemann
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class EvaluatorBenchmark {
+
+	private static final int SIZE = 8192;
+
+	@Param({"16,32,4", "64,128,128,10", "256,1024,1024,10"})
+	public String layers;
+
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private final Evaluator evaluator = new Evaluator();
+	private FrozenNetwork frozen;
+	private TrainingData trainingData;
+
+	@Setup
+	public void setup() {
+
+		int[] topology = BenchmarkData.topology(this.layers);
+		NeuralNetwork nn = BenchmarkData.network(topology, ActivationFunction.SIGMOID);
+		nn.setPrecision(this.precision);
+		this.frozen = nn.freeze();
+		this.trainingData = BenchmarkData.trainingData(topology, SIZE);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public double evaluate() {
+		return this.evaluator.evaluate(this.frozen, this.trainingData).getMeanError();
+	}
+}
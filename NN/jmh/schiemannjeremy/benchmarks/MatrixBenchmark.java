@@ -0,0 +1,92 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * Matrix multiplication, transpose and the element-wise operations for several sizes
+ * @author Jeremy Schiemann
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class MatrixBenchmark {
+
+	@Param({"16", "64", "256", "1024"})
+	public int n;
+
+	private Matrix a;
+	private Matrix b;
+	private Matrix v;
+	private Matrix c;
+
+	@Setup
+	public void setup() {
+		this.a = new Matrix(this.n, this.n).randomize(-1, 1, false);
+		this.b = new Matrix(this.n, this.n).randomize(-1, 1, false);
+		this.v = new Matrix(this.n, 1).randomize(-1, 1, false);
+		this.c = new Matrix(this.n, this.n);
+	}
+
+	@Benchmark
+	public Matrix mul() {
+		return Matrix.mul(this.a, this.b);
+	}
+
+	@Benchmark
+	public Matrix mulInto() {
+		return Matrix.mul(this.a, this.b, this.c);
+	}
+
+	@Benchmark
+	public Matrix mulVector() {
+		return Matrix.mul(this.a, this.v);
+	}
+
+	@Benchmark
+	public Matrix transpose() {
+		return Matrix.transpose(this.a);
+	}
+
+	@Benchmark
+	public Matrix add() {
+		this.c.add(this.a);
+		return this.c;
+	}
+
+	@Benchmark
+	public Matrix hadamardProduct() {
+		this.c.hadamardProduct(this.a);
+		return this.c;
+	}
+
+	/**
+	 * The boxing map with a Function&lt;Double, Double&gt;
+	 */
+	@Benchmark
+	public Matrix map() {
+		return this.c.map(d -> d * 0.5);
+	}
+
+	@Benchmark
+	public Matrix mapDouble() {
+		return this.c.mapDouble(d -> d * 0.5);
+	}
+}
@@ -0,0 +1,89 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import schiemannjeremy.nn.NeuralNetwork;
+import schiemannjeremy.nn.Precision;
+import schiemannjeremy.nn.TrainingData;
+
+/**
+ * Predict latency and training throughput for several topologies, activation functions and precisions. </br>
+ * The training scores are training sets per second. The allocations per training set show up with <code>-prof gc</code>.
+ * @author Jeremy Schiemann
+ *
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NeuralNetworkBenchmark {
+
+	@Param({"16,32,4", "64,128,128,10", "256,1024,1024,10"})
+	public String layers;
+
+	@Param({"SIGMOID", "TAN_H", "RELU"})
+	public String activation;
+
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private NeuralNetwork nn;
+	private TrainingData trainingData;
+	private double[] in;
+	private double[] out;
+
+	@Setup
+	public void setup() {
+
+		int[] topology = BenchmarkData.topology(this.layers);
+		this.nn = BenchmarkData.network(topology, BenchmarkData.activation(this.activation));
+		this.nn.setPrecision(this.precision);
+		this.trainingData = BenchmarkData.trainingData(topology, 256);
+		this.in = this.trainingData.getTrainingSet(0).getInputs();
+		this.out = new double[topology[topology.length-1]];
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double[] predict() {
+		return this.nn.predict(this.in);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double[] predictInto() {
+		this.nn.predict(this.in, this.out);
+		return this.out;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(16)
+	public void train() {
+		this.nn.train(this.trainingData, 0.01, 16);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(32)
+	public void trainBatch() {
+		this.nn.train(this.trainingData, 32, 0.01, 1);
+	}
+}
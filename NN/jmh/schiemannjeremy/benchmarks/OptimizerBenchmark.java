@@ -0,0 +1,122 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import schiemannjeremy.nn.ActivationFunction;
+import schiemannjeremy.nn.NeuralNetwork;
+import schiemannjeremy.nn.Optimizer;
+import schiemannjeremy.nn.Precision;
+import schiemannjeremy.nn.TrainingData;
+
+/**
+ * Time until every optimizer trains a network to the same error on a fixed regression task,
+ * a cheap step doesnt pay off if many more of them are needed. </br>
+ * Every run starts with a fresh network, creating it isnt measured. The batches of the measured runs are summed up as a secondary result,
+ * runs which dont reach the error within {@link #MAX_BATCHES} get counted as misses.
+ * @author Jeremy Schiemann
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class OptimizerBenchmark {
+
+	private static final int[] TOPOLOGY = {8, 32, 4};
+	private static final double TARGET = 0.03;
+	private static final int BATCH_SIZE = 16;
+	private static final int BATCHES_PER_CHECK = 10;
+	private static final int MAX_BATCHES = 100_000;
+
+	@Param({"sgd", "momentum", "nesterov", "rmsProp", "adam"})
+	public String optimizer;
+
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private TrainingData trainingData;
+	private Optimizer optimizerInstance;
+	private double learningRate;
+	private NeuralNetwork nn;
+
+	/**
+	 * The batches of the runs, reported next to the time
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Batches {
+
+		public long batches;
+		public long misses;
+	}
+
+	@Setup(Level.Trial)
+	public void setupTrial() {
+
+		this.trainingData = BenchmarkData.regression(TOPOLOGY, 256);
+
+		switch(this.optimizer) {
+		case "sgd":
+			this.optimizerInstance = Optimizer.sgd();
+			this.learningRate = 1.0;
+			break;
+		case "momentum":
+			this.optimizerInstance = Optimizer.momentum(0.9);
+			this.learningRate = 0.1;
+			break;
+		case "nesterov":
+			this.optimizerInstance = Optimizer.nesterov(0.9);
+			this.learningRate = 0.1;
+			break;
+		case "rmsProp":
+			this.optimizerInstance = Optimizer.rmsProp(0.9);
+			this.learningRate = 0.01;
+			break;
+		case "adam":
+			this.optimizerInstance = Optimizer.adam();
+			this.learningRate = 0.03;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown optimizer " + this.optimizer);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setupRun() {
+		this.nn = BenchmarkData.network(TOPOLOGY, ActivationFunction.SIGMOID);
+		this.nn.setPrecision(this.precision);
+		this.nn.setOptimizer(this.optimizerInstance);
+	}
+
+	@Benchmark
+	public double timeToError(Batches batches) {
+
+		double error;
+		int trained = 0;
+		do {
+			this.nn.train(this.trainingData, BATCH_SIZE, this.learningRate, BATCHES_PER_CHECK);
+			trained += BATCHES_PER_CHECK;
+			error = this.nn.calculateError(this.trainingData);
+		}while(error > TARGET && trained < MAX_BATCHES);
+
+		batches.batches += trained;
+		if(error > TARGET) batches.misses++;
+		return error;
+	}
+}
@@ -0,0 +1,81 @@
+package schiemannjeremy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import schiemannjeremy.nn.FrozenNetwork;
+import schiemannjeremy.nn.NeuralNetwork;
+import schiemannjeremy.nn.QuantizedNetwork;
+import schiemannjeremy.nn.TrainingData;
+
+/**
+ * Predict throughput of the int8 network against the double snapshot it got quantized from,
+ * prints how far the outputs of both are apart after every trial
+ * @author Jeremy Schiemann
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class QuantizedNetworkBenchmark {
+
+	@Param({"16,32,4", "64,128,128,10", "256,1024,1024,10"})
+	public String layers;
+
+	@Param({"SIGMOID", "TAN_H", "RELU"})
+	public String activation;
+
+	private FrozenNetwork frozen;
+	private FrozenNetwork.Workspace frozenWorkspace;
+	private QuantizedNetwork quantized;
+	private QuantizedNetwork.Workspace quantizedWorkspace;
+	private double[] in;
+	private double[] out;
+
+	@Setup
+	public void setup() {
+
+		int[] topology = BenchmarkData.topology(this.layers);
+		NeuralNetwork nn = BenchmarkData.network(topology, BenchmarkData.activation(this.activation));
+		TrainingData trainingData = BenchmarkData.trainingData(topology, 256);
+		this.in = trainingData.getTrainingSet(0).getInputs();
+		this.out = new double[topology[topology.length-1]];
+
+		this.frozen = nn.freeze();
+		this.frozenWorkspace = this.frozen.newWorkspace();
+		this.quantized = QuantizedNetwork.quantize(nn, trainingData);
+		this.quantizedWorkspace = this.quantized.newWorkspace();
+	}
+
+	@TearDown
+	public void accuracy() {
+		System.out.println("  accuracy: " + this.quantized.getCalibrationDelta());
+	}
+
+	@Benchmark
+	public double[] frozenPredict() {
+		this.frozen.predict(this.in, this.out, this.frozenWorkspace);
+		return this.out;
+	}
+
+	@Benchmark
+	public double[] quantizedPredict() {
+		this.quantized.predict(this.in, this.out, this.quantizedWorkspace);
+		return this.out;
+	}
+}
@@ -0,0 +1,85 @@
+package schiemannjeremy.linearalgebra;
+
+/**
+ * Transcendental functions on whole ranges of arrays, for activation functions, and the update steps of optimizers which divide by square roots. </br>
+ * Like the matrix kernels they run on the Vector API if it is available, which evaluates e^x, tanh and square roots for several values at once,
+ * otherwise on plain loops over Math.exp and Math.expm1. The double results are within 2 ulps of 1/(1+Math.exp(-x)) for the sigmoid
+ * and within 4 ulps of Math.tanh, relative to the result, so small tanh values keep their digits. The float versions are
+ * within 1 ulp of the rounded double results.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class ArrayMath {
+
+	private ArrayMath() {}
+
+	/**
+	 * Calculates out[i] = 1 / (1 + e^-in[i]) for every i in [from, to)
+	 * @param in - the input values
+	 * @param out - the array the results get written to, can be in itself
+	 * @param from - first index, inclusive
+	 * @param to - last index, exclusive
+	 */
+	public static void sigmoid(double[] in, double[] out, int from, int to) {
+		VectorOps.INSTANCE.sigmoid(in, from, out, from, to - from);
+	}
+
+	/**
+	 * Calculates out[i] = tanh(in[i]) for every i in [from, to)
+	 * @see #sigmoid(double[], double[], int, int)
+	 */
+	public static void tanh(double[] in, double[] out, int from, int to) {
+		VectorOps.INSTANCE.tanh(in, from, out, from, to - from);
+	}
+
+	/**
+	 * The float version of {@link #sigmoid(double[], double[], int, int)}
+	 */
+	public static void sigmoid(float[] in, float[] out, int from, int to) {
+		VectorOps.INSTANCE.sigmoid(in, from, out, from, to - from);
+	}
+
+	/**
+	 * The float version of {@link #tanh(double[], double[], int, int)}
+	 */
+	public static void tanh(float[] in, float[] out, int from, int to) {
+		VectorOps.INSTANCE.tanh(in, from, out, from, to - from);
+	}
+
+	/**
+	 * One RMSProp step for the first len parameters, every value gets read and written once: </br>
+	 * state[i] = decay * state[i] + (1 - decay) * delta[i]^2, params[i] += rate * delta[i] / (sqrt(state[i]) + epsilon)
+	 * @param params - the parameters which get updated
+	 * @param delta - the direction of the step, e.g. the negative gradient
+	 * @param state - the moving average of the squared deltas
+	 */
+	public static void rmsProp(double[] params, double[] delta, double[] state, int len, double decay, double rate, double epsilon) {
+		VectorOps.INSTANCE.rmsProp(params, 0, delta, 0, state, 0, len, decay, rate, epsilon);
+	}
+
+	/**
+	 * One Adam step for the first len parameters, every value gets read and written once: </br>
+	 * m = beta1 * m + (1 - beta1) * delta[i], v = beta2 * v + (1 - beta2) * delta[i]^2, params[i] += rate * m / (sqrt(v) + epsilon)
+	 * @param params - the parameters which get updated
+	 * @param delta - the direction of the step, e.g. the negative gradient
+	 * @param moments - 2 * len values, the moving averages m of the deltas at [0, len) and v of the squared deltas at [len, 2 * len)
+	 * @param rate - the learning rate including the bias correction
+	 */
+	public static void adam(double[] params, double[] delta, double[] moments, int len, double beta1, double beta2, double rate, double epsilon) {
+		VectorOps.INSTANCE.adam(params, 0, delta, 0, moments, 0, moments, len, len, beta1, beta2, rate, epsilon);
+	}
+
+	/**
+	 * The float version of {@link #rmsProp(double[], double[], double[], int, double, double, double)}
+	 */
+	public static void rmsProp(float[] params, float[] delta, float[] state, int len, float decay, float rate, float epsilon) {
+		VectorOps.INSTANCE.rmsProp(params, 0, delta, 0, state, 0, len, decay, rate, epsilon);
+	}
+
+	/**
+	 * The float version of {@link #adam(double[], double[], double[], int, double, double, double, double)}
+	 */
+	public static void adam(float[] params, float[] delta, float[] moments, int len, float beta1, float beta2, float rate, float epsilon) {
+		VectorOps.INSTANCE.adam(params, 0, delta, 0, moments, 0, moments, len, len, beta1, beta2, rate, epsilon);
+	}
+}
@@ -0,0 +1,22 @@
+package schiemannjeremy.linearalgebra;
+
+/**
+ * A function which gets applied to a range of an array in place, like the activation in
+ * {@link Matrix#mulAdd(Matrix, Matrix, Matrix, DoubleArrayFunction, Matrix)}. </br>
+ * The loop lives inside the function, so every implementation gets its own loop the JIT can optimize
+ * instead of one call per element.
+ * @author Jeremy Schiemann
+ *
+ */
+@FunctionalInterface
+public interface DoubleArrayFunction {
+
+	/**
+	 * Replaces every value in values[from, to) with its function value
+	 * @param values - the array
+	 * @param from - first index, inclusive
+	 * @param to - last index, exclusive
+	 */
+	void apply(double[] values, int from, int to);
+
+}
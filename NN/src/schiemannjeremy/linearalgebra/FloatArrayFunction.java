@@ -0,0 +1,20 @@
+package schiemannjeremy.linearalgebra;
+
+/**
+ * The single precision version of {@link DoubleArrayFunction}, like the activation in
+ * {@link FloatMatrix#mulAdd(FloatMatrix, FloatMatrix, FloatMatrix, FloatArrayFunction, FloatMatrix)}.
+ * @author Jeremy Schiemann
+ *
+ */
+@FunctionalInterface
+public interface FloatArrayFunction {
+
+	/**
+	 * Replaces every value in values[from, to) with its function value
+	 * @param values - the array
+	 * @param from - first index, inclusive
+	 * @param to - last index, exclusive
+	 */
+	void apply(float[] values, int from, int to);
+
+}
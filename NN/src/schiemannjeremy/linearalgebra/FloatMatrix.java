@@ -0,0 +1,358 @@
+package schiemannjeremy.linearalgebra;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The single precision version of {@link Matrix} </br>
+ *
+ * The values are stored row after row in one flat float array, element (i, j) lives at <code>data[i*columns + j]</code>.
+ * A float matrix takes half the memory of a double one, and the SIMD loops process twice as many values per instruction. </br>
+ * Unlike {@link Matrix} it has no views, only the operations a neural network needs and the conversions from and to {@link Matrix}.
+ * @author Jeremy Schiemann
+ *
+ */
+public class FloatMatrix implements Serializable{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -5520873452174880297L;
+
+	/** The loops of the element-wise operations, SIMD if available */
+	private static final VectorOps OPS = VectorOps.INSTANCE;
+	private final float[] data;
+	private final int rows;
+	private final int columns;
+
+	/**
+	 * Creates a matrix with the given rows and columns
+	 * @param rows - amount of rows
+	 * @param columns - amount of columns
+	 */
+	public FloatMatrix(int rows, int columns) {
+		this(rows, columns, new float[rows*columns]);
+	}
+
+	/**
+	 * Creates a matrix which is backed by the given array. </br>
+	 * The array has to contain the matrix row after row, changes to the array will be visible in the matrix and vice versa.
+	 * @param rows - amount of rows
+	 * @param columns - amount of columns
+	 * @param data - the backing array
+	 * @throws IllegalArgumentException if the array is too small for the given size
+	 */
+	public FloatMatrix(int rows, int columns, float[] data) {
+
+		if(data.length < rows*columns) throw new IllegalArgumentException("Array too small for a " + rows + "x" + columns + " matrix");
+
+		this.data = data;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * clones the matrix
+	 * @return - the cloned matrix
+	 */
+	@Override
+	public FloatMatrix clone() {
+		return new FloatMatrix(this.rows, this.columns, Arrays.copyOf(this.data, this.rows*this.columns));
+	}
+
+	/**
+	 * Creates a matrix out of an 1D-Array </br>
+	 * Matrix will be an "array.length by 1"-matrix backed by the given array.
+	 * @param array - the array to create a matrix
+	 * @return the matrix
+	 */
+	public static FloatMatrix fromArray(float[] array) {
+		return new FloatMatrix(array.length, 1, array);
+	}
+
+	/**
+	 * Rounds every value of the matrix m to the nearest float
+	 * @param m - the double matrix, can be a view
+	 * @return - a new float matrix of the same size
+	 */
+	public static FloatMatrix of(Matrix m) {
+
+		FloatMatrix converted = new FloatMatrix(m.getRows(), m.getColumns());
+		converted.copyFrom(m);
+
+		return converted;
+	}
+
+	/**
+	 * Overwrites this matrix with the values of m rounded to floats
+	 * @param m - a matrix of the same size
+	 * @throws IllegalArgumentException if the matrix m isnt the same size as this matrix
+	 */
+	public void copyFrom(Matrix m) {
+
+		if(this.rows != m.getRows() || this.columns != m.getColumns()) throw new IllegalArgumentException("Matrices must be of same size");
+
+		double[] values = m.data();
+		for(int i = 0; i < this.rows; i++) {
+			int row = m.getOffset() + i*m.getStride();
+			for(int j = 0; j < this.columns; j++)
+				this.data[i*this.columns + j] = (float)values[row+j];
+		}
+	}
+
+	/**
+	 * Converts the matrix back into a double matrix, every float is represented exactly
+	 * @return - a new double matrix of the same size
+	 */
+	public Matrix toMatrix() {
+
+		Matrix converted = new Matrix(this.rows, this.columns);
+		double[] values = converted.toArray();
+		for(int i = 0; i < this.rows*this.columns; i++)
+			values[i] = this.data[i];
+
+		return converted;
+	}
+
+	public float get(int row, int column) {
+		return this.data[row*this.columns + column];
+	}
+
+	public void set(int row, int column, float value) {
+		this.data[row*this.columns + column] = value;
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getColumns() {
+		return this.columns;
+	}
+
+	//#############################################################################################################################################################
+
+	/**
+	 * Randomizes every value in the matrix with random values between the lower limit and (excluded) upper limit
+	 * @param from - lower limit
+	 * @param to - upper limit
+	 * @param useInteger - true if random numbers should be integers
+	 * @return - the matrix itself
+	 * @throws IllegalArgumentException if from > to
+	 */
+	public FloatMatrix randomize(int from, int to, boolean useInteger) {
+
+		if(from > to) throw new IllegalArgumentException("lower limit cant be higher than upper limit");
+
+		int delta = from-to;
+		for(int i = 0; i < this.rows*this.columns; i++) {
+			double r = Math.random()*delta+to;
+			this.data[i] = (float)(useInteger ? Math.floor(r) : r);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Applies the function to all values of the matrix in place
+	 * @param function - a function transforming a range of an array
+	 * @return - the matrix itself
+	 */
+	public FloatMatrix apply(FloatArrayFunction function) {
+
+		function.apply(this.data, 0, this.rows*this.columns);
+		return this;
+	}
+
+	/**
+	 * Adds the matrix m to this matrix elementwise
+	 * @param m - the matrix to add
+	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
+	 */
+	public void add(FloatMatrix m) {
+
+		this.checkSize(m);
+		OPS.add(this.data, 0, m.data, 0, this.rows*this.columns);
+	}
+
+	/**
+	 * Subtracts the matrix m from this matrix elementwise
+	 * @param m - the matrix to subtract
+	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
+	 */
+	public void sub(FloatMatrix m) {
+
+		this.checkSize(m);
+		OPS.sub(this.data, 0, m.data, 0, this.rows*this.columns);
+	}
+
+	/**
+	 * Adds scale times the matrix m to this matrix elementwise
+	 * @param m - the matrix to add
+	 * @param scale - the factor of m
+	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
+	 */
+	public void addScaled(FloatMatrix m, float scale) {
+
+		this.checkSize(m);
+		OPS.axpy(scale, m.data, 0, this.data, 0, this.rows*this.columns);
+	}
+
+	/**
+	 * Multiplies the matrix m to this matrix elementwise
+	 * @param m - the matrix to multiply
+	 * @throws IllegalArgumentException if the matrix m isnt the same size as this matrix
+	 */
+	public void hadamardProduct(FloatMatrix m) {
+
+		this.checkSize(m);
+		OPS.mul(this.data, 0, m.data, 0, this.rows*this.columns);
+	}
+
+	/**
+	 * Multiplies a float with every element of this matrix.
+	 * @param d - the float to multiply
+	 */
+	public void mul(float d) {
+		OPS.scale(this.data, 0, this.rows*this.columns, d);
+	}
+
+	private void checkSize(FloatMatrix m) {
+		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
+	}
+
+	//#############################################################################################################################################################
+
+	/**
+	 * Computes result = func(a x b + bias) in one pass like {@link Matrix#mulAdd(Matrix, Matrix, Matrix, DoubleArrayFunction, Matrix)}
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @param bias - a column vector with as many rows as a, or null
+	 * @param func - the function applied to the elements of the result, or null
+	 * @param result - the matrix which gets overwritten, must not share its storage with a, b or bias
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the bias or result has the wrong size
+	 */
+	public static FloatMatrix mulAdd(FloatMatrix a, FloatMatrix b, FloatMatrix bias, FloatArrayFunction func, FloatMatrix result) {
+
+		if(a.columns != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.rows || result.columns != b.columns) throw new IllegalArgumentException("Result must be a " + a.rows + "x" + b.columns + " matrix");
+		if(bias != null && (bias.columns != 1 || bias.rows != a.rows)) throw new IllegalArgumentException("Bias must be a " + a.rows + "x1 matrix");
+
+		Gemm.multiplyAdd(a.data, 0, a.columns, b.data, 0, b.columns, result.data, 0, result.columns,
+				bias == null ? null : bias.data, 0, 1, func, a.rows, b.columns, a.columns);
+
+		return result;
+	}
+
+	/**
+	 * Multiplies two matrices and writes the product into the given matrix
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @param result - the matrix which gets overwritten with a x b, must not share its storage with a or b
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the result has the wrong size
+	 */
+	public static FloatMatrix mul(FloatMatrix a, FloatMatrix b, FloatMatrix result) {
+		return mulAdd(a, b, null, null, result);
+	}
+
+	/**
+	 * Multiplies the transposed matrix a with b without creating the transposed copy of a
+	 * @param a - first matrix, gets read as transposed
+	 * @param b - second matrix
+	 * @param result - the matrix which gets overwritten with transposed(a) x b, must not share its storage with a or b
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the result has the wrong size
+	 */
+	public static FloatMatrix mulTransposeA(FloatMatrix a, FloatMatrix b, FloatMatrix result) {
+
+		if(a.rows != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.columns || result.columns != b.columns) throw new IllegalArgumentException("Result must be a " + a.columns + "x" + b.columns + " matrix");
+
+		Gemm.multiplyTransposeA(a.data, 0, a.columns, b.data, 0, b.columns, result.data, 0, result.columns, a.columns, b.columns, a.rows);
+
+		return result;
+	}
+
+	/**
+	 * Multiplies a with the transposed matrix b without creating the transposed copy of b
+	 * @param a - first matrix
+	 * @param b - second matrix, gets read as transposed
+	 * @param result - the matrix which gets overwritten with a x transposed(b), must not share its storage with a or b
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the result has the wrong size
+	 */
+	public static FloatMatrix mulTransposeB(FloatMatrix a, FloatMatrix b, FloatMatrix result) {
+
+		if(a.columns != b.columns) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.rows || result.columns != b.rows) throw new IllegalArgumentException("Result must be a " + a.rows + "x" + b.rows + " matrix");
+
+		Gemm.multiplyTransposeB(a.data, 0, a.columns, b.data, 0, b.columns, result.data, 0, result.columns, 1.0f, false, a.rows, b.rows, a.columns);
+
+		return result;
+	}
+
+	/**
+	 * Adds scale * a x transposed(b) to this matrix in place, without creating the transposed copy or the product
+	 * @param a - first matrix
+	 * @param b - second matrix, gets read as transposed
+	 * @param scale - factor of the product
+	 * @return - the matrix itself
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the product has a different size than this matrix
+	 */
+	public FloatMatrix addMulTransposeB(FloatMatrix a, FloatMatrix b, float scale) {
+
+		if(a.columns != b.columns) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(this.rows != a.rows || this.columns != b.rows) throw new IllegalArgumentException("Product must be a " + this.rows + "x" + this.columns + " matrix");
+
+		Gemm.multiplyTransposeB(a.data, 0, a.columns, b.data, 0, b.columns, this.data, 0, this.columns, scale, true, a.rows, b.rows, a.columns);
+
+		return this;
+	}
+
+	/**
+	 * Adds the sum of every row of m to the corresponding element of this column vector
+	 * @param m - a matrix with as many rows as this matrix
+	 * @throws IllegalArgumentException if this matrix isnt a column vector with as many rows as m
+	 */
+	public void addRowSums(FloatMatrix m) {
+
+		if(this.columns != 1 || this.rows != m.rows) throw new IllegalArgumentException("Vector must be a " + m.rows + "x1 matrix");
+
+		for(int i = 0; i < m.rows; i++) {
+			float sum = 0;
+			for(int j = 0; j < m.columns; j++)
+				sum += m.data[i*m.columns + j];
+
+			this.data[i] += sum;
+		}
+	}
+
+	//#############################################################################################################################################################
+
+	/**
+	 * Returns the backing array containing row after row
+	 * @return the float-array containing the matrix
+	 */
+	public float[] toArray() {
+		return this.data;
+	}
+
+	/**
+	 * Converts this matrix into a string
+	 * @return the string of the matrix
+	 */
+	@Override
+	public String toString() {
+
+		String s = "";
+		for(int i = 0; i < this.rows; i++)
+			s += Arrays.toString(Arrays.copyOfRange(this.data, i*this.columns, (i+1)*this.columns)) + "\n";
+
+		for(int i = 0; i < this.columns; i++)
+			s += "-----";
+
+		return s +"\n";
+	}
+}
@@ -0,0 +1,596 @@
+package schiemannjeremy.linearalgebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The matrix multiplication kernel behind {@link Matrix#mul(Matrix, Matrix)}. </br>
+ *
+ * Computes C = A x B on flat row-major arrays, and the variants with A or B read as transposed without copying them. </br>
+ * Small products run through a plain scalar loop, bigger ones through a kernel which works on tiles of B
+ * that fit into the cache and updates four rows of C per pass, so every loaded value of B gets used four times. </br>
+ * Products with enough work get split by rows of C and computed on the common ForkJoinPool.
+ * The innermost loops run through {@link VectorOps}, which uses SIMD instructions if the Vector API is available. </br>
+ * {@link #multiplyAdd} fuses adding a bias column and applying a function into the same pass: the rows of C start out as
+ * the bias instead of zero and the function gets applied to each part of C right after its last update, while it is still in the cache. </br>
+ * The float overloads at the end do the same for {@link FloatMatrix} with the same tiles, a tile of floats only takes half the cache.
+ * @author Jeremy Schiemann
+ *
+ */
+final class Gemm {
+
+	/** Products with less multiply-adds than this use the scalar loop */
+	private static final long BLOCKING_THRESHOLD = 1L << 15;
+
+	/** Products with at least this many multiply-adds get computed in parallel */
+	private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+	/** Amount of rows of B in one tile */
+	private static final int BLOCK_K = 128;
+
+	/** Amount of columns of B in one tile */
+	private static final int BLOCK_N = 256;
+
+	/** Amount of rows of C updated together */
+	private static final int ROW_TILE = 4;
+
+	/** The inner loops, SIMD if available */
+	private static final VectorOps OPS = VectorOps.INSTANCE;
+
+	private Gemm() {}
+
+	/**
+	 * Computes c = a x b. The previous content of c gets overwritten. </br>
+	 * Doesnt allocate anything unless the product gets split across the ForkJoinPool.
+	 * @param m - rows of a and c
+	 * @param n - columns of b and c
+	 * @param k - columns of a and rows of b
+	 */
+	static void multiply(double[] a, int aOff, int aStride,
+						 double[] b, int bOff, int bStride,
+						 double[] c, int cOff, int cStride,
+						 int m, int n, int k) {
+
+		multiplyAdd(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, null, 0, 0, null, m, n, k);
+	}
+
+	/**
+	 * Computes c = func(a x b + bias), where the bias column gets added to every column of the product. The previous content of c gets overwritten.
+	 * @param bias - the bias column with m elements, or null to add nothing
+	 * @param func - the function applied to every element of c, or null to apply nothing
+	 */
+	static void multiplyAdd(double[] a, int aOff, int aStride,
+							double[] b, int bOff, int bStride,
+							double[] c, int cOff, int cStride,
+							double[] bias, int biasOff, int biasStride,
+							DoubleArrayFunction func,
+							int m, int n, int k) {
+
+		if(!parallel(m, n, k)) {
+			rows(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, 0, m);
+			return;
+		}
+
+		split(m, (from, to) -> rows(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, from, to));
+	}
+
+	/**
+	 * Computes c = transposed(a) x b without copying a. The previous content of c gets overwritten.
+	 * @param m - columns of a and rows of c
+	 * @param n - columns of b and c
+	 * @param k - rows of a and b
+	 */
+	static void multiplyTransposeA(double[] a, int aOff, int aStride,
+								   double[] b, int bOff, int bStride,
+								   double[] c, int cOff, int cStride,
+								   int m, int n, int k) {
+
+		//c is empty, the block width below divides by n
+		if(m == 0 || n == 0) return;
+
+		if(!parallel(m, n, k)) {
+			transposeA(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, k, 0, m);
+			return;
+		}
+
+		split(m, (from, to) -> transposeA(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, k, from, to));
+	}
+
+	/**
+	 * Computes c = alpha * a x transposed(b) without copying b, or adds it to c if accumulate is true.
+	 * @param m - rows of a and c
+	 * @param n - rows of b and columns of c
+	 * @param k - columns of a and b
+	 */
+	static void multiplyTransposeB(double[] a, int aOff, int aStride,
+								   double[] b, int bOff, int bStride,
+								   double[] c, int cOff, int cStride,
+								   double alpha, boolean accumulate,
+								   int m, int n, int k) {
+
+		if(!parallel(m, n, k)) {
+			transposeB(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, alpha, accumulate, n, k, 0, m);
+			return;
+		}
+
+		split(m, (from, to) -> transposeB(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, alpha, accumulate, n, k, from, to));
+	}
+
+	/**
+	 * Checks whether a product of this size is worth splitting across the common ForkJoinPool, also used by {@link QuantizedMatrix}
+	 */
+	static boolean parallel(int m, int n, int k) {
+		return (long)m * n * k >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() >= 2 && m >= 2*ROW_TILE;
+	}
+
+	/**
+	 * Computes the m rows of c on the common ForkJoinPool
+	 */
+	static void split(int m, RowRange range) {
+
+		//about four tasks per worker, rounded to whole row tiles
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		int grain = Math.max(ROW_TILE, (m / (4*parallelism) + ROW_TILE-1) / ROW_TILE * ROW_TILE);
+		ForkJoinPool.commonPool().invoke(new RowTask(range, 0, m, grain));
+	}
+
+	/**
+	 * Computes the rows [from, to) of c
+	 */
+	private static void rows(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, double[] c, int cOff, int cStride,
+							 double[] bias, int biasOff, int biasStride, DoubleArrayFunction func, int n, int k, int from, int to) {
+
+		if(n == 1)
+			dot(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, k, from, to);
+		else if((long)(to-from) * n * k < BLOCKING_THRESHOLD)
+			scalar(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, from, to);
+		else
+			blocked(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, from, to);
+	}
+
+	/**
+	 * Sets the row i of c to its bias value or zero
+	 */
+	private static void init(double[] c, int cRow, int n, double[] bias, int biasOff, int biasStride, int i) {
+		Arrays.fill(c, cRow, cRow+n, bias == null ? 0.0 : bias[biasOff + i*biasStride]);
+	}
+
+	/**
+	 * Matrix-vector case: every element of c is the dot product of a row of a and the single column of b
+	 */
+	private static void dot(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, double[] c, int cOff, int cStride,
+							double[] bias, int biasOff, int biasStride, DoubleArrayFunction func, int k, int from, int to) {
+
+		for(int i = from; i < to; i++) {
+			int aRow = aOff + i*aStride;
+
+			if(bStride == 1) {
+				double d = OPS.dot(a, aRow, b, bOff, k);
+				c[cOff + i*cStride] = bias == null ? d : bias[biasOff + i*biasStride] + d;
+				continue;
+			}
+
+			int bIndex = bOff;
+			double s0 = bias == null ? 0.0 : bias[biasOff + i*biasStride], s1 = 0, s2 = 0, s3 = 0;
+
+			int p = 0;
+			for(; p + 3 < k; p += 4, bIndex += 4*bStride) {
+				s0 += a[aRow+p]   * b[bIndex];
+				s1 += a[aRow+p+1] * b[bIndex+bStride];
+				s2 += a[aRow+p+2] * b[bIndex+2*bStride];
+				s3 += a[aRow+p+3] * b[bIndex+3*bStride];
+			}
+			for(; p < k; p++, bIndex += bStride)
+				s0 += a[aRow+p] * b[bIndex];
+
+			c[cOff + i*cStride] = (s0 + s1) + (s2 + s3);
+		}
+
+		if(func == null) return;
+
+		if(cStride == 1)
+			func.apply(c, cOff+from, cOff+to);
+		else
+			for(int i = from; i < to; i++)
+				func.apply(c, cOff + i*cStride, cOff + i*cStride + 1);
+	}
+
+	/**
+	 * Plain i-k-j loop, walks b and c along their rows
+	 */
+	private static void scalar(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, double[] c, int cOff, int cStride,
+							   double[] bias, int biasOff, int biasStride, DoubleArrayFunction func, int n, int k, int from, int to) {
+
+		for(int i = from; i < to; i++) {
+			int aRow = aOff + i*aStride;
+			int cRow = cOff + i*cStride;
+			init(c, cRow, n, bias, biasOff, biasStride, i);
+
+			for(int p = 0; p < k; p++) {
+				double x = a[aRow+p];
+				OPS.axpy(x, b, bOff + p*bStride, c, cRow, n);
+			}
+
+			if(func != null)
+				func.apply(c, cRow, cRow+n);
+		}
+	}
+
+	/**
+	 * Tiled kernel, updates four rows of c with every row segment of b
+	 */
+	private static void blocked(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, double[] c, int cOff, int cStride,
+								double[] bias, int biasOff, int biasStride, DoubleArrayFunction func, int n, int k, int from, int to) {
+
+		for(int i = from; i < to; i++)
+			init(c, cOff + i*cStride, n, bias, biasOff, biasStride, i);
+
+		for(int kk = 0; kk < k; kk += BLOCK_K) {
+			int kEnd = Math.min(kk+BLOCK_K, k);
+			//the tiles of c are final after the last block of k
+			boolean last = func != null && kEnd == k;
+
+			for(int jj = 0; jj < n; jj += BLOCK_N) {
+				int jEnd = Math.min(jj+BLOCK_N, n);
+
+				int i = from;
+				for(; i + ROW_TILE-1 < to; i += ROW_TILE) {
+					int a0 = aOff + i*aStride, a1 = a0+aStride, a2 = a1+aStride, a3 = a2+aStride;
+					int c0 = cOff + i*cStride, c1 = c0+cStride, c2 = c1+cStride, c3 = c2+cStride;
+
+					for(int p = kk; p < kEnd; p++)
+						OPS.axpy4(a[a0+p], a[a1+p], a[a2+p], a[a3+p], b, bOff + p*bStride + jj, c, c0+jj, c1+jj, c2+jj, c3+jj, jEnd-jj);
+
+					if(last) {
+						func.apply(c, c0+jj, c0+jEnd);
+						func.apply(c, c1+jj, c1+jEnd);
+						func.apply(c, c2+jj, c2+jEnd);
+						func.apply(c, c3+jj, c3+jEnd);
+					}
+				}
+
+				//remaining rows which dont fill a whole tile
+				for(; i < to; i++) {
+					int aRow = aOff + i*aStride;
+					int cRow = cOff + i*cStride;
+
+					for(int p = kk; p < kEnd; p++)
+						OPS.axpy(a[aRow+p], b, bOff + p*bStride + jj, c, cRow+jj, jEnd-jj);
+
+					if(last)
+						func.apply(c, cRow+jj, cRow+jEnd);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rows [from, to) of transposed(a) x b. Walks a and b along their rows: every row p of b gets added to the rows of c,
+	 * weighted with the row p of a. The rows of c get processed in blocks which fit into the cache.
+	 */
+	private static void transposeA(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, double[] c, int cOff, int cStride, int n, int k, int from, int to) {
+
+		int block = Math.max(1, BLOCK_K*BLOCK_N / n);
+
+		for(int ii = from; ii < to; ii += block) {
+			int iEnd = Math.min(ii+block, to);
+
+			for(int i = ii; i < iEnd; i++)
+				init(c, cOff + i*cStride, n, null, 0, 0, i);
+
+			for(int p = 0; p < k; p++) {
+				int aRow = aOff + p*aStride;
+				int bRow = bOff + p*bStride;
+
+				if(n == 1 && cStride == 1) {
+					OPS.axpy(b[bRow], a, aRow+ii, c, cOff+ii, iEnd-ii);
+					continue;
+				}
+				if(n == 1) {
+					double y = b[bRow];
+					for(int i = ii; i < iEnd; i++)
+						c[cOff + i*cStride] += a[aRow+i] * y;
+					continue;
+				}
+
+				for(int i = ii; i < iEnd; i++)
+					OPS.axpy(a[aRow+i], b, bRow, c, cOff + i*cStride, n);
+			}
+		}
+	}
+
+	/**
+	 * Rows [from, to) of alpha * a x transposed(b). Every element of c is the dot product of a row of a and a row of b,
+	 * four rows of a get multiplied with the same row of b at once.
+	 */
+	private static void transposeB(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, double[] c, int cOff, int cStride,
+								   double alpha, boolean accumulate, int n, int k, int from, int to) {
+
+		if(k == 1) {
+			//outer product, c gets updated with a rank-1 matrix
+			for(int i = from; i < to; i++) {
+				double x = alpha * a[aOff + i*aStride];
+				int cRow = cOff + i*cStride;
+				if(bStride == 1) {
+					if(!accumulate)
+						Arrays.fill(c, cRow, cRow+n, 0.0);
+					OPS.axpy(x, b, bOff, c, cRow, n);
+				}else if(accumulate)
+					for(int j = 0; j < n; j++)
+						c[cRow+j] += x * b[bOff + j*bStride];
+				else
+					for(int j = 0; j < n; j++)
+						c[cRow+j] = x * b[bOff + j*bStride];
+			}
+			return;
+		}
+
+		int i = from;
+		for(; i + ROW_TILE-1 < to; i += ROW_TILE) {
+			int a0 = aOff + i*aStride, a1 = a0+aStride, a2 = a1+aStride, a3 = a2+aStride;
+			int c0 = cOff + i*cStride, c1 = c0+cStride, c2 = c1+cStride, c3 = c2+cStride;
+
+			for(int j = 0; j < n; j++) {
+				int bRow = bOff + j*bStride;
+				double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+				for(int p = 0; p < k; p++) {
+					double y = b[bRow+p];
+					s0 += a[a0+p] * y;
+					s1 += a[a1+p] * y;
+					s2 += a[a2+p] * y;
+					s3 += a[a3+p] * y;
+				}
+
+				c[c0+j] = (accumulate ? c[c0+j] : 0.0) + alpha * s0;
+				c[c1+j] = (accumulate ? c[c1+j] : 0.0) + alpha * s1;
+				c[c2+j] = (accumulate ? c[c2+j] : 0.0) + alpha * s2;
+				c[c3+j] = (accumulate ? c[c3+j] : 0.0) + alpha * s3;
+			}
+		}
+
+		//remaining rows which dont fill a whole tile
+		for(; i < to; i++) {
+			int aRow = aOff + i*aStride;
+			int cRow = cOff + i*cStride;
+
+			for(int j = 0; j < n; j++)
+				c[cRow+j] = (accumulate ? c[cRow+j] : 0.0) + alpha * OPS.dot(a, aRow, b, bOff + j*bStride, k);
+		}
+	}
+
+	//#############################################################################################################################################################
+
+	/**
+	 * The float version of {@link #multiplyAdd(double[], int, int, double[], int, int, double[], int, int, double[], int, int, DoubleArrayFunction, int, int, int)}
+	 */
+	static void multiplyAdd(float[] a, int aOff, int aStride,
+							float[] b, int bOff, int bStride,
+							float[] c, int cOff, int cStride,
+							float[] bias, int biasOff, int biasStride,
+							FloatArrayFunction func,
+							int m, int n, int k) {
+
+		if(!parallel(m, n, k)) {
+			rows(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, 0, m);
+			return;
+		}
+
+		split(m, (from, to) -> rows(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, from, to));
+	}
+
+	/**
+	 * The float version of {@link #multiplyTransposeA(double[], int, int, double[], int, int, double[], int, int, int, int, int)}
+	 */
+	static void multiplyTransposeA(float[] a, int aOff, int aStride,
+								   float[] b, int bOff, int bStride,
+								   float[] c, int cOff, int cStride,
+								   int m, int n, int k) {
+
+		//c is empty, the block width below divides by n
+		if(m == 0 || n == 0) return;
+
+		if(!parallel(m, n, k)) {
+			transposeA(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, k, 0, m);
+			return;
+		}
+
+		split(m, (from, to) -> transposeA(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, k, from, to));
+	}
+
+	/**
+	 * The float version of {@link #multiplyTransposeB(double[], int, int, double[], int, int, double[], int, int, double, boolean, int, int, int)}
+	 */
+	static void multiplyTransposeB(float[] a, int aOff, int aStride,
+								   float[] b, int bOff, int bStride,
+								   float[] c, int cOff, int cStride,
+								   float alpha, boolean accumulate,
+								   int m, int n, int k) {
+
+		if(!parallel(m, n, k)) {
+			transposeB(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, alpha, accumulate, n, k, 0, m);
+			return;
+		}
+
+		split(m, (from, to) -> transposeB(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, alpha, accumulate, n, k, from, to));
+	}
+
+	private static void rows(float[] a, int aOff, int aStride, float[] b, int bOff, int bStride, float[] c, int cOff, int cStride,
+							 float[] bias, int biasOff, int biasStride, FloatArrayFunction func, int n, int k, int from, int to) {
+
+		if(n == 1) {
+			dot(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, k, from, to);
+		}else if(k == 0) {
+			//blocked only applies the function after the last block of k, without any it would never get applied
+			for(int i = from; i < to; i++) {
+				int cRow = cOff + i*cStride;
+				init(c, cRow, n, bias, biasOff, biasStride, i);
+				if(func != null)
+					func.apply(c, cRow, cRow+n);
+			}
+		}else {
+			blocked(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, bias, biasOff, biasStride, func, n, k, from, to);
+		}
+	}
+
+	private static void init(float[] c, int cRow, int n, float[] bias, int biasOff, int biasStride, int i) {
+		Arrays.fill(c, cRow, cRow+n, bias == null ? 0.0f : bias[biasOff + i*biasStride]);
+	}
+
+	private static void dot(float[] a, int aOff, int aStride, float[] b, int bOff, int bStride, float[] c, int cOff, int cStride,
+							float[] bias, int biasOff, int biasStride, FloatArrayFunction func, int k, int from, int to) {
+
+		for(int i = from; i < to; i++) {
+			int aRow = aOff + i*aStride;
+
+			float d;
+			if(bStride == 1) {
+				d = OPS.dot(a, aRow, b, bOff, k);
+			}else {
+				d = 0;
+				for(int p = 0; p < k; p++)
+					d += a[aRow+p] * b[bOff + p*bStride];
+			}
+
+			c[cOff + i*cStride] = bias == null ? d : bias[biasOff + i*biasStride] + d;
+		}
+
+		if(func == null) return;
+
+		if(cStride == 1)
+			func.apply(c, cOff+from, cOff+to);
+		else
+			for(int i = from; i < to; i++)
+				func.apply(c, cOff + i*cStride, cOff + i*cStride + 1);
+	}
+
+	/**
+	 * Tiled kernel like the double one, small products go through it as well since a single tile covers them
+	 */
+	private static void blocked(float[] a, int aOff, int aStride, float[] b, int bOff, int bStride, float[] c, int cOff, int cStride,
+								float[] bias, int biasOff, int biasStride, FloatArrayFunction func, int n, int k, int from, int to) {
+
+		for(int i = from; i < to; i++)
+			init(c, cOff + i*cStride, n, bias, biasOff, biasStride, i);
+
+		for(int kk = 0; kk < k; kk += BLOCK_K) {
+			int kEnd = Math.min(kk+BLOCK_K, k);
+			boolean last = func != null && kEnd == k;
+
+			for(int jj = 0; jj < n; jj += BLOCK_N) {
+				int jEnd = Math.min(jj+BLOCK_N, n);
+
+				int i = from;
+				for(; i + ROW_TILE-1 < to; i += ROW_TILE) {
+					int a0 = aOff + i*aStride, a1 = a0+aStride, a2 = a1+aStride, a3 = a2+aStride;
+					int c0 = cOff + i*cStride, c1 = c0+cStride, c2 = c1+cStride, c3 = c2+cStride;
+
+					for(int p = kk; p < kEnd; p++)
+						OPS.axpy4(a[a0+p], a[a1+p], a[a2+p], a[a3+p], b, bOff + p*bStride + jj, c, c0+jj, c1+jj, c2+jj, c3+jj, jEnd-jj);
+
+					if(last) {
+						func.apply(c, c0+jj, c0+jEnd);
+						func.apply(c, c1+jj, c1+jEnd);
+						func.apply(c, c2+jj, c2+jEnd);
+						func.apply(c, c3+jj, c3+jEnd);
+					}
+				}
+
+				for(; i < to; i++) {
+					int aRow = aOff + i*aStride;
+					int cRow = cOff + i*cStride;
+
+					for(int p = kk; p < kEnd; p++)
+						OPS.axpy(a[aRow+p], b, bOff + p*bStride + jj, c, cRow+jj, jEnd-jj);
+
+					if(last)
+						func.apply(c, cRow+jj, cRow+jEnd);
+				}
+			}
+		}
+	}
+
+	private static void transposeA(float[] a, int aOff, int aStride, float[] b, int bOff, int bStride, float[] c, int cOff, int cStride, int n, int k, int from, int to) {
+
+		int block = Math.max(1, BLOCK_K*BLOCK_N / n);
+
+		for(int ii = from; ii < to; ii += block) {
+			int iEnd = Math.min(ii+block, to);
+
+			for(int i = ii; i < iEnd; i++)
+				init(c, cOff + i*cStride, n, null, 0, 0, i);
+
+			for(int p = 0; p < k; p++) {
+				int aRow = aOff + p*aStride;
+				int bRow = bOff + p*bStride;
+
+				if(n == 1 && cStride == 1) {
+					OPS.axpy(b[bRow], a, aRow+ii, c, cOff+ii, iEnd-ii);
+					continue;
+				}
+
+				for(int i = ii; i < iEnd; i++)
+					OPS.axpy(a[aRow+i], b, bRow, c, cOff + i*cStride, n);
+			}
+		}
+	}
+
+	private static void transposeB(float[] a, int aOff, int aStride, float[] b, int bOff, int bStride, float[] c, int cOff, int cStride,
+								   float alpha, boolean accumulate, int n, int k, int from, int to) {
+
+		for(int i = from; i < to; i++) {
+			int aRow = aOff + i*aStride;
+			int cRow = cOff + i*cStride;
+
+			if(k == 1 && bStride == 1) {
+				//outer product, c gets updated with a rank-1 matrix
+				if(!accumulate)
+					Arrays.fill(c, cRow, cRow+n, 0.0f);
+				OPS.axpy(alpha * a[aRow], b, bOff, c, cRow, n);
+				continue;
+			}
+
+			for(int j = 0; j < n; j++)
+				c[cRow+j] = (accumulate ? c[cRow+j] : 0.0f) + alpha * OPS.dot(a, aRow, b, bOff + j*bStride, k);
+		}
+	}
+
+	/**
+	 * Computes a range of rows of c
+	 */
+	@FunctionalInterface
+	interface RowRange {
+		void compute(int from, int to);
+	}
+
+	/**
+	 * Splits the rows of c in halves until a part is small enough to be computed directly
+	 */
+	private static final class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 4038215526738195732L;
+		private final RowRange range;
+		private final int from, to, grain;
+
+		RowTask(RowRange range, int from, int to, int grain) {
+			this.range = range;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(this.to - this.from <= this.grain) {
+				this.range.compute(this.from, this.to);
+				return;
+			}
+
+			//keep the split on a row tile boundary
+			int mid = this.from + ((this.to - this.from) / 2 + ROW_TILE-1) / ROW_TILE * ROW_TILE;
+			invokeAll(new RowTask(this.range, this.from, mid, this.grain), new RowTask(this.range, mid, this.to, this.grain));
+		}
+	}
+}
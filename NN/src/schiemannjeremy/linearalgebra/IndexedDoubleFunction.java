@@ -0,0 +1,14 @@
+package schiemannjeremy.linearalgebra;
+
+import java.io.Serializable;
+
+/**
+ * Primitive version of {@link IndexedFunction}, avoids boxing the values.
+ * @author Jeremy Schiemann
+ *
+ */
+@FunctionalInterface
+public interface IndexedDoubleFunction extends Serializable{
+	double apply(double d, int n1, int n2);
+
+}
@@ -0,0 +1,88 @@
+package schiemannjeremy.linearalgebra;
+
+/**
+ * The matrix operations a neural network needs for training and predicting, as a service interface so the
+ * implementation can be swapped without changing the network. </br>
+ *
+ * Implementations get discovered with {@link java.util.ServiceLoader}: list the class in
+ * <code>META-INF/services/schiemannjeremy.linearalgebra.LinearAlgebraBackend</code> and give it a public constructor without parameters.
+ * {@link LinearAlgebraBackends} finds them by name, {@link ReferenceBackend} is always available. </br>
+ * Every operation writes into a matrix it gets passed instead of allocating one, the sizes are checked like in {@link Matrix}.
+ * Implementations must be safe to use from several threads at once, as long as the threads write into different matrices.
+ * @author Jeremy Schiemann
+ *
+ */
+public interface LinearAlgebraBackend {
+
+	/**
+	 * @return - the name this backend can be selected with
+	 */
+	String getName();
+
+	/**
+	 * result = a x b
+	 * @return - the result matrix
+	 */
+	Matrix mul(Matrix a, Matrix b, Matrix result);
+
+	/**
+	 * result = transposed(a) x b
+	 * @return - the result matrix
+	 */
+	Matrix mulTransposeA(Matrix a, Matrix b, Matrix result);
+
+	/**
+	 * result = a x transposed(b)
+	 * @return - the result matrix
+	 */
+	Matrix mulTransposeB(Matrix a, Matrix b, Matrix result);
+
+	/**
+	 * result = func(a x b + bias), the bias column gets added to every column of the product
+	 * @param bias - a column vector with as many rows as a, or null
+	 * @param func - the function applied to the elements of the result, or null
+	 * @return - the result matrix
+	 */
+	Matrix mulAdd(Matrix a, Matrix b, Matrix bias, DoubleArrayFunction func, Matrix result);
+
+	/**
+	 * c += scale * a x transposed(b)
+	 */
+	void addMulTransposeB(Matrix c, Matrix a, Matrix b, double scale);
+
+	/**
+	 * y += alpha * x
+	 */
+	void axpy(double alpha, Matrix x, Matrix y);
+
+	/**
+	 * y += x elementwise
+	 */
+	void add(Matrix y, Matrix x);
+
+	/**
+	 * y -= x elementwise
+	 */
+	void sub(Matrix y, Matrix x);
+
+	/**
+	 * y *= x elementwise
+	 */
+	void hadamardProduct(Matrix y, Matrix x);
+
+	/**
+	 * y *= d
+	 */
+	void scale(Matrix y, double d);
+
+	/**
+	 * Adds the sum of every row of x to the corresponding element of the column vector y
+	 */
+	void addRowSums(Matrix y, Matrix x);
+
+	/**
+	 * Applies the function to every element of m in place, e.g. an activation function
+	 */
+	void apply(Matrix m, DoubleArrayFunction func);
+
+}
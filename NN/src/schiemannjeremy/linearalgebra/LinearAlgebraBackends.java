@@ -0,0 +1,80 @@
+package schiemannjeremy.linearalgebra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Finds the implementations of {@link LinearAlgebraBackend} with {@link ServiceLoader}. </br>
+ * The default backend is the one named by the system property <code>schiemannjeremy.backend</code>,
+ * or {@link ReferenceBackend} if the property isnt set.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class LinearAlgebraBackends {
+
+	public static final String PROPERTY = "schiemannjeremy.backend";
+
+	private static volatile List<LinearAlgebraBackend> backends;
+	private static volatile LinearAlgebraBackend defaultBackend;
+
+	private LinearAlgebraBackends() {}
+
+	/**
+	 * Returns every backend found on the class path, the reference backend is always contained. </br>
+	 * The service loader only runs once, later calls return the same instances.
+	 * @return - an unmodifiable list of the backends
+	 */
+	public static List<LinearAlgebraBackend> available() {
+
+		List<LinearAlgebraBackend> list = backends;
+		if(list != null) return list;
+
+		synchronized(LinearAlgebraBackends.class) {
+			if(backends != null) return backends;
+
+			list = new ArrayList<>();
+			boolean reference = false;
+			for(LinearAlgebraBackend backend : ServiceLoader.load(LinearAlgebraBackend.class)) {
+				list.add(backend);
+				reference |= backend instanceof ReferenceBackend;
+			}
+			if(!reference)
+				list.add(0, new ReferenceBackend());
+
+			return backends = Collections.unmodifiableList(list);
+		}
+	}
+
+	/**
+	 * Returns the backend with the given name
+	 * @param name - the name of the backend
+	 * @return - the backend
+	 * @throws IllegalArgumentException if no backend has this name
+	 */
+	public static LinearAlgebraBackend byName(String name) {
+
+		for(LinearAlgebraBackend backend : available())
+			if(backend.getName().equals(name))
+				return backend;
+
+		throw new IllegalArgumentException("No linear algebra backend named " + name + ", available are " + available());
+	}
+
+	/**
+	 * Returns the backend used by every network which didnt get its own one
+	 * @return - the default backend
+	 * @throws IllegalArgumentException if the system property names a backend that doesnt exist
+	 */
+	public static LinearAlgebraBackend getDefault() {
+
+		LinearAlgebraBackend backend = defaultBackend;
+		if(backend == null) {
+			String name = System.getProperty(PROPERTY);
+			defaultBackend = backend = byName(name == null ? ReferenceBackend.NAME : name);
+		}
+
+		return backend;
+	}
+}
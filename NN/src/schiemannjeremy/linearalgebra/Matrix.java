@@ -1,361 +1,853 @@
-package schiemannjeremy.linearalgebra;
-
-import java.io.Serializable;
-import java.util.Arrays;
-import java.util.function.Function;
-
-/**
- * Simple class for matrix mathematics
- * @author Jeremy Schiemann
- *
- */
-public class Matrix implements Serializable{
-
-	/**
-	 * 
-	 */
-	private static final long serialVersionUID = -5758639842378073608L;
-	private double[][] data;
-	private int rows;
-	private int columns;
-	
-	
-	/**
-	 * Creates a matrix with the given rows and columns
-	 * @param rows - amount of rows
-	 * @param columns - amount of columns
-	 */
-	public Matrix(int rows, int columns) {
-		this.rows = rows;
-		this.columns = columns;
-		
-		data = new double[rows][columns];	
-	}
-	
-	/**
-	 * Creates a matrix using the given double-array
-	 * @param data - the array used to create the matrix
-	 */
-	public Matrix(double[][] data) {
-		this.rows = data.length;
-		this.columns = data[0].length;
-
-		this.data = data;
-	}
-	
-	/**
-	 * clones the matrix
-	 * @return - the cloned matrix
-	 */
-	public Matrix clone(){
-		
-		Matrix cloned = new Matrix(this.rows, this.columns);
-		
-		for(int i = 0; i < this.rows; i++) {
-			for(int j = 0; j < this.columns; j++) {
-				cloned.data[i][j] = this.data[i][j];
-			}
-		}
-		
-		return cloned;
-	}
-	
-	/**
-	 * Creates a matrix out of an 1D-Array </br>
-	 * Matrix will be an "array.length by 1"-matrix. 
-	 * @param array - the array to create a matrix
-	 * @return the matrix
-	 */
-	public static Matrix fromArray(double[] array) {
-		
-		return new Matrix(array.length, 1).map((d, i, j) -> array[i]);
-	}
-
-	//#############################################################################################################################################################
-	
-	/**
-	 * Randomizes every value in the matrix with random values between the lower limit and (excluded) upper limit
-	 * @param from - lwoer limit
-	 * @param to - upper limit
-	 * @param useInteger - true if random numbers should be integers
-	 * @return - the matrix itself
-	 * @throws IllegalArgumentException if from > to
-	 */
-	public Matrix randomize(int from, int to, boolean useInteger) {
-		
-		if(from > to) throw new IllegalArgumentException("lower limit cant be higher than upper limit");
-		
-		int delta = from-to;
-		this.map((d) -> useInteger ? Math.floor(Math.random()*delta+to) : Math.random()*delta+to);
-		
-		return this;
-	}
-	
-	/**
-	 * Performs the function on every element
-	 * @param function - a function that accepts a double and returns one
-	 * @return - the matrix itself
-	 */
-	public Matrix map(Function<Double, Double> function) {
-		for(int i = 0; i < this.rows; i++) {
-			for(int j = 0; j < this.columns; j++) {
-				this.data[i][j] = function.apply(this.data[i][j]);
-			}
-		}
-		
-		return this;
-	}
-	
-	/**
-	 *  Performs the function on every element. </br>
-	 *  
-	 *  The function gets called like this function(d, i, j) </br>
-	 *  where d is the value of the matrix's cell, </br>
-	 *  i is the index of the row and j is the index of the column. 
-	 *  
-	 * @param function - a function that accepts a double and two integers and returns a double
-	 * @return - the matrix itself
-	 */
-	public Matrix map(IndexedFunction<Double, Double> function) {
-		for(int i = 0; i < this.rows; i++) {
-			for(int j = 0; j < this.columns; j++) {
-				this.data[i][j] = function.apply(this.data[i][j], i, j);
-			}
-		}
-		
-		return this;
-	}
-	
-	/**
-	 * Does the same as {@link #map(Function)} but returns a new Matrix and doesnt change the original one.
-	 * @param m - the original matrix (doesnt get changed)
-	 * @param function - the mapping function
-	 * @return - a new matrix
-	 */
-	public static Matrix map(Matrix m, Function<Double, Double> function) {
-		
-		Matrix mapped = new Matrix(m.rows, m.columns);
-		
-		for(int i = 0; i < m.rows; i++) {
-			for(int j = 0; j < m.columns; j++) {
-				mapped.data[i][j] = function.apply(m.data[i][j]);
-			}
-		}
-		
-		return mapped;
-	}
-	
-	/**
-	 * Does the same as {@link #map(IndexedFunction)} but returns a new Matrix and doesnt change the original one.
-	 * @param m - the original matrix (doesnt get changed)
-	 * @param function - the mapping function
-	 * @return - a new matrix
-	 */
-	public static Matrix map(Matrix m, IndexedFunction<Double, Double> function) {
-		
-		Matrix mapped = new Matrix(m.rows, m.columns);
-		
-		for(int i = 0; i < m.rows; i++) {
-			for(int j = 0; j < m.columns; j++) {
-				mapped.data[i][j] = function.apply(m.data[i][j], i, j);
-			}
-		}
-		
-		return mapped;
-	}
-	
-	//#############################################################################################################################################################
-	
-	/**
-	 * Adds the matrix m to this matrix elementwise
-	 * @param m - the matrix to add
-	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
-	 */
-	public void add(Matrix m) {
-		
-		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
-		
-		this.map((d,i,j) -> d+m.data[i][j]);
-	}
-	
-	/**
-	 * Adds an integer to every element of this matrix.
-	 * @param n - the integer to add
-	 */
-	public void add(int n) {
-		
-		this.map(d -> d+n);
-	}
-	
-	/**
-	 * Adds a double to every element of this matrix.
-	 * @param d - the double to add
-	 */
-	public void add(double d) {
-		
-		this.map(d1 -> d1+d);
-	}
-	
-	/**
-	 * Subtracts the matrix m from this matrix elementwise
-	 * @param m - the matrix to subtract
-	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
-	 */
-	public void sub(Matrix m) {
-		
-		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
-		
-		this.map((d,i,j) -> d-m.data[i][j]);
-	}
-	
-	/**
-	 * Subtracts an integer from every element of this matrix.
-	 * @param n - the integer to subtract
-	 */
-	public void sub(int n) {
-		
-		this.map(d -> d-n);
-	}
-	
-	/**
-	 * Subtracts a double from every element of this matrix.
-	 * @param d - the double to subtract
-	 */
-	public void sub(double d) {
-		
-		this.map(d1 -> d1-d);
-	}
-	
-	/**
-	 * Multiplies the matrix m to this matrix elementwise
-	 * @param m - the matrix to multiply
-	 * @throws IllegalArgumentException if the matrix m isnt the same size as this matrix
-	 */
-	public void hadamardProduct(Matrix m) {
-		
-		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
-		
-		this.map((d, i, j) -> d*m.data[i][j]);
-	}
-	
-	/**
-	 * Multiplies an integer with every element of this matrix.
-	 * @param n - the integer to multiply
-	 */
-	public void mul(int n) {
-		
-		this.map(d -> d*n);
-	}
-	
-	/**
-	 * Multiplies a double with every element of this matrix.
-	 * @param d - the double to multiply
-	 */
-	public void mul(double d) {
-		
-		this.map(d1 -> d1*d);
-	}
-	
-	/**
-	 * Adds two matrices elementwise but returns a new element instead of changing one.
-	 * @param a - first matrix
-	 * @param b - second matrix
-	 * @return the result of a + b elementwise.
-	 * @throws IllegalArgumentException if the matrices are of different sizes
-	 */
-	public static Matrix add(Matrix a, Matrix b) {
-		
-		if(a.rows != b.rows || a.columns != b.columns) throw new IllegalArgumentException("Matrices must be of same size");
-		
-		return new Matrix(a.rows, a.columns).map((d, i, j) -> a.data[i][j]+b.data[i][j]);
-	}
-	
-	/**
-	 * Subtracts two matrices elementwise but returns a new element instead of changing one.
-	 * @param a - first matrix
-	 * @param b - second matrix
-	 * @return result of a - b elementwise.
-	 * @throws IllegalArgumentException if the matrices are of different sizes
-	 */
-	public static Matrix sub(Matrix a, Matrix b) {
-		
-		if(a.rows != b.rows || a.columns != b.columns) throw new IllegalArgumentException("Matrices must be of same size");
-		
-		return new Matrix(a.rows, a.columns).map((d, i, j) -> a.data[i][j]-b.data[i][j]);
-	}
-	
-	/**
-	 * Multiplies two matrices using proper matrix multiplication
-	 * @param a - first matrix
-	 * @param b - second matrix
-	 * @return the resulting Matrix from a x b
-	 * @throws IllegalArgumentException if the matrices can be multiplied
-	 */
-	public static Matrix mul(Matrix a, Matrix b) {
-		
-		if(a.columns != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
-		
-		return new Matrix(a.rows, b.columns).map((d, i, j) ->{
-			double sum = 0;
-			for(int k = 0; k < a.columns; k++)
-				sum += a.data[i][k] * b.data[k][j];
-			
-			return sum;
-		});
-	}
-	
-	/**
-	 * Transposes the matrix m
-	 * @param m - the matrix to transpose
-	 * @return a new matrix which is m transposed
-	 */
-	public static Matrix transpose(Matrix m) {
-		
-		return new Matrix(m.columns, m.rows).map((d, i, j) -> m.data[j][i]);
-	}
-	
-	//#############################################################################################################################################################
-	
-	/**
-
-	 * Flattens the matrix into a double array containing row after row
-	 * @return a double-array containing the matrix
-	 */
-	public double[] toArray() {
-		
-		double[] arr = new double[this.rows*this.columns];
-		
-		for(int i = 0; i < this.rows; i++) {
-			for(int j = 0; j < this.columns; j++) {
-				arr[i*j+i] = this.data[i][j];
-			}
-		}
-		
-		return arr;
-	}
-	
-	/**
-	 * Prints this Matrix
-	 */
-	public void print() {
-		System.out.println(this);
-	}
-	
-	/**
-	 * Converts this matrix into a string
-	 * @return the string of the matrix
-	 */
-	@Override
-	public String toString() {
-		
-		String s = "";
-		for(double[] row : this.data)
-			s += Arrays.toString(row) + "\n";
-		
-		for(int i = 0; i < this.columns; i++)
-			s += "-----";
-		
-		return s +"\n";
-	}
-	
-}
+package schiemannjeremy.linearalgebra;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+/**
+ * Simple class for matrix mathematics </br>
+ *
+ * The values are stored row after row in one flat double array. </br>
+ * Element (i, j) lives at <code>data[offset + i*stride + j]</code>, which allows zero-copy views
+ * on rows and submatrices (see {@link #row(int)} and {@link #subMatrix(int, int, int, int)}).
+ * @author Jeremy Schiemann
+ *
+ */
+public class Matrix implements Serializable{
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -5758639842378073608L;
+	
+	/**
+	 * The serialized form is still the one of the old two-dimensional storage, so matrices and networks
+	 * serialized before the flat storage can be read and the other way around, see {@link #writeObject(ObjectOutputStream)}
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("data", double[][].class),
+			new ObjectStreamField("rows", int.class),
+			new ObjectStreamField("columns", int.class)
+	};
+	
+	/** The loops of the element-wise operations, SIMD if available */
+	private static final VectorOps OPS = VectorOps.INSTANCE;
+	private double[] data;
+	private int offset;
+	private int stride;
+	private int rows;
+	private int columns;
+	
+	
+	/**
+	 * Creates a matrix with the given rows and columns
+	 * @param rows - amount of rows
+	 * @param columns - amount of columns
+	 */
+	public Matrix(int rows, int columns) {
+		this(new double[rows*columns], 0, columns, rows, columns);
+	}
+	
+	/**
+	 * Creates a matrix using the given double-array </br>
+	 * The values get copied into the flat storage of the matrix.
+	 * @param data - the array used to create the matrix
+	 */
+	public Matrix(double[][] data) {
+		this(data.length, data[0].length);
+
+		for(int i = 0; i < this.rows; i++)
+			System.arraycopy(data[i], 0, this.data, i*this.stride, this.columns);
+	}
+	
+	/**
+	 * Creates a matrix which is backed by the given array. </br>
+	 * The array has to contain the matrix row after row, changes to the array will be visible in the matrix and vice versa.
+	 * @param rows - amount of rows
+	 * @param columns - amount of columns
+	 * @param data - the backing array
+	 * @throws IllegalArgumentException if the array is too small for the given size
+	 */
+	public Matrix(int rows, int columns, double[] data) {
+		this(data, 0, columns, rows, columns);
+
+		if(data.length < rows*columns) throw new IllegalArgumentException("Array too small for a " + rows + "x" + columns + " matrix");
+	}
+
+	/**
+	 * Creates a view on the given backing array
+	 */
+	private Matrix(double[] data, int offset, int stride, int rows, int columns) {
+		this.data = data;
+		this.offset = offset;
+		this.stride = stride;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * clones the matrix </br>
+	 * The clone always gets its own contiguous storage, even if this matrix is a view.
+	 * @return - the cloned matrix
+	 */
+	public Matrix clone(){
+		
+		Matrix cloned = new Matrix(this.rows, this.columns);
+		
+		for(int i = 0; i < this.rows; i++)
+			System.arraycopy(this.data, this.offset + i*this.stride, cloned.data, i*cloned.stride, this.columns);
+		
+		return cloned;
+	}
+	
+	/**
+	 * Creates a matrix out of an 1D-Array </br>
+	 * Matrix will be an "array.length by 1"-matrix. </br>
+	 * The matrix is backed by the given array, no values get copied.
+	 * @param array - the array to create a matrix
+	 * @return the matrix
+	 */
+	public static Matrix fromArray(double[] array) {
+		
+		return new Matrix(array, 0, 1, array.length, 1);
+	}
+
+	//#############################################################################################################################################################
+
+	/**
+	 * Returns a view on the row with the given index as a "1 by columns"-matrix. </br>
+	 * The view shares its storage with this matrix.
+	 * @param row - the index of the row
+	 * @return - the view on the row
+	 * @throws IndexOutOfBoundsException if the row doesnt exist
+	 */
+	public Matrix row(int row) {
+
+		return this.subMatrix(row, 0, 1, this.columns);
+	}
+
+	/**
+	 * Returns a view on the column with the given index as a "rows by 1"-matrix. </br>
+	 * The view shares its storage with this matrix.
+	 * @param column - the index of the column
+	 * @return - the view on the column
+	 * @throws IndexOutOfBoundsException if the column doesnt exist
+	 */
+	public Matrix column(int column) {
+
+		return this.subMatrix(0, column, this.rows, 1);
+	}
+
+	/**
+	 * Returns a view on a part of this matrix. </br>
+	 * The view shares its storage with this matrix, so changes to the view are visible in this matrix.
+	 * @param row - index of the first row of the view
+	 * @param column - index of the first column of the view
+	 * @param rows - amount of rows of the view
+	 * @param columns - amount of columns of the view
+	 * @return - the view
+	 * @throws IndexOutOfBoundsException if the view doesnt fit into this matrix
+	 */
+	public Matrix subMatrix(int row, int column, int rows, int columns) {
+
+		if(row < 0 || column < 0 || rows < 0 || columns < 0 || row+rows > this.rows || column+columns > this.columns)
+			throw new IndexOutOfBoundsException("Submatrix " + rows + "x" + columns + " at (" + row + ", " + column + ") doesnt fit into a " + this.rows + "x" + this.columns + " matrix");
+
+		return new Matrix(this.data, this.offset + row*this.stride + column, this.stride, rows, columns);
+	}
+
+	/**
+	 * Returns the value at the given position
+	 * @param row - index of the row
+	 * @param column - index of the column
+	 * @return - the value
+	 */
+	public double get(int row, int column) {
+		return this.data[this.offset + row*this.stride + column];
+	}
+
+	/**
+	 * Sets the value at the given position
+	 * @param row - index of the row
+	 * @param column - index of the column
+	 * @param value - the new value
+	 */
+	public void set(int row, int column, double value) {
+		this.data[this.offset + row*this.stride + column] = value;
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * Returns the distance between the first elements of two neighbouring rows in the backing array
+	 * @return - the row stride
+	 */
+	public int getStride() {
+		return this.stride;
+	}
+
+	/**
+	 * Returns the index of the element (0, 0) in the backing array
+	 * @return - the offset
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * The backing array, for the kernels of this package
+	 */
+	double[] data() {
+		return this.data;
+	}
+
+	/**
+	 * Checks whether the rows of this matrix follow each other without gaps in the backing array
+	 * @return - true if the matrix is stored contiguously
+	 */
+	public boolean isContiguous() {
+		return this.stride == this.columns || this.rows <= 1;
+	}
+
+	//#############################################################################################################################################################
+	
+	/**
+	 * Randomizes every value in the matrix with random values between the lower limit and (excluded) upper limit
+	 * @param from - lwoer limit
+	 * @param to - upper limit
+	 * @param useInteger - true if random numbers should be integers
+	 * @return - the matrix itself
+	 * @throws IllegalArgumentException if from > to
+	 */
+	public Matrix randomize(int from, int to, boolean useInteger) {
+		
+		if(from > to) throw new IllegalArgumentException("lower limit cant be higher than upper limit");
+		
+		int delta = from-to;
+		for(int i = 0; i < this.rows; i++) {
+			int row = this.offset + i*this.stride;
+			for(int j = 0; j < this.columns; j++) {
+				double r = Math.random()*delta+to;
+				this.data[row+j] = useInteger ? Math.floor(r) : r;
+			}
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Performs the function on every element </br>
+	 * Every element gets boxed, use {@link #mapDouble(DoubleUnaryOperator)} in performance critical code.
+	 * @param function - a function that accepts a double and returns one
+	 * @return - the matrix itself
+	 */
+	public Matrix map(Function<Double, Double> function) {
+		for(int i = 0; i < this.rows; i++) {
+			int row = this.offset + i*this.stride;
+			for(int j = 0; j < this.columns; j++) {
+				this.data[row+j] = function.apply(this.data[row+j]);
+			}
+		}
+		
+		return this;
+	}
+	
+	/**
+	 *  Performs the function on every element. </br>
+	 *  
+	 *  The function gets called like this function(d, i, j) </br>
+	 *  where d is the value of the matrix's cell, </br>
+	 *  i is the index of the row and j is the index of the column. </br>
+	 *  Every element gets boxed, use {@link #mapDouble(IndexedDoubleFunction)} in performance critical code.
+	 *  
+	 * @param function - a function that accepts a double and two integers and returns a double
+	 * @return - the matrix itself
+	 */
+	public Matrix map(IndexedFunction<Double, Double> function) {
+		for(int i = 0; i < this.rows; i++) {
+			int row = this.offset + i*this.stride;
+			for(int j = 0; j < this.columns; j++) {
+				this.data[row+j] = function.apply(this.data[row+j], i, j);
+			}
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Does the same as {@link #map(Function)} but returns a new Matrix and doesnt change the original one.
+	 * @param m - the original matrix (doesnt get changed)
+	 * @param function - the mapping function
+	 * @return - a new matrix
+	 */
+	public static Matrix map(Matrix m, Function<Double, Double> function) {
+		
+		return m.clone().map(function);
+	}
+	
+	/**
+	 * Does the same as {@link #map(IndexedFunction)} but returns a new Matrix and doesnt change the original one.
+	 * @param m - the original matrix (doesnt get changed)
+	 * @param function - the mapping function
+	 * @return - a new matrix
+	 */
+	public static Matrix map(Matrix m, IndexedFunction<Double, Double> function) {
+		
+		return m.clone().map(function);
+	}
+	
+	/**
+	 * Performs the function on every element without boxing the values. </br>
+	 * Named differently than {@link #map(Function)} so that lambdas passed to map stay unambiguous.
+	 * @param function - a function that accepts a double and returns one
+	 * @return - the matrix itself
+	 */
+	public Matrix mapDouble(DoubleUnaryOperator function) {
+		for(int i = 0; i < this.rows; i++) {
+			int row = this.offset + i*this.stride;
+			for(int j = 0; j < this.columns; j++) {
+				this.data[row+j] = function.applyAsDouble(this.data[row+j]);
+			}
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Performs the function on every element without boxing the values. </br>
+	 * The function gets called the same way as in {@link #map(IndexedFunction)}.
+	 * @param function - a function that accepts a double and two integers and returns a double
+	 * @return - the matrix itself
+	 */
+	public Matrix mapDouble(IndexedDoubleFunction function) {
+		for(int i = 0; i < this.rows; i++) {
+			int row = this.offset + i*this.stride;
+			for(int j = 0; j < this.columns; j++) {
+				this.data[row+j] = function.apply(this.data[row+j], i, j);
+			}
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Applies the function to every row of the matrix in place, or to all values at once if the matrix is contiguous. </br>
+	 * Unlike {@link #mapDouble(DoubleUnaryOperator)} the function loops over the values itself.
+	 * @param function - a function transforming a range of an array
+	 * @return - the matrix itself
+	 */
+	public Matrix apply(DoubleArrayFunction function) {
+		
+		if(this.isContiguous()) {
+			function.apply(this.data, this.offset, this.offset + this.rows*this.columns);
+			return this;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			function.apply(this.data, this.offset + i*this.stride, this.offset + i*this.stride + this.columns);
+		
+		return this;
+	}
+	
+	/**
+	 * Does the same as {@link #mapDouble(DoubleUnaryOperator)} but returns a new Matrix and doesnt change the original one.
+	 * @param m - the original matrix (doesnt get changed)
+	 * @param function - the mapping function
+	 * @return - a new matrix
+	 */
+	public static Matrix mapDouble(Matrix m, DoubleUnaryOperator function) {
+		
+		return m.clone().mapDouble(function);
+	}
+	
+	/**
+	 * Does the same as {@link #mapDouble(IndexedDoubleFunction)} but returns a new Matrix and doesnt change the original one.
+	 * @param m - the original matrix (doesnt get changed)
+	 * @param function - the mapping function
+	 * @return - a new matrix
+	 */
+	public static Matrix mapDouble(Matrix m, IndexedDoubleFunction function) {
+		
+		return m.clone().mapDouble(function);
+	}
+	
+	//#############################################################################################################################################################
+	
+	/**
+	 * Adds the matrix m to this matrix elementwise
+	 * @param m - the matrix to add
+	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
+	 */
+	public void add(Matrix m) {
+		
+		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
+		
+		if(this.isContiguous() && m.isContiguous()) {
+			OPS.add(this.data, this.offset, m.data, m.offset, this.rows*this.columns);
+			return;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			OPS.add(this.data, this.offset + i*this.stride, m.data, m.offset + i*m.stride, this.columns);
+	}
+	
+	/**
+	 * Adds an integer to every element of this matrix.
+	 * @param n - the integer to add
+	 */
+	public void add(int n) {
+		
+		this.add((double)n);
+	}
+	
+	/**
+	 * Adds a double to every element of this matrix.
+	 * @param d - the double to add
+	 */
+	public void add(double d) {
+		
+		if(this.isContiguous()) {
+			OPS.add(this.data, this.offset, this.rows*this.columns, d);
+			return;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			OPS.add(this.data, this.offset + i*this.stride, this.columns, d);
+	}
+	
+	/**
+	 * Subtracts the matrix m from this matrix elementwise
+	 * @param m - the matrix to subtract
+	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
+	 */
+	public void sub(Matrix m) {
+		
+		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
+		
+		if(this.isContiguous() && m.isContiguous()) {
+			OPS.sub(this.data, this.offset, m.data, m.offset, this.rows*this.columns);
+			return;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			OPS.sub(this.data, this.offset + i*this.stride, m.data, m.offset + i*m.stride, this.columns);
+	}
+	
+	/**
+	 * Subtracts an integer from every element of this matrix.
+	 * @param n - the integer to subtract
+	 */
+	public void sub(int n) {
+		
+		this.add(-(double)n);
+	}
+	
+	/**
+	 * Subtracts a double from every element of this matrix.
+	 * @param d - the double to subtract
+	 */
+	public void sub(double d) {
+		
+		this.add(-d);
+	}
+	
+	/**
+	 * Adds scale times the matrix m to this matrix elementwise
+	 * @param m - the matrix to add
+	 * @param scale - the factor of m
+	 * @throws IllegalArgumentException if matrix m isnt the same size as this matrix.
+	 */
+	public void addScaled(Matrix m, double scale) {
+		
+		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
+		
+		if(this.isContiguous() && m.isContiguous()) {
+			OPS.axpy(scale, m.data, m.offset, this.data, this.offset, this.rows*this.columns);
+			return;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			OPS.axpy(scale, m.data, m.offset + i*m.stride, this.data, this.offset + i*this.stride, this.columns);
+	}
+	
+	/**
+	 * Multiplies the matrix m to this matrix elementwise
+	 * @param m - the matrix to multiply
+	 * @throws IllegalArgumentException if the matrix m isnt the same size as this matrix
+	 */
+	public void hadamardProduct(Matrix m) {
+		
+		if(this.rows != m.rows || this.columns != m.columns) throw new IllegalArgumentException("Matrices must be of same size");
+		
+		if(this.isContiguous() && m.isContiguous()) {
+			OPS.mul(this.data, this.offset, m.data, m.offset, this.rows*this.columns);
+			return;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			OPS.mul(this.data, this.offset + i*this.stride, m.data, m.offset + i*m.stride, this.columns);
+	}
+	
+	/**
+	 * Multiplies an integer with every element of this matrix.
+	 * @param n - the integer to multiply
+	 */
+	public void mul(int n) {
+		
+		this.mul((double)n);
+	}
+	
+	/**
+	 * Multiplies a double with every element of this matrix.
+	 * @param d - the double to multiply
+	 */
+	public void mul(double d) {
+		
+		if(this.isContiguous()) {
+			OPS.scale(this.data, this.offset, this.rows*this.columns, d);
+			return;
+		}
+		
+		for(int i = 0; i < this.rows; i++)
+			OPS.scale(this.data, this.offset + i*this.stride, this.columns, d);
+	}
+	
+	/**
+	 * Adds two matrices elementwise but returns a new element instead of changing one.
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @return the result of a + b elementwise.
+	 * @throws IllegalArgumentException if the matrices are of different sizes
+	 */
+	public static Matrix add(Matrix a, Matrix b) {
+		
+		if(a.rows != b.rows || a.columns != b.columns) throw new IllegalArgumentException("Matrices must be of same size");
+		
+		Matrix result = a.clone();
+		result.add(b);
+		
+		return result;
+	}
+	
+	/**
+	 * Subtracts two matrices elementwise but returns a new element instead of changing one.
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @return result of a - b elementwise.
+	 * @throws IllegalArgumentException if the matrices are of different sizes
+	 */
+	public static Matrix sub(Matrix a, Matrix b) {
+		
+		if(a.rows != b.rows || a.columns != b.columns) throw new IllegalArgumentException("Matrices must be of same size");
+		
+		Matrix result = a.clone();
+		result.sub(b);
+		
+		return result;
+	}
+	
+	/**
+	 * Multiplies two matrices using proper matrix multiplication
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @return the resulting Matrix from a x b
+	 * @throws IllegalArgumentException if the matrices can be multiplied
+	 */
+	public static Matrix mul(Matrix a, Matrix b) {
+		
+		if(a.columns != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
+		
+		Matrix result = new Matrix(a.rows, b.columns);
+		Gemm.multiply(a.data, a.offset, a.stride, b.data, b.offset, b.stride, result.data, result.offset, result.stride, a.rows, b.columns, a.columns);
+
+		return result;
+	}
+	
+	/**
+	 * Multiplies two matrices like {@link #mul(Matrix, Matrix)} but writes the product into the given matrix
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @param result - the matrix which gets overwritten with a x b, must not share its storage with a or b
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the result has the wrong size
+	 */
+	public static Matrix mul(Matrix a, Matrix b, Matrix result) {
+		
+		if(a.columns != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.rows || result.columns != b.columns) throw new IllegalArgumentException("Result must be a " + a.rows + "x" + b.columns + " matrix");
+		
+		Gemm.multiply(a.data, a.offset, a.stride, b.data, b.offset, b.stride, result.data, result.offset, result.stride, a.rows, b.columns, a.columns);
+		
+		return result;
+	}
+	
+	/**
+	 * Computes result = func(a x b + bias) in one pass, the bias gets added to every column of the product. </br>
+	 * Works like {@link #mul(Matrix, Matrix, Matrix)} followed by {@link #addColumnVector(Matrix)} and applying func to every element,
+	 * but every element of the result gets written only once while it is computed instead of three times.
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @param bias - a column vector with as many rows as a, or null
+	 * @param func - the function applied to the elements of the result, or null
+	 * @param result - the matrix which gets overwritten, must not share its storage with a, b or bias
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the bias or result has the wrong size
+	 */
+	public static Matrix mulAdd(Matrix a, Matrix b, Matrix bias, DoubleArrayFunction func, Matrix result) {
+		
+		if(a.columns != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.rows || result.columns != b.columns) throw new IllegalArgumentException("Result must be a " + a.rows + "x" + b.columns + " matrix");
+		if(bias != null && (bias.columns != 1 || bias.rows != a.rows)) throw new IllegalArgumentException("Bias must be a " + a.rows + "x1 matrix");
+		
+		Gemm.multiplyAdd(a.data, a.offset, a.stride, b.data, b.offset, b.stride, result.data, result.offset, result.stride,
+				bias == null ? null : bias.data, bias == null ? 0 : bias.offset, bias == null ? 0 : bias.stride, func,
+				a.rows, b.columns, a.columns);
+		
+		return result;
+	}
+	
+	/**
+	 * Multiplies the transposed matrix a with b without creating the transposed copy of a
+	 * @param a - first matrix, gets read as transposed
+	 * @param b - second matrix
+	 * @return - a new matrix containing transposed(a) x b
+	 * @throws IllegalArgumentException if the matrices cant be multiplied
+	 */
+	public static Matrix mulTransposeA(Matrix a, Matrix b) {
+		
+		return mulTransposeA(a, b, new Matrix(a.columns, b.columns));
+	}
+	
+	/**
+	 * Multiplies the transposed matrix a with b like {@link #mulTransposeA(Matrix, Matrix)} but writes the product into the given matrix
+	 * @param a - first matrix, gets read as transposed
+	 * @param b - second matrix
+	 * @param result - the matrix which gets overwritten with transposed(a) x b, must not share its storage with a or b
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the result has the wrong size
+	 */
+	public static Matrix mulTransposeA(Matrix a, Matrix b, Matrix result) {
+		
+		if(a.rows != b.rows) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.columns || result.columns != b.columns) throw new IllegalArgumentException("Result must be a " + a.columns + "x" + b.columns + " matrix");
+		
+		Gemm.multiplyTransposeA(a.data, a.offset, a.stride, b.data, b.offset, b.stride, result.data, result.offset, result.stride, a.columns, b.columns, a.rows);
+		
+		return result;
+	}
+	
+	/**
+	 * Multiplies a with the transposed matrix b without creating the transposed copy of b
+	 * @param a - first matrix
+	 * @param b - second matrix, gets read as transposed
+	 * @return - a new matrix containing a x transposed(b)
+	 * @throws IllegalArgumentException if the matrices cant be multiplied
+	 */
+	public static Matrix mulTransposeB(Matrix a, Matrix b) {
+		
+		return mulTransposeB(a, b, new Matrix(a.rows, b.rows));
+	}
+	
+	/**
+	 * Multiplies a with the transposed matrix b like {@link #mulTransposeB(Matrix, Matrix)} but writes the product into the given matrix
+	 * @param a - first matrix
+	 * @param b - second matrix, gets read as transposed
+	 * @param result - the matrix which gets overwritten with a x transposed(b), must not share its storage with a or b
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the result has the wrong size
+	 */
+	public static Matrix mulTransposeB(Matrix a, Matrix b, Matrix result) {
+		
+		if(a.columns != b.columns) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.rows != a.rows || result.columns != b.rows) throw new IllegalArgumentException("Result must be a " + a.rows + "x" + b.rows + " matrix");
+		
+		Gemm.multiplyTransposeB(a.data, a.offset, a.stride, b.data, b.offset, b.stride, result.data, result.offset, result.stride, 1.0, false, a.rows, b.rows, a.columns);
+		
+		return result;
+	}
+	
+	/**
+	 * Adds scale * a x transposed(b) to this matrix in place, without creating the transposed copy or the product. </br>
+	 * If a and b are column vectors this is a rank-1 update with their outer product, like the weight delta of one training set.
+	 * @param a - first matrix
+	 * @param b - second matrix, gets read as transposed
+	 * @param scale - factor of the product
+	 * @return - the matrix itself
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the product has a different size than this matrix
+	 */
+	public Matrix addMulTransposeB(Matrix a, Matrix b, double scale) {
+		
+		if(a.columns != b.columns) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(this.rows != a.rows || this.columns != b.rows) throw new IllegalArgumentException("Product must be a " + this.rows + "x" + this.columns + " matrix");
+		
+		Gemm.multiplyTransposeB(a.data, a.offset, a.stride, b.data, b.offset, b.stride, this.data, this.offset, this.stride, scale, true, a.rows, b.rows, a.columns);
+		
+		return this;
+	}
+	
+	/**
+	 * Adds the column vector v to every column of this matrix
+	 * @param v - a "rows by 1"-matrix
+	 * @throws IllegalArgumentException if v isnt a column vector with as many rows as this matrix
+	 */
+	public void addColumnVector(Matrix v) {
+		
+		if(v.columns != 1 || v.rows != this.rows) throw new IllegalArgumentException("Vector must be a " + this.rows + "x1 matrix");
+		
+		for(int i = 0; i < this.rows; i++) {
+			int row = this.offset + i*this.stride;
+			double d = v.data[v.offset + i*v.stride];
+			for(int j = 0; j < this.columns; j++)
+				this.data[row+j] += d;
+		}
+	}
+	
+	/**
+	 * Adds the sum of every row of m to the corresponding element of this column vector, without allocating anything
+	 * @param m - a matrix with as many rows as this matrix
+	 * @throws IllegalArgumentException if this matrix isnt a column vector with as many rows as m
+	 */
+	public void addRowSums(Matrix m) {
+		
+		if(this.columns != 1 || this.rows != m.rows) throw new IllegalArgumentException("Vector must be a " + m.rows + "x1 matrix");
+		
+		for(int i = 0; i < m.rows; i++) {
+			int row = m.offset + i*m.stride;
+			double sum = 0;
+			for(int j = 0; j < m.columns; j++)
+				sum += m.data[row+j];
+			
+			this.data[this.offset + i*this.stride] += sum;
+		}
+	}
+	
+	/**
+	 * Sums up every row of the matrix m
+	 * @param m - the matrix
+	 * @return a "rows by 1"-matrix containing the sum of every row
+	 */
+	public static Matrix rowSums(Matrix m) {
+		
+		Matrix sums = new Matrix(m.rows, 1);
+		
+		for(int i = 0; i < m.rows; i++) {
+			int row = m.offset + i*m.stride;
+			double sum = 0;
+			for(int j = 0; j < m.columns; j++)
+				sum += m.data[row+j];
+			
+			sums.data[i] = sum;
+		}
+		
+		return sums;
+	}
+	
+	/**
+	 * Transposes the matrix m
+	 * @param m - the matrix to transpose
+	 * @return a new matrix which is m transposed
+	 */
+	public static Matrix transpose(Matrix m) {
+		
+		Matrix transposed = new Matrix(m.columns, m.rows);
+		
+		for(int i = 0; i < m.rows; i++) {
+			int row = m.offset + i*m.stride;
+			for(int j = 0; j < m.columns; j++)
+				transposed.data[j*transposed.stride + i] = m.data[row+j];
+		}
+		
+		return transposed;
+	}
+	
+	//#############################################################################################################################################################
+	
+	/**
+	 * Flattens the matrix into a double array containing row after row </br>
+	 * If the matrix owns its storage contiguously the backing array itself gets returned, otherwise a copy.
+	 * @return a double-array containing the matrix
+	 */
+	public double[] toArray() {
+		
+		if(this.offset == 0 && this.isContiguous() && this.data.length == this.rows*this.columns)
+			return this.data;
+		
+		return this.clone().data;
+	}
+	
+	/**
+	 * Writes the values as one double array per row like the old two-dimensional storage
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		
+		double[][] data = new double[this.rows][];
+		for(int i = 0; i < this.rows; i++)
+			data[i] = Arrays.copyOfRange(this.data, this.offset + i*this.stride, this.offset + i*this.stride + this.columns);
+		
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("data", data);
+		fields.put("rows", this.rows);
+		fields.put("columns", this.columns);
+		out.writeFields();
+	}
+	
+	/**
+	 * Reads the rows written by {@link #writeObject(ObjectOutputStream)} or by versions before the flat storage into a new flat array
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		
+		ObjectInputStream.GetField fields = in.readFields();
+		double[][] data = (double[][])fields.get("data", null);
+		int rows = fields.get("rows", 0);
+		int columns = fields.get("columns", 0);
+		
+		if(data == null || data.length != rows || columns < 0) throw new InvalidObjectException("matrix data doesnt match " + rows + "x" + columns);
+		
+		this.data = new double[rows*columns];
+		for(int i = 0; i < rows; i++) {
+			if(data[i] == null || data[i].length != columns) throw new InvalidObjectException("row " + i + " doesnt have " + columns + " columns");
+			System.arraycopy(data[i], 0, this.data, i*columns, columns);
+		}
+		this.offset = 0;
+		this.stride = columns;
+		this.rows = rows;
+		this.columns = columns;
+	}
+	
+	/**
+	 * Prints this Matrix
+	 */
+	public void print() {
+		System.out.println(this);
+	}
+	
+	/**
+	 * Converts this matrix into a string
+	 * @return the string of the matrix
+	 */
+	@Override
+	public String toString() {
+		
+		String s = "";
+		for(int i = 0; i < this.rows; i++)
+			s += Arrays.toString(Arrays.copyOfRange(this.data, this.offset + i*this.stride, this.offset + i*this.stride + this.columns)) + "\n";
+		
+		for(int i = 0; i < this.columns; i++)
+			s += "-----";
+		
+		return s +"\n";
+	}
+	
+}
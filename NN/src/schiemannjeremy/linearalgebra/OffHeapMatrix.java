@@ -0,0 +1,199 @@
+package schiemannjeremy.linearalgebra;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A matrix whose values are stored outside of the Java heap, in a direct or memory-mapped buffer. </br>
+ *
+ * The values are little-endian doubles, row after row without gaps, so a matrix can lie directly on a region of a file.
+ * Large weight matrices stored like this dont count towards the heap size and the garbage collector never has to scan or copy them;
+ * read-only mappings of the same file are shared between processes through the page cache. </br>
+ * The lifecycle is explicit: after {@link #close()} every operation throws an IllegalStateException and the buffer isnt referenced anymore.
+ * The operating system memory itself gets released once the buffer is unreachable, Java 17 has no way to free it earlier.
+ * Reading from several threads at once is safe.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class OffHeapMatrix implements Closeable {
+
+	/** The loops of the products, SIMD if available */
+	private static final VectorOps OPS = VectorOps.INSTANCE;
+
+	private final int rows;
+	private final int columns;
+	private volatile ByteBuffer buffer;
+
+	private OffHeapMatrix(ByteBuffer buffer, int rows, int columns) {
+		this.buffer = buffer;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * Allocates a matrix filled with zeros outside of the heap
+	 * @param rows - amount of rows
+	 * @param columns - amount of columns
+	 * @return - the matrix
+	 * @throws IllegalArgumentException if the matrix has more than 2 GB
+	 */
+	public static OffHeapMatrix allocate(int rows, int columns) {
+
+		if(rows < 0 || columns < 0 || 8L * rows * columns > Integer.MAX_VALUE) throw new IllegalArgumentException("A " + rows + "x" + columns + " matrix doesnt fit into one buffer");
+
+		return new OffHeapMatrix(ByteBuffer.allocateDirect(8 * rows * columns).order(ByteOrder.LITTLE_ENDIAN), rows, columns);
+	}
+
+	/**
+	 * Copies a matrix from the heap into a new off-heap matrix
+	 * @param m - the matrix to copy
+	 * @return - the copy
+	 */
+	public static OffHeapMatrix of(Matrix m) {
+
+		OffHeapMatrix copy = allocate(m.getRows(), m.getColumns());
+		copy.copyFrom(m);
+
+		return copy;
+	}
+
+	/**
+	 * Uses the next 8 * rows * columns bytes of the buffer from its current position as the values of a matrix, without copying them. </br>
+	 * The buffer can be a memory mapping of a file, changes of a writable mapping end up in the file.
+	 * @param buffer - the buffer, its position and order dont get changed
+	 * @param rows - amount of rows
+	 * @param columns - amount of columns
+	 * @return - the matrix
+	 * @throws IllegalArgumentException if the buffer has less bytes remaining than the matrix needs
+	 */
+	public static OffHeapMatrix wrap(ByteBuffer buffer, int rows, int columns) {
+
+		if(rows < 0 || columns < 0 || 8L * rows * columns > buffer.remaining()) throw new IllegalArgumentException("A " + rows + "x" + columns + " matrix doesnt fit into " + buffer.remaining() + " bytes");
+
+		ByteBuffer values = buffer.slice(buffer.position(), 8 * rows * columns).order(ByteOrder.LITTLE_ENDIAN);
+		return new OffHeapMatrix(values, rows, columns);
+	}
+
+	public double get(int row, int column) {
+
+		if(row < 0 || row >= this.rows || column < 0 || column >= this.columns) throw new IndexOutOfBoundsException("(" + row + ", " + column + ") is outside of a " + this.rows + "x" + this.columns + " matrix");
+
+		return this.buffer().getDouble(8 * (row*this.columns + column));
+	}
+
+	/**
+	 * Sets the value at the given position
+	 * @throws java.nio.ReadOnlyBufferException if the matrix lies on a read-only mapping
+	 */
+	public void set(int row, int column, double value) {
+
+		if(row < 0 || row >= this.rows || column < 0 || column >= this.columns) throw new IndexOutOfBoundsException("(" + row + ", " + column + ") is outside of a " + this.rows + "x" + this.columns + " matrix");
+
+		this.buffer().putDouble(8 * (row*this.columns + column), value);
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * Overwrites the values of this matrix with the ones of m
+	 * @param m - a matrix of the same size
+	 * @throws IllegalArgumentException if m has a different size
+	 */
+	public void copyFrom(Matrix m) {
+
+		if(m.getRows() != this.rows || m.getColumns() != this.columns) throw new IllegalArgumentException("Matrices must be of same size");
+
+		ByteBuffer buffer = this.buffer();
+		double[] data = m.data();
+		for(int i = 0; i < this.rows; i++)
+			buffer.asDoubleBuffer().put(i*this.columns, data, m.getOffset() + i*m.getStride(), this.columns);
+	}
+
+	/**
+	 * Copies the values into a new matrix on the heap
+	 * @return - the copy
+	 */
+	public Matrix toMatrix() {
+
+		Matrix m = new Matrix(this.rows, this.columns);
+		this.buffer().asDoubleBuffer().get(0, m.data(), 0, this.rows*this.columns);
+
+		return m;
+	}
+
+	/**
+	 * Computes result = func(a x b + bias) like {@link Matrix#mulAdd(Matrix, Matrix, Matrix, DoubleArrayFunction, Matrix)}
+	 * with the weights a and the bias off the heap. </br>
+	 * Every row of a gets read once per column of b, straight from the buffer. Doesnt allocate anything if b is a column vector.
+	 * @param a - first matrix
+	 * @param b - second matrix
+	 * @param bias - a column vector with as many rows as a, or null
+	 * @param func - the function applied to the elements of the result, or null
+	 * @param result - the matrix which gets overwritten
+	 * @return the result matrix
+	 * @throws IllegalArgumentException if the matrices cant be multiplied or the bias or result has the wrong size
+	 * @throws IllegalStateException if a or the bias is closed
+	 */
+	public static Matrix mulAdd(OffHeapMatrix a, Matrix b, OffHeapMatrix bias, DoubleArrayFunction func, Matrix result) {
+
+		if(a.columns != b.getRows()) throw new IllegalArgumentException("Incompatible matrix sizes");
+		if(result.getRows() != a.rows || result.getColumns() != b.getColumns()) throw new IllegalArgumentException("Result must be a " + a.rows + "x" + b.getColumns() + " matrix");
+		if(bias != null && (bias.columns != 1 || bias.rows != a.rows)) throw new IllegalArgumentException("Bias must be a " + a.rows + "x1 matrix");
+
+		ByteBuffer values = a.buffer();
+		ByteBuffer biasValues = bias == null ? null : bias.buffer();
+		double[] x = b.data();
+		double[] c = result.data();
+		int k = a.columns;
+
+		//a column vector gets read in place, the columns of a wider matrix get copied into one contiguous array first
+		boolean direct = b.getStride() == 1 || k <= 1;
+		double[] column = direct ? x : new double[k];
+
+		for(int j = 0; j < b.getColumns(); j++) {
+			int columnOffset = b.getOffset() + j;
+			if(!direct) {
+				for(int p = 0; p < k; p++)
+					column[p] = x[b.getOffset() + p*b.getStride() + j];
+				columnOffset = 0;
+			}
+
+			for(int i = 0; i < a.rows; i++) {
+				double d = OPS.dot(values, 8 * i*k, column, columnOffset, k);
+				c[result.getOffset() + i*result.getStride() + j] = biasValues == null ? d : biasValues.getDouble(8*i) + d;
+			}
+		}
+
+		if(func != null)
+			result.apply(func);
+
+		return result;
+	}
+
+	/**
+	 * Drops the reference to the buffer, the matrix cant be used afterwards
+	 */
+	@Override
+	public void close() {
+		this.buffer = null;
+	}
+
+	public boolean isClosed() {
+		return this.buffer == null;
+	}
+
+	private ByteBuffer buffer() {
+
+		ByteBuffer buffer = this.buffer;
+		if(buffer == null) throw new IllegalStateException("Matrix is closed");
+
+		return buffer;
+	}
+}
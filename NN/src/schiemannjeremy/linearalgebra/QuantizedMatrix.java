@@ -0,0 +1,170 @@
+package schiemannjeremy.linearalgebra;
+
+import java.io.Serializable;
+
+/**
+ * A matrix of signed 8 bit integers with one scale per row, for quantized inference. </br>
+ *
+ * Every row gets quantized symmetrically: its scale is the largest absolute value of the row divided by 127,
+ * and every value v is stored as <code>round(v / scale)</code>, so (i, j) stands for <code>get(i, j) * getScale(i)</code>.
+ * A row with a few large values doesnt cost the precision of the other rows. </br>
+ * {@link #mulAdd(byte[], double, Matrix, DoubleArrayFunction, Matrix)} multiplies with a vector which is quantized as well:
+ * the products get summed up as ints and only the sum of every row gets scaled back to double.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class QuantizedMatrix implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2378850154409981207L;
+
+	/** The inner loops, SIMD if available */
+	private static final VectorOps OPS = VectorOps.INSTANCE;
+
+	/** The largest magnitude of a quantized value, -128 is never used so the range is symmetric */
+	public static final int MAX = 127;
+
+	private final byte[] data;
+	private final double[] scales;
+	private final int rows;
+	private final int columns;
+
+	private QuantizedMatrix(byte[] data, double[] scales, int rows, int columns) {
+		this.data = data;
+		this.scales = scales;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * Quantizes every row of the matrix m with its own scale
+	 * @param m - the matrix, can be a view
+	 * @return - the quantized matrix
+	 */
+	public static QuantizedMatrix quantize(Matrix m) {
+
+		int rows = m.getRows(), columns = m.getColumns();
+		byte[] data = new byte[rows*columns];
+		double[] scales = new double[rows];
+
+		for(int i = 0; i < rows; i++) {
+			double max = 0;
+			for(int j = 0; j < columns; j++)
+				max = Math.max(max, Math.abs(m.get(i, j)));
+
+			scales[i] = scale(max);
+			for(int j = 0; j < columns; j++)
+				data[i*columns + j] = quantize(m.get(i, j), 1.0 / scales[i]);
+		}
+
+		return new QuantizedMatrix(data, scales, rows, columns);
+	}
+
+	/**
+	 * Returns the scale which maps the range [-max, max] onto [-127, 127]
+	 * @param max - the largest absolute value to represent
+	 * @return - the scale, 1 if max is 0
+	 */
+	public static double scale(double max) {
+		return max > 0 ? max / MAX : 1.0;
+	}
+
+	/**
+	 * Rounds value / scale to the nearest integer in [-127, 127], values out of range get clamped
+	 * @param value - the value
+	 * @param inverseScale - 1 / scale
+	 * @return - the quantized value
+	 */
+	public static byte quantize(double value, double inverseScale) {
+
+		long q = Math.round(value * inverseScale);
+		return (byte)(q > MAX ? MAX : q < -MAX ? -MAX : q);
+	}
+
+	/**
+	 * Quantizes the first values.length values into q with the same scale
+	 * @param values - the values
+	 * @param scale - the scale, e.g. from {@link #scale(double)}
+	 * @param q - gets filled with the quantized values
+	 */
+	public static void quantize(double[] values, double scale, byte[] q) {
+
+		double inverse = 1.0 / scale;
+		for(int i = 0; i < values.length; i++)
+			q[i] = quantize(values[i], inverse);
+	}
+
+	/**
+	 * Computes result = func(this x x * xScale + bias), where x is a quantized column vector. </br>
+	 * Every row gets multiplied with x as an integer dot product and scaled back afterwards.
+	 * Rows get computed in parallel if the matrix is big enough.
+	 * @param x - the quantized vector with as many values as this matrix has columns
+	 * @param xScale - the scale of x
+	 * @param bias - a column vector with as many rows as this matrix, or null
+	 * @param func - the function applied to the elements of the result, or null
+	 * @param result - a column vector with as many rows as this matrix which gets overwritten
+	 * @return - the result vector
+	 * @throws IllegalArgumentException if the sizes dont match
+	 */
+	public Matrix mulAdd(byte[] x, double xScale, Matrix bias, DoubleArrayFunction func, Matrix result) {
+
+		if(x.length < this.columns) throw new IllegalArgumentException("Vector must have " + this.columns + " values");
+		if(result.getRows() != this.rows || result.getColumns() != 1) throw new IllegalArgumentException("Result must be a " + this.rows + "x1 matrix");
+		if(bias != null && (bias.getColumns() != 1 || bias.getRows() != this.rows)) throw new IllegalArgumentException("Bias must be a " + this.rows + "x1 matrix");
+
+		if(Gemm.parallel(this.rows, 1, this.columns))
+			Gemm.split(this.rows, (from, to) -> this.rows(x, xScale, bias, result, from, to));
+		else
+			this.rows(x, xScale, bias, result, 0, this.rows);
+
+		if(func != null)
+			result.apply(func);
+
+		return result;
+	}
+
+	private void rows(byte[] x, double xScale, Matrix bias, Matrix result, int from, int to) {
+
+		double[] r = result.data();
+		for(int i = from; i < to; i++) {
+			int sum = OPS.dot(this.data, i*this.columns, x, 0, this.columns);
+			double value = sum * this.scales[i] * xScale;
+			r[result.getOffset() + i*result.getStride()] = bias == null ? value : value + bias.get(i, 0);
+		}
+	}
+
+	/**
+	 * Converts the matrix back into doubles, every value is get(i, j) * getScale(i)
+	 * @return - a new matrix
+	 */
+	public Matrix toMatrix() {
+
+		Matrix m = new Matrix(this.rows, this.columns);
+		for(int i = 0; i < this.rows; i++)
+			for(int j = 0; j < this.columns; j++)
+				m.set(i, j, this.data[i*this.columns + j] * this.scales[i]);
+
+		return m;
+	}
+
+	/**
+	 * Returns the quantized value, multiply it with {@link #getScale(int)} of its row to get the real value
+	 */
+	public byte get(int row, int column) {
+		return this.data[row*this.columns + column];
+	}
+
+	public double getScale(int row) {
+		return this.scales[row];
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getColumns() {
+		return this.columns;
+	}
+}
@@ -0,0 +1,82 @@
+package schiemannjeremy.linearalgebra;
+
+/**
+ * The backend built on the methods of {@link Matrix}: tiled and parallel products and the loops of
+ * the Vector API if it is available. This is the default backend.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class ReferenceBackend implements LinearAlgebraBackend {
+
+	public static final String NAME = "reference";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public Matrix mul(Matrix a, Matrix b, Matrix result) {
+		return Matrix.mul(a, b, result);
+	}
+
+	@Override
+	public Matrix mulTransposeA(Matrix a, Matrix b, Matrix result) {
+		return Matrix.mulTransposeA(a, b, result);
+	}
+
+	@Override
+	public Matrix mulTransposeB(Matrix a, Matrix b, Matrix result) {
+		return Matrix.mulTransposeB(a, b, result);
+	}
+
+	@Override
+	public Matrix mulAdd(Matrix a, Matrix b, Matrix bias, DoubleArrayFunction func, Matrix result) {
+		return Matrix.mulAdd(a, b, bias, func, result);
+	}
+
+	@Override
+	public void addMulTransposeB(Matrix c, Matrix a, Matrix b, double scale) {
+		c.addMulTransposeB(a, b, scale);
+	}
+
+	@Override
+	public void axpy(double alpha, Matrix x, Matrix y) {
+		y.addScaled(x, alpha);
+	}
+
+	@Override
+	public void add(Matrix y, Matrix x) {
+		y.add(x);
+	}
+
+	@Override
+	public void sub(Matrix y, Matrix x) {
+		y.sub(x);
+	}
+
+	@Override
+	public void hadamardProduct(Matrix y, Matrix x) {
+		y.hadamardProduct(x);
+	}
+
+	@Override
+	public void scale(Matrix y, double d) {
+		y.mul(d);
+	}
+
+	@Override
+	public void addRowSums(Matrix y, Matrix x) {
+		y.addRowSums(x);
+	}
+
+	@Override
+	public void apply(Matrix m, DoubleArrayFunction func) {
+		m.apply(func);
+	}
+
+	@Override
+	public String toString() {
+		return NAME;
+	}
+}
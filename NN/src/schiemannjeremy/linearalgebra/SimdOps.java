@@ -0,0 +1,397 @@
+package schiemannjeremy.linearalgebra;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link VectorOps} on top of the Vector API, every loop processes as many doubles at once as the CPU supports
+ * and finishes the remainder with scalar code. </br>
+ * Only gets loaded by {@link VectorOps.Loader} when the module jdk.incubator.vector is available,
+ * compiling this class needs <code>--add-modules jdk.incubator.vector</code>. </br>
+ * Sums get added up in a different order than in {@link ScalarOps}, so results can differ in the last bits.
+ * @author Jeremy Schiemann
+ *
+ */
+final class SimdOps implements VectorOps {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	/** Same vector size, twice as many lanes */
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	private static final int FLOAT_LANES = FLOATS.length();
+
+	/** Bytes get widened to ints, so a byte vector holds as many lanes as an int vector, a quarter of its size */
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Byte> BYTES = INTS.vectorBitSize() >= 256 ? VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.vectorBitSize() / 4)) : null;
+	private static final int BYTE_LANES = INTS.length();
+
+	@Override
+	public double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+
+		DoubleVector s0 = DoubleVector.zero(SPECIES);
+		DoubleVector s1 = DoubleVector.zero(SPECIES);
+
+		//two accumulators, so one addition doesnt have to wait for the previous one
+		int i = 0;
+		for(; i + 2*LANES <= len; i += 2*LANES) {
+			s0 = s0.add(DoubleVector.fromArray(SPECIES, a, aOff+i).mul(DoubleVector.fromArray(SPECIES, b, bOff+i)));
+			s1 = s1.add(DoubleVector.fromArray(SPECIES, a, aOff+i+LANES).mul(DoubleVector.fromArray(SPECIES, b, bOff+i+LANES)));
+		}
+		for(; i + LANES <= len; i += LANES)
+			s0 = s0.add(DoubleVector.fromArray(SPECIES, a, aOff+i).mul(DoubleVector.fromArray(SPECIES, b, bOff+i)));
+
+		double s = s0.add(s1).reduceLanes(VectorOperators.ADD);
+		for(; i < len; i++)
+			s += a[aOff+i] * b[bOff+i];
+
+		return s;
+	}
+
+	@Override
+	public double dot(ByteBuffer a, int aByte, double[] b, int bOff, int len) {
+
+		DoubleVector s0 = DoubleVector.zero(SPECIES);
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			s0 = s0.add(DoubleVector.fromByteBuffer(SPECIES, a, aByte + 8*i, ByteOrder.LITTLE_ENDIAN).mul(DoubleVector.fromArray(SPECIES, b, bOff+i)));
+
+		double s = s0.reduceLanes(VectorOperators.ADD);
+		for(; i < len; i++)
+			s += a.getDouble(aByte + 8*i) * b[bOff+i];
+
+		return s;
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int len) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, y, yOff+i).add(DoubleVector.fromArray(SPECIES, x, xOff+i).mul(alpha)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] += alpha * x[xOff+i];
+	}
+
+	@Override
+	public void axpy4(double x0, double x1, double x2, double x3, double[] b, int bOff, double[] c, int c0, int c1, int c2, int c3, int len) {
+
+		int j = 0;
+		for(; j + LANES <= len; j += LANES) {
+			DoubleVector y = DoubleVector.fromArray(SPECIES, b, bOff+j);
+			DoubleVector.fromArray(SPECIES, c, c0+j).add(y.mul(x0)).intoArray(c, c0+j);
+			DoubleVector.fromArray(SPECIES, c, c1+j).add(y.mul(x1)).intoArray(c, c1+j);
+			DoubleVector.fromArray(SPECIES, c, c2+j).add(y.mul(x2)).intoArray(c, c2+j);
+			DoubleVector.fromArray(SPECIES, c, c3+j).add(y.mul(x3)).intoArray(c, c3+j);
+		}
+		for(; j < len; j++) {
+			double y = b[bOff+j];
+			c[c0+j] += x0 * y;
+			c[c1+j] += x1 * y;
+			c[c2+j] += x2 * y;
+			c[c3+j] += x3 * y;
+		}
+	}
+
+	@Override
+	public void add(double[] y, int yOff, double[] x, int xOff, int len) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, y, yOff+i).add(DoubleVector.fromArray(SPECIES, x, xOff+i)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] += x[xOff+i];
+	}
+
+	@Override
+	public void sub(double[] y, int yOff, double[] x, int xOff, int len) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, y, yOff+i).sub(DoubleVector.fromArray(SPECIES, x, xOff+i)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] -= x[xOff+i];
+	}
+
+	@Override
+	public void mul(double[] y, int yOff, double[] x, int xOff, int len) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, y, yOff+i).mul(DoubleVector.fromArray(SPECIES, x, xOff+i)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] *= x[xOff+i];
+	}
+
+	@Override
+	public void add(double[] y, int yOff, int len, double d) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, y, yOff+i).add(d).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] += d;
+	}
+
+	@Override
+	public void scale(double[] y, int yOff, int len, double d) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, y, yOff+i).mul(d).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] *= d;
+	}
+
+	@Override
+	public float dot(float[] a, int aOff, float[] b, int bOff, int len) {
+
+		FloatVector s0 = FloatVector.zero(FLOATS);
+		FloatVector s1 = FloatVector.zero(FLOATS);
+
+		int i = 0;
+		for(; i + 2*FLOAT_LANES <= len; i += 2*FLOAT_LANES) {
+			s0 = s0.add(FloatVector.fromArray(FLOATS, a, aOff+i).mul(FloatVector.fromArray(FLOATS, b, bOff+i)));
+			s1 = s1.add(FloatVector.fromArray(FLOATS, a, aOff+i+FLOAT_LANES).mul(FloatVector.fromArray(FLOATS, b, bOff+i+FLOAT_LANES)));
+		}
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			s0 = s0.add(FloatVector.fromArray(FLOATS, a, aOff+i).mul(FloatVector.fromArray(FLOATS, b, bOff+i)));
+
+		float s = s0.add(s1).reduceLanes(VectorOperators.ADD);
+		for(; i < len; i++)
+			s += a[aOff+i] * b[bOff+i];
+
+		return s;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xOff, float[] y, int yOff, int len) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			FloatVector.fromArray(FLOATS, y, yOff+i).add(FloatVector.fromArray(FLOATS, x, xOff+i).mul(alpha)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] += alpha * x[xOff+i];
+	}
+
+	@Override
+	public void axpy4(float x0, float x1, float x2, float x3, float[] b, int bOff, float[] c, int c0, int c1, int c2, int c3, int len) {
+
+		int j = 0;
+		for(; j + FLOAT_LANES <= len; j += FLOAT_LANES) {
+			FloatVector y = FloatVector.fromArray(FLOATS, b, bOff+j);
+			FloatVector.fromArray(FLOATS, c, c0+j).add(y.mul(x0)).intoArray(c, c0+j);
+			FloatVector.fromArray(FLOATS, c, c1+j).add(y.mul(x1)).intoArray(c, c1+j);
+			FloatVector.fromArray(FLOATS, c, c2+j).add(y.mul(x2)).intoArray(c, c2+j);
+			FloatVector.fromArray(FLOATS, c, c3+j).add(y.mul(x3)).intoArray(c, c3+j);
+		}
+		for(; j < len; j++) {
+			float y = b[bOff+j];
+			c[c0+j] += x0 * y;
+			c[c1+j] += x1 * y;
+			c[c2+j] += x2 * y;
+			c[c3+j] += x3 * y;
+		}
+	}
+
+	@Override
+	public void add(float[] y, int yOff, float[] x, int xOff, int len) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			FloatVector.fromArray(FLOATS, y, yOff+i).add(FloatVector.fromArray(FLOATS, x, xOff+i)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] += x[xOff+i];
+	}
+
+	@Override
+	public void sub(float[] y, int yOff, float[] x, int xOff, int len) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			FloatVector.fromArray(FLOATS, y, yOff+i).sub(FloatVector.fromArray(FLOATS, x, xOff+i)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] -= x[xOff+i];
+	}
+
+	@Override
+	public void mul(float[] y, int yOff, float[] x, int xOff, int len) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			FloatVector.fromArray(FLOATS, y, yOff+i).mul(FloatVector.fromArray(FLOATS, x, xOff+i)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] *= x[xOff+i];
+	}
+
+	@Override
+	public void scale(float[] y, int yOff, int len, float d) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			FloatVector.fromArray(FLOATS, y, yOff+i).mul(d).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] *= d;
+	}
+
+	@Override
+	public int dot(byte[] a, int aOff, byte[] b, int bOff, int len) {
+
+		int i = 0;
+		int s = 0;
+
+		//a quarter of a vector smaller than 256 bits is no byte vector shape
+		if(BYTES != null) {
+			IntVector s0 = IntVector.zero(INTS);
+			for(; i + BYTE_LANES <= len; i += BYTE_LANES) {
+				IntVector x = (IntVector)ByteVector.fromArray(BYTES, a, aOff+i).castShape(INTS, 0);
+				IntVector y = (IntVector)ByteVector.fromArray(BYTES, b, bOff+i).castShape(INTS, 0);
+				s0 = s0.add(x.mul(y));
+			}
+			s = s0.reduceLanes(VectorOperators.ADD);
+		}
+
+		for(; i < len; i++)
+			s += a[aOff+i] * b[bOff+i];
+
+		return s;
+	}
+
+	@Override
+	public void sigmoid(double[] x, int xOff, double[] y, int yOff, int len) {
+
+		DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			one.div(DoubleVector.fromArray(SPECIES, x, xOff+i).neg().lanewise(VectorOperators.EXP).add(1.0)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] = 1.0 / (1.0 + Math.exp(-x[xOff+i]));
+	}
+
+	@Override
+	public void tanh(double[] x, int xOff, double[] y, int yOff, int len) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES)
+			DoubleVector.fromArray(SPECIES, x, xOff+i).lanewise(VectorOperators.TANH).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] = ScalarOps.tanh(x[xOff+i]);
+	}
+
+	@Override
+	public void sigmoid(float[] x, int xOff, float[] y, int yOff, int len) {
+
+		FloatVector one = FloatVector.broadcast(FLOATS, 1.0f);
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			one.div(FloatVector.fromArray(FLOATS, x, xOff+i).neg().lanewise(VectorOperators.EXP).add(1.0f)).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] = (float)(1.0 / (1.0 + Math.exp(-x[xOff+i])));
+	}
+
+	@Override
+	public void tanh(float[] x, int xOff, float[] y, int yOff, int len) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES)
+			FloatVector.fromArray(FLOATS, x, xOff+i).lanewise(VectorOperators.TANH).intoArray(y, yOff+i);
+		for(; i < len; i++)
+			y[yOff+i] = (float)ScalarOps.tanh(x[xOff+i]);
+	}
+
+	@Override
+	public void rmsProp(double[] p, int pOff, double[] g, int gOff, double[] s, int sOff, int len, double decay, double rate, double eps) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES) {
+			DoubleVector d = DoubleVector.fromArray(SPECIES, g, gOff+i);
+			DoubleVector v = DoubleVector.fromArray(SPECIES, s, sOff+i).mul(decay).add(d.mul(d).mul(1.0 - decay));
+			v.intoArray(s, sOff+i);
+			DoubleVector.fromArray(SPECIES, p, pOff+i).add(d.mul(rate).div(v.sqrt().add(eps))).intoArray(p, pOff+i);
+		}
+		for(; i < len; i++) {
+			double d = g[gOff+i];
+			double v = decay * s[sOff+i] + (1.0 - decay) * d * d;
+			s[sOff+i] = v;
+			p[pOff+i] += rate * d / (Math.sqrt(v) + eps);
+		}
+	}
+
+	@Override
+	public void adam(double[] p, int pOff, double[] g, int gOff, double[] m, int mOff, double[] v, int vOff, int len, double beta1, double beta2, double rate, double eps) {
+
+		int i = 0;
+		for(; i + LANES <= len; i += LANES) {
+			DoubleVector d = DoubleVector.fromArray(SPECIES, g, gOff+i);
+			DoubleVector m1 = DoubleVector.fromArray(SPECIES, m, mOff+i).mul(beta1).add(d.mul(1.0 - beta1));
+			DoubleVector v1 = DoubleVector.fromArray(SPECIES, v, vOff+i).mul(beta2).add(d.mul(d).mul(1.0 - beta2));
+			m1.intoArray(m, mOff+i);
+			v1.intoArray(v, vOff+i);
+			DoubleVector.fromArray(SPECIES, p, pOff+i).add(m1.mul(rate).div(v1.sqrt().add(eps))).intoArray(p, pOff+i);
+		}
+		for(; i < len; i++) {
+			double d = g[gOff+i];
+			double m1 = beta1 * m[mOff+i] + (1.0 - beta1) * d;
+			double v1 = beta2 * v[vOff+i] + (1.0 - beta2) * d * d;
+			m[mOff+i] = m1;
+			v[vOff+i] = v1;
+			p[pOff+i] += rate * m1 / (Math.sqrt(v1) + eps);
+		}
+	}
+
+	@Override
+	public void rmsProp(float[] p, int pOff, float[] g, int gOff, float[] s, int sOff, int len, float decay, float rate, float eps) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES) {
+			FloatVector d = FloatVector.fromArray(FLOATS, g, gOff+i);
+			FloatVector v = FloatVector.fromArray(FLOATS, s, sOff+i).mul(decay).add(d.mul(d).mul(1.0f - decay));
+			v.intoArray(s, sOff+i);
+			FloatVector.fromArray(FLOATS, p, pOff+i).add(d.mul(rate).div(v.sqrt().add(eps))).intoArray(p, pOff+i);
+		}
+		for(; i < len; i++) {
+			float d = g[gOff+i];
+			float v = decay * s[sOff+i] + (1.0f - decay) * d * d;
+			s[sOff+i] = v;
+			p[pOff+i] += rate * d / ((float)Math.sqrt(v) + eps);
+		}
+	}
+
+	@Override
+	public void adam(float[] p, int pOff, float[] g, int gOff, float[] m, int mOff, float[] v, int vOff, int len, float beta1, float beta2, float rate, float eps) {
+
+		int i = 0;
+		for(; i + FLOAT_LANES <= len; i += FLOAT_LANES) {
+			FloatVector d = FloatVector.fromArray(FLOATS, g, gOff+i);
+			FloatVector m1 = FloatVector.fromArray(FLOATS, m, mOff+i).mul(beta1).add(d.mul(1.0f - beta1));
+			FloatVector v1 = FloatVector.fromArray(FLOATS, v, vOff+i).mul(beta2).add(d.mul(d).mul(1.0f - beta2));
+			m1.intoArray(m, mOff+i);
+			v1.intoArray(v, vOff+i);
+			FloatVector.fromArray(FLOATS, p, pOff+i).add(m1.mul(rate).div(v1.sqrt().add(eps))).intoArray(p, pOff+i);
+		}
+		for(; i < len; i++) {
+			float d = g[gOff+i];
+			float m1 = beta1 * m[mOff+i] + (1.0f - beta1) * d;
+			float v1 = beta2 * v[vOff+i] + (1.0f - beta2) * d * d;
+			m[mOff+i] = m1;
+			v[vOff+i] = v1;
+			p[pOff+i] += rate * m1 / ((float)Math.sqrt(v1) + eps);
+		}
+	}
+
+	@Override
+	public String name() {
+		return "simd-" + SPECIES.vectorBitSize();
+	}
+}
@@ -0,0 +1,172 @@
+package schiemannjeremy.linearalgebra;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The innermost loops of {@link Matrix} and {@link Gemm} on contiguous ranges of arrays. </br>
+ * {@link #INSTANCE} is picked once when the class gets loaded: the SIMD implementation {@link SimdOps} if the
+ * module jdk.incubator.vector is available (run with <code>--add-modules jdk.incubator.vector</code>),
+ * otherwise the plain loops of {@link ScalarOps}. The system property <code>schiemannjeremy.simd=false</code> forces the plain loops. </br>
+ * Because INSTANCE is a constant the JIT inlines the calls, as if the loops were written where they get called.
+ * @author Jeremy Schiemann
+ *
+ */
+interface VectorOps {
+
+	VectorOps INSTANCE = Loader.load();
+
+	/**
+	 * @return - the sum of a[aOff+i] * b[bOff+i] for i in [0, len)
+	 */
+	double dot(double[] a, int aOff, double[] b, int bOff, int len);
+
+	/**
+	 * Like {@link #dot(double[], int, double[], int, int)} with a read from doubles in a little-endian buffer, e.g. off-heap or memory-mapped
+	 * @param aByte - byte index of the first double in a
+	 * @return - the sum of a.getDouble(aByte + 8*i) * b[bOff+i] for i in [0, len)
+	 */
+	double dot(ByteBuffer a, int aByte, double[] b, int bOff, int len);
+
+	/**
+	 * y[yOff+i] += alpha * x[xOff+i] for i in [0, len)
+	 */
+	void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int len);
+
+	/**
+	 * Adds x0, x1, x2 and x3 times the same range of b to four ranges of c, every value of b gets loaded once for all four. </br>
+	 * c[cN+j] += xN * b[bOff+j] for j in [0, len)
+	 */
+	void axpy4(double x0, double x1, double x2, double x3, double[] b, int bOff, double[] c, int c0, int c1, int c2, int c3, int len);
+
+	/**
+	 * y[yOff+i] += x[xOff+i] for i in [0, len)
+	 */
+	void add(double[] y, int yOff, double[] x, int xOff, int len);
+
+	/**
+	 * y[yOff+i] -= x[xOff+i] for i in [0, len)
+	 */
+	void sub(double[] y, int yOff, double[] x, int xOff, int len);
+
+	/**
+	 * y[yOff+i] *= x[xOff+i] for i in [0, len)
+	 */
+	void mul(double[] y, int yOff, double[] x, int xOff, int len);
+
+	/**
+	 * y[yOff+i] += d for i in [0, len)
+	 */
+	void add(double[] y, int yOff, int len, double d);
+
+	/**
+	 * y[yOff+i] *= d for i in [0, len)
+	 */
+	void scale(double[] y, int yOff, int len, double d);
+
+	/**
+	 * The float version of {@link #dot(double[], int, double[], int, int)}, the sum is kept as float
+	 */
+	float dot(float[] a, int aOff, float[] b, int bOff, int len);
+
+	/**
+	 * The float version of {@link #axpy(double, double[], int, double[], int, int)}
+	 */
+	void axpy(float alpha, float[] x, int xOff, float[] y, int yOff, int len);
+
+	/**
+	 * The float version of {@link #axpy4(double, double, double, double, double[], int, double[], int, int, int, int, int)}
+	 */
+	void axpy4(float x0, float x1, float x2, float x3, float[] b, int bOff, float[] c, int c0, int c1, int c2, int c3, int len);
+
+	/**
+	 * y[yOff+i] += x[xOff+i] for i in [0, len)
+	 */
+	void add(float[] y, int yOff, float[] x, int xOff, int len);
+
+	/**
+	 * y[yOff+i] -= x[xOff+i] for i in [0, len)
+	 */
+	void sub(float[] y, int yOff, float[] x, int xOff, int len);
+
+	/**
+	 * y[yOff+i] *= x[xOff+i] for i in [0, len)
+	 */
+	void mul(float[] y, int yOff, float[] x, int xOff, int len);
+
+	/**
+	 * y[yOff+i] *= d for i in [0, len)
+	 */
+	void scale(float[] y, int yOff, int len, float d);
+
+	/**
+	 * Integer dot product of signed bytes, the products get summed up as ints
+	 * @return - the sum of a[aOff+i] * b[bOff+i] for i in [0, len)
+	 */
+	int dot(byte[] a, int aOff, byte[] b, int bOff, int len);
+
+	/**
+	 * y[yOff+i] = 1 / (1 + e^-x[xOff+i]) for i in [0, len), x and y can be the same array
+	 */
+	void sigmoid(double[] x, int xOff, double[] y, int yOff, int len);
+
+	/**
+	 * y[yOff+i] = tanh(x[xOff+i]) for i in [0, len), x and y can be the same array
+	 */
+	void tanh(double[] x, int xOff, double[] y, int yOff, int len);
+
+	/**
+	 * The float version of {@link #sigmoid(double[], int, double[], int, int)}
+	 */
+	void sigmoid(float[] x, int xOff, float[] y, int yOff, int len);
+
+	/**
+	 * The float version of {@link #tanh(double[], int, double[], int, int)}
+	 */
+	void tanh(float[] x, int xOff, float[] y, int yOff, int len);
+
+	/**
+	 * One RMSProp step over a range of parameters in a single pass, for i in [0, len): </br>
+	 * s[sOff+i] = decay * s[sOff+i] + (1 - decay) * g[gOff+i]^2, p[pOff+i] += rate * g[gOff+i] / (sqrt(s[sOff+i]) + eps)
+	 */
+	void rmsProp(double[] p, int pOff, double[] g, int gOff, double[] s, int sOff, int len, double decay, double rate, double eps);
+
+	/**
+	 * One Adam step over a range of parameters in a single pass, for i in [0, len): </br>
+	 * m[mOff+i] = beta1 * m[mOff+i] + (1 - beta1) * g[gOff+i], v[vOff+i] = beta2 * v[vOff+i] + (1 - beta2) * g[gOff+i]^2, </br>
+	 * p[pOff+i] += rate * m[mOff+i] / (sqrt(v[vOff+i]) + eps)
+	 */
+	void adam(double[] p, int pOff, double[] g, int gOff, double[] m, int mOff, double[] v, int vOff, int len, double beta1, double beta2, double rate, double eps);
+
+	/**
+	 * The float version of {@link #rmsProp(double[], int, double[], int, double[], int, int, double, double, double)}
+	 */
+	void rmsProp(float[] p, int pOff, float[] g, int gOff, float[] s, int sOff, int len, float decay, float rate, float eps);
+
+	/**
+	 * The float version of {@link #adam(double[], int, double[], int, double[], int, double[], int, int, double, double, double, double)}
+	 */
+	void adam(float[] p, int pOff, float[] g, int gOff, float[] m, int mOff, float[] v, int vOff, int len, float beta1, float beta2, float rate, float eps);
+
+	/**
+	 * @return - name of the implementation
+	 */
+	String name();
+
+	final class Loader {
+
+		private Loader() {}
+
+		static VectorOps load() {
+
+			if("false".equalsIgnoreCase(System.getProperty("schiemannjeremy.simd"))) return new ScalarOps();
+			if(!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return new ScalarOps();
+
+			//loaded by name, so the Vector API classes are only touched when the module is there
+			try {
+				return (VectorOps)Class.forName("schiemannjeremy.linearalgebra.SimdOps").getDeclaredConstructor().newInstance();
+			}catch (ReflectiveOperationException | LinkageError e) {
+				return new ScalarOps();
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package schiemannjeremy.nn;
+
+import schiemannjeremy.linearalgebra.DoubleArrayFunction;
+import schiemannjeremy.linearalgebra.FloatArrayFunction;
+
+/**
+ * The activation function of one layer, resolved once into the array functions the forward and backward pass call. </br>
+ * Networks keep one per layer instead of looking the function up for every layer of every pass.
+ * The built-in functions get array functions of their own class which call the function as a constant,
+ * so the JIT inlines their loops no matter how many different functions the layers of a network use.
+ * @author Jeremy Schiemann
+ *
+ */
+final class Activation {
+
+	final ActivationFunction function;
+
+	/** replaces a range of an array with the function of it, from {@link ActivationFunctions#kernel(ActivationFunction)} */
+	final DoubleArrayFunction kernel;
+
+	final FloatArrayFunction floatKernel;
+
+	/**
+	 * replaces a range of outputs or inputs of the function with the derivative, depending on {@link #derivativeOfOutputs},
+	 * null if the function has no loop for it and {@link ActivationFunction#derivative(double[], double[], double[], int)} has to be called
+	 */
+	final DoubleArrayFunction derivative;
+
+	final FloatArrayFunction floatDerivative;
+
+	/** true if the derivatives get calculated from the outputs of the function, so the inputs dont have to be kept */
+	final boolean derivativeOfOutputs;
+
+	Activation(ActivationFunction function) {
+		this.function = function;
+		this.kernel = ActivationFunctions.kernel(function);
+		this.floatKernel = ActivationFunctions.floatKernel(function);
+		this.derivative = ActivationFunctions.derivative(function);
+		this.floatDerivative = ActivationFunctions.floatDerivative(function);
+		this.derivativeOfOutputs = ActivationFunctions.derivativeOfOutputs(function);
+	}
+
+	/**
+	 * Resolves the activation function of every layer, layers with the same function share one instance
+	 * @param functions - one activation function per layer except the input layer
+	 * @return - one activation per layer except the input layer
+	 */
+	static Activation[] of(ActivationFunction[] functions) {
+
+		Activation[] activations = new Activation[functions.length];
+		for(int i = 0; i < functions.length; i++) {
+			for(int j = 0; j < i && activations[i] == null; j++)
+				if(functions[j] == functions[i])
+					activations[i] = activations[j];
+
+			if(activations[i] == null)
+				activations[i] = new Activation(functions[i]);
+		}
+
+		return activations;
+	}
+
+	/**
+	 * Returns the same activation function for every one of the given amount of layers
+	 */
+	static ActivationFunction[] uniform(ActivationFunction function, int layers) {
+
+		ActivationFunction[] functions = new ActivationFunction[layers];
+		for(int i = 0; i < layers; i++)
+			functions[i] = function;
+
+		return functions;
+	}
+}
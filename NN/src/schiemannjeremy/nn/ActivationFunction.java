@@ -1,208 +1,351 @@
-package schiemannjeremy.nn;
-
-import java.io.Serializable;
-
-public interface ActivationFunction extends Serializable{
-	
-	public static final ActivationFunction IDENTITY = new ActivationFunction(){
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = 343131331098998810L;
-
-		@Override
-		public double function(double x) {
-			return x;
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return 1.0;
-		}
-	};
-	
-	public static final ActivationFunction BINARY_STEP = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -4703112928165586507L;
-
-		@Override
-		public double function(double x) {
-			return x < 0.0 ? 0.0 : 1.0;
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return y != 0.0 ? 0.0 : -1000.0;
-		}
-	};
-	
-	public static final ActivationFunction SIGMOID = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = 7302154481222655379L;
-
-		@Override
-		public double function(double x) {
-			return 1.0 / (1.0 + Math.exp(-x));
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			double f = 1.0 / (1.0 + Math.exp(-y));
-			return f * (1.0 - f);
-		}
-	};
-	
-	public static final ActivationFunction TAN_H = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -3485568832012538690L;
-
-		@Override
-		public double function(double x) {
-			return Math.tanh(x);
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return 1.0 - Math.pow(Math.tanh(y), 2.0);
-		}
-	};
-	
-	public static final ActivationFunction ARC_TAN = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -3751083858351644294L;
-
-		@Override
-		public double function(double x) {
-			return Math.atan(x);
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return 1.0 / (Math.pow(y, 2.0)+1.0);
-		}
-	};
-	
-	public static final ActivationFunction SOFTSIGN = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = 171814538462083654L;
-
-		@Override
-		public double function(double x) {
-			return x / (1.0 + Math.abs(x));
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return y / Math.pow((1.0 + Math.abs(y)), 2.0);
-		}
-	};
-	
-	public static final ActivationFunction RELU = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -6893562610973122789L;
-
-		@Override
-		public double function(double x) {
-			return x < 0.0 ? 0.0 : x; 
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return y < 0.0 ? 0.0 : 1.0;
-		}
-	};
-	
-	public static final ActivationFunction LEAKY_RELU = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = 1628466116427349330L;
-
-		@Override
-		public double function(double x) {
-			return x < 0.0 ? 0.01*x : x; 
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return y < 0.0 ? 0.01 : 1.0;
-		}
-	};
-	
-	public static final ActivationFunction SINUSOID = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -8016274241633498862L;
-
-		@Override
-		public double function(double x) {
-			return Math.sin(x);
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return Math.cos(y);
-		}
-	};
-	
-	public static final ActivationFunction SINC = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -2831356342516587053L;
-
-		@Override
-		public double function(double x) {
-			return x == 0.0 ? 1.0 : (Math.sin(x) / x);
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return y == 0.0 ? 0.0 : ((Math.cos(y) / y) - (Math.sin(y) / Math.pow(y, 2.0)));
-		}
-	};
-	
-	public static final ActivationFunction GAUSSIAN = new ActivationFunction() {
-		
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -7857204655108665839L;
-
-		@Override
-		public double function(double x) {
-			return Math.exp(-Math.pow(x, 2.0));
-		}
-		
-		@Override
-		public double derivatedFunction(double y) {
-			return -2.0*y * Math.exp(-Math.pow(y, 2.0));
-		}
-	};
-	
-
-	public double function(double x);
-	public double derivatedFunction(double y);
-}
+package schiemannjeremy.nn;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import schiemannjeremy.linearalgebra.ArrayMath;
+
+public interface ActivationFunction extends Serializable{
+	
+	public static final ActivationFunction IDENTITY = new ActivationFunction(){
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 343131331098998810L;
+
+		@Override
+		public double function(double x) {
+			return x;
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return 1.0;
+		}
+		
+		@Override
+		public void apply(double[] in, double[] out, int from, int to) {
+			System.arraycopy(in, from, out, from, to-from);
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			Arrays.fill(out, from, to, 1.0);
+		}
+	};
+	
+	public static final ActivationFunction BINARY_STEP = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -4703112928165586507L;
+
+		@Override
+		public double function(double x) {
+			return x < 0.0 ? 0.0 : 1.0;
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return y != 0.0 ? 0.0 : -1000.0;
+		}
+	};
+	
+	public static final ActivationFunction SIGMOID = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 7302154481222655379L;
+
+		@Override
+		public double function(double x) {
+			return 1.0 / (1.0 + Math.exp(-x));
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			double f = 1.0 / (1.0 + Math.exp(-y));
+			return f * (1.0 - f);
+		}
+		
+		@Override
+		public void apply(double[] in, double[] out, int from, int to) {
+			ArrayMath.sigmoid(in, out, from, to);
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = y[i] * (1.0 - y[i]);
+		}
+	};
+	
+	public static final ActivationFunction TAN_H = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -3485568832012538690L;
+
+		@Override
+		public double function(double x) {
+			return Math.tanh(x);
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			double t = Math.tanh(y);
+			return 1.0 - t*t;
+		}
+		
+		@Override
+		public void apply(double[] in, double[] out, int from, int to) {
+			ArrayMath.tanh(in, out, from, to);
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = 1.0 - y[i]*y[i];
+		}
+	};
+	
+	public static final ActivationFunction ARC_TAN = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -3751083858351644294L;
+
+		@Override
+		public double function(double x) {
+			return Math.atan(x);
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return 1.0 / (Math.pow(y, 2.0)+1.0);
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = 1.0 / (x[i]*x[i] + 1.0);
+		}
+	};
+	
+	public static final ActivationFunction SOFTSIGN = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 171814538462083654L;
+
+		@Override
+		public double function(double x) {
+			return x / (1.0 + Math.abs(x));
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			double d = 1.0 + Math.abs(y);
+			return 1.0 / (d * d);
+		}
+		
+		@Override
+		public void apply(double[] in, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = in[i] / (1.0 + Math.abs(in[i]));
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			//1 / (1 + |x|)^2 written with y = x / (1 + |x|)
+			for(int i = from; i < to; i++) {
+				double d = 1.0 - Math.abs(y[i]);
+				out[i] = d * d;
+			}
+		}
+	};
+	
+	public static final ActivationFunction RELU = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -6893562610973122789L;
+
+		@Override
+		public double function(double x) {
+			return x < 0.0 ? 0.0 : x; 
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return y <= 0.0 ? 0.0 : 1.0;
+		}
+		
+		@Override
+		public void apply(double[] in, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = Math.max(in[i], 0.0);
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = y[i] <= 0.0 ? 0.0 : 1.0;
+		}
+	};
+	
+	public static final ActivationFunction LEAKY_RELU = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 1628466116427349330L;
+
+		@Override
+		public double function(double x) {
+			return x < 0.0 ? 0.01*x : x; 
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return y < 0.0 ? 0.01 : 1.0;
+		}
+		
+		@Override
+		public void apply(double[] in, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = in[i] < 0.0 ? 0.01*in[i] : in[i];
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = y[i] < 0.0 ? 0.01 : 1.0;
+		}
+	};
+	
+	public static final ActivationFunction SINUSOID = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -8016274241633498862L;
+
+		@Override
+		public double function(double x) {
+			return Math.sin(x);
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return Math.cos(y);
+		}
+	};
+	
+	public static final ActivationFunction SINC = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -2831356342516587053L;
+
+		@Override
+		public double function(double x) {
+			return x == 0.0 ? 1.0 : (Math.sin(x) / x);
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return y == 0.0 ? 0.0 : ((Math.cos(y) / y) - (Math.sin(y) / Math.pow(y, 2.0)));
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			//cos(x) / x - sin(x) / x^2 written with y = sin(x) / x
+			for(int i = from; i < to; i++)
+				out[i] = x[i] == 0.0 ? 0.0 : (Math.cos(x[i]) - y[i]) / x[i];
+		}
+	};
+	
+	public static final ActivationFunction GAUSSIAN = new ActivationFunction() {
+		
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = -7857204655108665839L;
+
+		@Override
+		public double function(double x) {
+			return Math.exp(-Math.pow(x, 2.0));
+		}
+		
+		@Override
+		public double derivatedFunction(double y) {
+			return -2.0*y * Math.exp(-Math.pow(y, 2.0));
+		}
+		
+		@Override
+		public void derivative(double[] x, double[] y, double[] out, int from, int to) {
+			for(int i = from; i < to; i++)
+				out[i] = -2.0*x[i] * y[i];
+		}
+	};
+	
+
+	public double function(double x);
+	public double derivatedFunction(double y);
+	
+	/**
+	 * Calculates the function of the first n values of in and writes them into out
+	 * @param in - the input values
+	 * @param out - the array the results get written to, can be in itself
+	 * @param n - the amount of values
+	 */
+	public default void apply(double[] in, double[] out, int n) {
+		this.apply(in, out, 0, n);
+	}
+	
+	/**
+	 * Calculates out[i] = function(in[i]) for every i in [from, to) </br>
+	 * The built-in functions override this with their formula written out, so there is one virtual call per array instead of one per value.
+	 * SIGMOID and TAN_H go through {@link ArrayMath}, which evaluates several values at once and can differ from {@link #function(double)} by a few ulps.
+	 * @param in - the input values
+	 * @param out - the array the results get written to, can be in itself
+	 * @param from - first index, inclusive
+	 * @param to - last index, exclusive
+	 */
+	public default void apply(double[] in, double[] out, int from, int to) {
+		for(int i = from; i < to; i++)
+			out[i] = this.function(in[i]);
+	}
+	
+	/**
+	 * Calculates the derivative of the first n values
+	 * @see #derivative(double[], double[], double[], int, int)
+	 */
+	public default void derivative(double[] x, double[] y, double[] out, int n) {
+		this.derivative(x, y, out, 0, n);
+	}
+	
+	/**
+	 * Calculates the derivative of the function at x[i] for every i in [from, to), where y[i] is the already calculated function(x[i]). </br>
+	 * Implementations use whichever is cheaper: the built-in SIGMOID uses y*(1-y), TAN_H 1-y^2 and RELU whether y is positive,
+	 * so no exponential function gets evaluated again. By default derivatedFunction(x[i]) gets called. </br>
+	 * Any of the arrays can be the same, every implementation reads x[i] and y[i] before it writes out[i].
+	 * @param x - the inputs of the function
+	 * @param y - the outputs of the function for x
+	 * @param out - the array the derivatives get written to
+	 * @param from - first index, inclusive
+	 * @param to - last index, exclusive
+	 */
+	public default void derivative(double[] x, double[] y, double[] out, int from, int to) {
+		for(int i = from; i < to; i++)
+			out[i] = this.derivatedFunction(x[i]);
+	}
+}
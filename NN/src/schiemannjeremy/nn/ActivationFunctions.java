@@ -0,0 +1,217 @@
+package schiemannjeremy.nn;
+
+import java.util.Arrays;
+
+import schiemannjeremy.linearalgebra.ArrayMath;
+import schiemannjeremy.linearalgebra.DoubleArrayFunction;
+import schiemannjeremy.linearalgebra.FloatArrayFunction;
+
+/**
+ * Numbers the activation functions built into {@link ActivationFunction}, so they can be stored by id,
+ * and turns activation functions into the array functions which get fused into the layer computation.
+ * @author Jeremy Schiemann
+ *
+ */
+final class ActivationFunctions {
+
+	/** The built-in activation functions, the index is the id. Only append to this list, never reorder it. */
+	private static final ActivationFunction[] BUILT_IN = {
+			ActivationFunction.IDENTITY,
+			ActivationFunction.BINARY_STEP,
+			ActivationFunction.SIGMOID,
+			ActivationFunction.TAN_H,
+			ActivationFunction.ARC_TAN,
+			ActivationFunction.SOFTSIGN,
+			ActivationFunction.RELU,
+			ActivationFunction.LEAKY_RELU,
+			ActivationFunction.SINUSOID,
+			ActivationFunction.SINC,
+			ActivationFunction.GAUSSIAN
+	};
+
+	private ActivationFunctions() {}
+
+	/**
+	 * Returns the id of a built-in activation function. </br>
+	 * Compares classes instead of instances, so deserialized copies of the built-in functions are recognized as well.
+	 * @param func - the activation function
+	 * @return - the id or -1 if it isnt a built-in function
+	 */
+	static int idOf(ActivationFunction func) {
+
+		for(int i = 0; i < BUILT_IN.length; i++)
+			if(BUILT_IN[i].getClass() == func.getClass())
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Returns the built-in activation function with the given id
+	 * @param id - the id
+	 * @return - the activation function or null if there is none with this id
+	 */
+	static ActivationFunction byId(int id) {
+		return id >= 0 && id < BUILT_IN.length ? BUILT_IN[id] : null;
+	}
+
+	/**
+	 * Returns a function applying func to a range of an array, for {@link schiemannjeremy.linearalgebra.Matrix#mulAdd}. </br>
+	 * Calls {@link ActivationFunction#apply(double[], double[], int, int)} in place, so the built-in functions run their own loop
+	 * instead of one call through the interface for every element. </br>
+	 * Every built-in function with an own loop gets a lambda of its own which calls the function as a constant,
+	 * so the call inside stays monomorphic even if the layers of a network use different functions.
+	 * @param func - the activation function
+	 * @return - the function
+	 */
+	static DoubleArrayFunction kernel(ActivationFunction func) {
+
+		switch(idOf(func)) {
+		case 0: //IDENTITY
+			return (v, from, to) -> {};
+		case 2: //SIGMOID
+			return (v, from, to) -> ArrayMath.sigmoid(v, v, from, to);
+		case 3: //TAN_H
+			return (v, from, to) -> ArrayMath.tanh(v, v, from, to);
+		case 5: //SOFTSIGN
+			return (v, from, to) -> ActivationFunction.SOFTSIGN.apply(v, v, from, to);
+		case 6: //RELU
+			return (v, from, to) -> ActivationFunction.RELU.apply(v, v, from, to);
+		case 7: //LEAKY_RELU
+			return (v, from, to) -> ActivationFunction.LEAKY_RELU.apply(v, v, from, to);
+		default:
+			return (v, from, to) -> func.apply(v, v, from, to);
+		}
+	}
+
+	/**
+	 * Checks if {@link #derivative(ActivationFunction)} and {@link #floatDerivative(ActivationFunction)} of the function take the outputs of the function
+	 * @param func - the activation function
+	 * @return - true if the derivative gets calculated from the outputs, false if from the inputs
+	 */
+	static boolean derivativeOfOutputs(ActivationFunction func) {
+
+		switch(idOf(func)) {
+		case 0: //IDENTITY
+		case 2: //SIGMOID
+		case 3: //TAN_H
+		case 6: //RELU
+		case 7: //LEAKY_RELU
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a function replacing a range of values with the derivative of func, for the double precision training. </br>
+	 * Like {@link #floatDerivative(ActivationFunction)} it replaces outputs or inputs of func, see {@link #derivativeOfOutputs(ActivationFunction)}.
+	 * The built-in functions with a derivative of their outputs call their own derivative loop on a constant, like {@link #kernel(ActivationFunction)}.
+	 * @param func - the activation function
+	 * @return - the function or null if func needs its inputs and outputs, then {@link ActivationFunction#derivative(double[], double[], double[], int)} has to be called
+	 */
+	static DoubleArrayFunction derivative(ActivationFunction func) {
+
+		switch(idOf(func)) {
+		case 0: //IDENTITY
+			return (v, from, to) -> ActivationFunction.IDENTITY.derivative(v, v, v, from, to);
+		case 2: //SIGMOID
+			return (v, from, to) -> ActivationFunction.SIGMOID.derivative(v, v, v, from, to);
+		case 3: //TAN_H
+			return (v, from, to) -> ActivationFunction.TAN_H.derivative(v, v, v, from, to);
+		case 5: //SOFTSIGN
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++) {
+					double d = 1.0 + Math.abs(v[i]);
+					v[i] = 1.0 / (d*d);
+				}
+			};
+		case 6: //RELU
+			return (v, from, to) -> ActivationFunction.RELU.derivative(v, v, v, from, to);
+		case 7: //LEAKY_RELU
+			return (v, from, to) -> ActivationFunction.LEAKY_RELU.derivative(v, v, v, from, to);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * The float version of {@link #kernel(ActivationFunction)}, for networks with {@link Precision#FLOAT}. </br>
+	 * Functions without an own loop get calculated in double precision and rounded to float.
+	 * @param func - the activation function
+	 * @return - the function
+	 */
+	static FloatArrayFunction floatKernel(ActivationFunction func) {
+
+		switch(idOf(func)) {
+		case 0: //IDENTITY
+			return (v, from, to) -> {};
+		case 2: //SIGMOID
+			return (v, from, to) -> ArrayMath.sigmoid(v, v, from, to);
+		case 3: //TAN_H
+			return (v, from, to) -> ArrayMath.tanh(v, v, from, to);
+		case 6: //RELU
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = v[i] < 0.0f ? 0.0f : v[i];
+			};
+		case 7: //LEAKY_RELU
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = v[i] < 0.0f ? 0.01f*v[i] : v[i];
+			};
+		default:
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = (float)func.function(v[i]);
+			};
+		}
+	}
+
+	/**
+	 * Returns a function replacing a range of values with the derivative of func, in float for networks with {@link Precision#FLOAT}. </br>
+	 * The built-in functions with a derivative which only depends on the output get their own loop and replace outputs of func,
+	 * every other function gets its derivatedFunction evaluated at the inputs of func, see {@link #derivativeOfOutputs(ActivationFunction)}.
+	 * @param func - the activation function
+	 * @return - the function
+	 */
+	static FloatArrayFunction floatDerivative(ActivationFunction func) {
+
+		switch(idOf(func)) {
+		case 0: //IDENTITY
+			return (v, from, to) -> Arrays.fill(v, from, to, 1.0f);
+		case 2: //SIGMOID
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = v[i] * (1.0f - v[i]);
+			};
+		case 3: //TAN_H
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = 1.0f - v[i]*v[i];
+			};
+		case 5: //SOFTSIGN
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++) {
+					float d = 1.0f + Math.abs(v[i]);
+					v[i] = 1.0f / (d*d);
+				}
+			};
+		case 6: //RELU
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = v[i] <= 0.0f ? 0.0f : 1.0f;
+			};
+		case 7: //LEAKY_RELU
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = v[i] < 0.0f ? 0.01f : 1.0f;
+			};
+		default:
+			return (v, from, to) -> {
+				for(int i = from; i < to; i++)
+					v[i] = (float)func.derivatedFunction(v[i]);
+			};
+		}
+	}
+}
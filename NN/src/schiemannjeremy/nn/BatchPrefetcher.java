@@ -0,0 +1,208 @@
+package schiemannjeremy.nn;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Assembles the batches of a training run from {@link TrainingData}, in the order of an {@link EpochSampler}. </br>
+ * With a depth above 0 a background thread reads the training sets and fills the next batches while the current one trains,
+ * at most depth batches ahead. The batches get reused, so after the warmup nothing gets allocated. The training thread
+ * only copies a finished batch into its workspace and never waits for reading the data, e.g. from a memory-mapped file,
+ * as long as the producer keeps up. </br>
+ * The depth is taken from the system property <code>schiemannjeremy.prefetch</code>, by default 2 or 0 on a single processor.
+ * 0 assembles the batches on the training thread.
+ * @author Jeremy Schiemann
+ *
+ */
+final class BatchPrefetcher implements AutoCloseable {
+
+	/** amount of batches assembled ahead of the training, with a single processor the producer could only take turns with the training */
+	static final int DEPTH = Math.max(0, Integer.getInteger("schiemannjeremy.prefetch", Runtime.getRuntime().availableProcessors() > 1 ? 2 : 0));
+
+	/** one producer per running training, daemon threads so they never keep the JVM alive */
+	private static final ExecutorService PRODUCERS = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "batch-prefetch");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** put into the queue by a failed producer */
+	private static final Batch FAILED = new Batch(0, 0, 0);
+
+	private final TrainingData trainingData;
+	private final EpochSampler sampler;
+	private final double[] sampleInputs;
+	private final double[] sampleTargets;
+
+	/** filled batches in the order they get trained, null without a producer */
+	private final BlockingQueue<Batch> full;
+
+	/** batches the training is done with */
+	private final BlockingQueue<Batch> free;
+
+	/** the only batch without a producer */
+	private final Batch batch;
+
+	private final Future<?> producer;
+
+	/** set by whoever comes first, the producer when it starts or {@link #close()} to keep it from starting */
+	private final AtomicBoolean claimed;
+	private final CountDownLatch finished;
+	private volatile Throwable failure;
+
+	/**
+	 * Starts assembling the given amount of batches
+	 * @param sampler - the order of the training sets, only used by the producer until {@link #close()}
+	 * @param inputs - amount of inputs per training set
+	 * @param outputs - amount of outputs per training set
+	 * @param batches - the amount of batches which get taken
+	 * @param depth - how many batches get assembled ahead, 0 assembles them in {@link #take()}
+	 */
+	BatchPrefetcher(TrainingData trainingData, EpochSampler sampler, int inputs, int outputs, int batchSize, int batches, int depth) {
+
+		this.trainingData = trainingData;
+		this.sampler = sampler;
+		this.sampleInputs = new double[inputs];
+		this.sampleTargets = new double[outputs];
+
+		if(depth <= 0) {
+			this.batch = new Batch(inputs, outputs, batchSize);
+			this.full = null;
+			this.free = null;
+			this.producer = null;
+			this.claimed = null;
+			this.finished = null;
+			return;
+		}
+
+		this.batch = null;
+		this.full = new ArrayBlockingQueue<>(depth+1);
+		this.free = new ArrayBlockingQueue<>(depth+1);
+		for(int i = 0; i <= depth; i++)
+			this.free.add(new Batch(inputs, outputs, batchSize));
+
+		this.claimed = new AtomicBoolean();
+		this.finished = new CountDownLatch(1);
+		this.producer = PRODUCERS.submit(() -> this.produce(batches));
+	}
+
+	/**
+	 * Fills the given amount of batches, runs on the producer thread
+	 */
+	private void produce(int batches) {
+
+		if(!this.claimed.compareAndSet(false, true)) return;
+
+		try {
+			for(int i = 0; i < batches; i++) {
+				Batch batch = this.free.take();
+				this.fill(batch);
+				this.full.put(batch);
+			}
+		}catch (InterruptedException e) {
+			//closed before all batches were taken
+		}catch (RuntimeException | Error e) {
+			this.failure = e;
+			this.full.offer(FAILED);
+		}finally {
+			this.finished.countDown();
+		}
+	}
+
+	/**
+	 * Reads the next training sets of the sampler into the columns of the batch
+	 */
+	private void fill(Batch batch) {
+
+		int size = batch.size;
+		for(int b = 0; b < size; b++) {
+			this.trainingData.read(this.sampler.next(), this.sampleInputs, this.sampleTargets);
+
+			for(int r = 0; r < this.sampleInputs.length; r++)
+				batch.inputs[r*size + b] = this.sampleInputs[r];
+			for(int r = 0; r < this.sampleTargets.length; r++)
+				batch.targets[r*size + b] = this.sampleTargets[r];
+		}
+	}
+
+	/**
+	 * Returns the next batch, which has to be passed to {@link #release(Batch)} once it got copied
+	 * @throws IllegalArgumentException if reading a training set failed, e.g. because it doesnt match the network
+	 */
+	Batch take() {
+
+		if(this.full == null) {
+			this.fill(this.batch);
+			return this.batch;
+		}
+
+		try {
+			Batch batch = this.full.take();
+			if(batch == FAILED) {
+				Throwable failure = this.failure;
+				if(failure instanceof RuntimeException) throw (RuntimeException)failure;
+				throw (Error)failure;
+			}
+
+			return batch;
+		}catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("training got interrupted", e);
+		}
+	}
+
+	/**
+	 * Hands the batch back to the producer for refilling
+	 */
+	void release(Batch batch) {
+
+		if(this.free != null)
+			this.free.offer(batch);
+	}
+
+	/**
+	 * Stops the producer and waits until it doesnt touch the sampler anymore
+	 */
+	@Override
+	public void close() {
+
+		if(this.producer == null) return;
+
+		this.producer.cancel(true);
+		if(this.claimed.compareAndSet(false, true)) return;
+
+		boolean interrupted = false;
+		while(true) {
+			try {
+				this.finished.await();
+				break;
+			}catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * The inputs and targets of one batch in the layout of the network matrices, one row per neuron and one column per training set
+	 */
+	static final class Batch {
+
+		final double[] inputs;
+		final double[] targets;
+		final int size;
+
+		Batch(int inputs, int outputs, int size) {
+			this.inputs = new double[inputs * size];
+			this.targets = new double[outputs * size];
+			this.size = size;
+		}
+	}
+}
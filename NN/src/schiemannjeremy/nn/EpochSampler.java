@@ -0,0 +1,101 @@
+package schiemannjeremy.nn;
+
+import java.util.SplittableRandom;
+
+/**
+ * Goes through the indices of training data in a shuffled order without replacement. </br>
+ * Every epoch visits every index exactly once, then the indices get shuffled again for the next epoch.
+ * Picking random indices with replacement instead misses about a third of the training sets in every epoch. </br>
+ * A sampler is meant to be used by one thread, {@link #split()} creates independent samplers for further threads.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class EpochSampler {
+
+	private final int[] order;
+	private final SplittableRandom random;
+	private int position;
+
+	/** how many indices were returned so far */
+	private long samples;
+
+	/**
+	 * Creates a sampler for the indices [0, size)
+	 * @param size - the amount of training sets
+	 * @param random - the random number generator for the shuffling, only used by this sampler afterwards
+	 * @throws IllegalArgumentException if the size is <= 0
+	 */
+	public EpochSampler(int size, SplittableRandom random) {
+
+		if(size <= 0) throw new IllegalArgumentException("size must be >0");
+
+		this.order = new int[size];
+		for(int i = 0; i < size; i++)
+			this.order[i] = i;
+
+		this.random = random;
+		this.position = size;
+	}
+
+	/**
+	 * Creates a sampler for the indices [0, size) which always produces the same order for the same seed
+	 * @param size - the amount of training sets
+	 * @param seed - the seed of the shuffling
+	 * @throws IllegalArgumentException if the size is <= 0
+	 */
+	public EpochSampler(int size, long seed) {
+		this(size, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Returns the next index of the current epoch, starts a new shuffled epoch when every index was returned
+	 * @return - an index in [0, size)
+	 */
+	public int next() {
+
+		if(this.position == this.order.length)
+			this.shuffle();
+
+		this.samples++;
+		return this.order[this.position++];
+	}
+
+	/**
+	 * Fisher-Yates shuffle of the whole order
+	 */
+	private void shuffle() {
+
+		int[] order = this.order;
+		for(int i = order.length-1; i > 0; i--) {
+			int j = this.random.nextInt(i+1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		this.position = 0;
+	}
+
+	/**
+	 * Creates a sampler for the same indices with a random number generator split off this one,
+	 * so both can be used on different threads
+	 * @return - the new sampler
+	 */
+	public EpochSampler split() {
+		return new EpochSampler(this.order.length, this.random.split());
+	}
+
+	/**
+	 * @return - the amount of indices
+	 */
+	public int size() {
+		return this.order.length;
+	}
+
+	/**
+	 * @return - how many epochs were completed, every index was returned that many times
+	 */
+	public long getEpochs() {
+		return this.samples / this.order.length;
+	}
+}
@@ -0,0 +1,336 @@
+package schiemannjeremy.nn;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import schiemannjeremy.linearalgebra.FloatMatrix;
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * Calculates how well a network fits training data, in parallel and without touching the network. </br>
+ * The evaluation runs on a {@link FrozenNetwork}, so it can go on while another thread trains the network the snapshot was taken from.
+ * The training data gets split into chunks of 1024 training sets which get evaluated on a {@link ForkJoinPool},
+ * every chunk feeds batches of 64 training sets through the network at once. Every thread of the pool keeps its
+ * buffers for the whole evaluation. </br>
+ * The sums of every chunk get added up in the order of the chunks, so the results dont depend on the amount of threads or
+ * on which thread evaluated which chunk: the same snapshot and data always give exactly the same numbers.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class Evaluator {
+
+	/** training sets per task, fixed so the sums dont depend on the amount of threads */
+	private static final int CHUNK = 1024;
+
+	/** training sets per forward pass, a chunk is a whole number of batches */
+	private static final int BATCH = 64;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates an evaluator which runs on the given pool
+	 * @param pool - the pool the chunks get evaluated on
+	 */
+	public Evaluator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Creates an evaluator which runs on the common ForkJoinPool
+	 */
+	public Evaluator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a snapshot of the current weights of the network, see {@link NeuralNetwork#freeze()}. </br>
+	 * To evaluate while another thread trains the network use {@link #evaluate(FrozenNetwork, TrainingData)}
+	 * with {@link NeuralNetwork#getSnapshot()} instead.
+	 * @throws IllegalArgumentException if a training set doesnt match the layers of the network
+	 */
+	public Metrics evaluate(NeuralNetwork network, TrainingData trainingData) {
+		return this.evaluate(network.freeze(), trainingData);
+	}
+
+	/**
+	 * Evaluates the snapshot on every training set of the training data
+	 * @param network - the snapshot, only read
+	 * @param trainingData - the data, only read
+	 * @return - the errors and the accuracy
+	 * @throws IllegalArgumentException if a training set doesnt match the layers of the network
+	 */
+	public Metrics evaluate(FrozenNetwork network, TrainingData trainingData) {
+
+		int size = trainingData.size();
+		int chunks = (size + CHUNK-1) / CHUNK;
+		int[] layers = network.getLayers();
+		Metrics[] partials = new Metrics[chunks];
+
+		//one set of buffers per thread of the pool, for this evaluation only
+		ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(() -> new Buffers(layers, network.getPrecision()));
+		ChunkRange range = (from, to) -> {
+			Buffers b = buffers.get();
+			for(int c = from; c < to; c++)
+				partials[c] = b.evaluate(network, trainingData, c * CHUNK, Math.min(size, (c+1) * CHUNK));
+		};
+
+		if(chunks <= 1)
+			range.evaluate(0, chunks);
+		else
+			this.pool.invoke(new ChunkTask(range, 0, chunks));
+
+		Metrics metrics = new Metrics(layers[layers.length-1]);
+		for(Metrics partial : partials)
+			metrics.add(partial);
+
+		return metrics;
+	}
+
+	/**
+	 * The buffers of one thread, the values of every layer for a batch and the targets of the batch
+	 */
+	private static final class Buffers {
+
+		private final Matrix[] layers;
+		private final FloatMatrix[] floatLayers;
+		private final double[] targets;
+		private final double[] sampleInputs;
+		private final double[] sampleTargets;
+
+		Buffers(int[] layers, Precision precision) {
+
+			this.layers = precision == Precision.DOUBLE ? new Matrix[layers.length] : null;
+			this.floatLayers = precision == Precision.FLOAT ? new FloatMatrix[layers.length] : null;
+			for(int i = 0; i < layers.length; i++) {
+				if(this.layers != null)
+					this.layers[i] = new Matrix(layers[i], BATCH);
+				else
+					this.floatLayers[i] = new FloatMatrix(layers[i], BATCH);
+			}
+
+			this.sampleInputs = new double[layers[0]];
+			this.sampleTargets = new double[layers[layers.length-1]];
+			this.targets = new double[this.sampleTargets.length * BATCH];
+		}
+
+		/**
+		 * Evaluates the training sets [from, to) in batches
+		 */
+		Metrics evaluate(FrozenNetwork network, TrainingData trainingData, int from, int to) {
+
+			Metrics metrics = new Metrics(this.sampleTargets.length);
+			double[] inputs = this.layers != null ? this.layers[0].toArray() : null;
+			float[] floatInputs = this.floatLayers != null ? this.floatLayers[0].toArray() : null;
+
+			for(int start = from; start < to; start += BATCH) {
+				int n = Math.min(BATCH, to - start);
+
+				for(int b = 0; b < n; b++) {
+					trainingData.read(start + b, this.sampleInputs, this.sampleTargets);
+
+					for(int r = 0; r < this.sampleInputs.length; r++) {
+						if(inputs != null)
+							inputs[r*BATCH + b] = this.sampleInputs[r];
+						else
+							floatInputs[r*BATCH + b] = (float)this.sampleInputs[r];
+					}
+					for(int r = 0; r < this.sampleTargets.length; r++)
+						this.targets[r*BATCH + b] = this.sampleTargets[r];
+				}
+
+				//columns of the last batch which arent used, so they hold the same values on every run
+				for(int r = 0; r < this.sampleInputs.length && n < BATCH; r++) {
+					if(inputs != null)
+						Arrays.fill(inputs, r*BATCH + n, (r+1)*BATCH, 0.0);
+					else
+						Arrays.fill(floatInputs, r*BATCH + n, (r+1)*BATCH, 0.0f);
+				}
+
+				if(inputs != null) {
+					network.feedForward(this.layers);
+					metrics.add(this.layers[this.layers.length-1].toArray(), this.targets, n);
+				}else {
+					network.feedForward(this.floatLayers);
+					metrics.add(this.floatLayers[this.floatLayers.length-1].toArray(), this.targets, n);
+				}
+			}
+
+			return metrics;
+		}
+	}
+
+	/**
+	 * Evaluates the chunks [from, to)
+	 */
+	@FunctionalInterface
+	private interface ChunkRange {
+		void evaluate(int from, int to);
+	}
+
+	private static final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6114706128795260436L;
+		private final ChunkRange range;
+		private final int from, to;
+
+		ChunkTask(ChunkRange range, int from, int to) {
+			this.range = range;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(this.to - this.from <= 1) {
+				this.range.evaluate(this.from, this.to);
+				return;
+			}
+
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new ChunkTask(this.range, this.from, mid), new ChunkTask(this.range, mid, this.to));
+		}
+	}
+
+	/**
+	 * The errors and the accuracy of a network on training data
+	 */
+	public static final class Metrics {
+
+		private final int outputs;
+		private long samples;
+		private long correct;
+
+		/** sum of the squared errors of every output of every training set */
+		private double squaredErrors;
+
+		/** sum of the root mean squared errors of every training set */
+		private double sampleErrors;
+
+		Metrics(int outputs) {
+			this.outputs = outputs;
+		}
+
+		/**
+		 * Adds the first n columns of a batch
+		 * @param predicted - the outputs of the network, one column per training set
+		 * @param targets - the expected outputs in the same layout
+		 */
+		void add(double[] predicted, double[] targets, int n) {
+
+			for(int b = 0; b < n; b++) {
+				double sum = 0.0;
+				for(int r = 0; r < this.outputs; r++) {
+					double d = targets[r*BATCH + b] - predicted[r*BATCH + b];
+					sum += d * d;
+				}
+
+				this.squaredErrors += sum;
+				this.sampleErrors += Math.sqrt(sum / this.outputs);
+				if(predictedClass(predicted, b, this.outputs) == predictedClass(targets, b, this.outputs))
+					this.correct++;
+			}
+			this.samples += n;
+		}
+
+		/**
+		 * The float version of {@link #add(double[], double[], int)}
+		 */
+		void add(float[] predicted, double[] targets, int n) {
+
+			for(int b = 0; b < n; b++) {
+				double sum = 0.0;
+				for(int r = 0; r < this.outputs; r++) {
+					double d = targets[r*BATCH + b] - predicted[r*BATCH + b];
+					sum += d * d;
+				}
+
+				this.squaredErrors += sum;
+				this.sampleErrors += Math.sqrt(sum / this.outputs);
+				if(predictedClass(predicted, b, this.outputs) == predictedClass(targets, b, this.outputs))
+					this.correct++;
+			}
+			this.samples += n;
+		}
+
+		void add(Metrics metrics) {
+			this.samples += metrics.samples;
+			this.correct += metrics.correct;
+			this.squaredErrors += metrics.squaredErrors;
+			this.sampleErrors += metrics.sampleErrors;
+		}
+
+		/**
+		 * The index of the largest output in the column, with a single output 1 if it is at least 0.5 and 0 otherwise
+		 */
+		private static int predictedClass(double[] values, int column, int outputs) {
+
+			if(outputs == 1) return values[column] >= 0.5 ? 1 : 0;
+
+			int best = 0;
+			for(int r = 1; r < outputs; r++)
+				if(values[r*BATCH + column] > values[best*BATCH + column])
+					best = r;
+
+			return best;
+		}
+
+		private static int predictedClass(float[] values, int column, int outputs) {
+
+			if(outputs == 1) return values[column] >= 0.5f ? 1 : 0;
+
+			int best = 0;
+			for(int r = 1; r < outputs; r++)
+				if(values[r*BATCH + column] > values[best*BATCH + column])
+					best = r;
+
+			return best;
+		}
+
+		/**
+		 * @return - the amount of evaluated training sets
+		 */
+		public long getSamples() {
+			return this.samples;
+		}
+
+		/**
+		 * @return - the mean of the squared errors over every output of every training set
+		 */
+		public double getMeanSquaredError() {
+			return this.squaredErrors / ((double)this.samples * this.outputs);
+		}
+
+		/**
+		 * @return - the square root of {@link #getMeanSquaredError()}
+		 */
+		public double getRootMeanSquaredError() {
+			return Math.sqrt(this.getMeanSquaredError());
+		}
+
+		/**
+		 * Returns the root mean squared error of every training set averaged over all training sets,
+		 * the error {@link NeuralNetwork#calculateError(TrainingData)} returns
+		 * @return - the mean error
+		 */
+		public double getMeanError() {
+			return this.sampleErrors / this.samples;
+		}
+
+		/**
+		 * Returns how many training sets got classified right: the largest output has to be the largest target,
+		 * with a single output both have to be on the same side of 0.5
+		 * @return - the ratio of right classifications
+		 */
+		public double getAccuracy() {
+			return (double)this.correct / this.samples;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d samples, mse %.6f, rmse %.6f, mean error %.6f, accuracy %.4f", this.samples,
+					this.getMeanSquaredError(), this.getRootMeanSquaredError(), this.getMeanError(), this.getAccuracy());
+		}
+	}
+}
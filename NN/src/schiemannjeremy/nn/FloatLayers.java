@@ -0,0 +1,252 @@
+package schiemannjeremy.nn;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import schiemannjeremy.linearalgebra.FloatMatrix;
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * The weights and biases of a network with {@link Precision#FLOAT} and the float version of its forward and backward pass. </br>
+ * Inputs and targets get rounded to float once when they are copied in, everything after that is computed in float.
+ * @author Jeremy Schiemann
+ *
+ */
+final class FloatLayers implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 8716049215323604461L;
+	final FloatMatrix[] weights;
+	final FloatMatrix[] biases;
+
+	/** buffers of the last batch size, outputs[0] holds the inputs */
+	private transient FloatMatrix[] outputs;
+	private transient FloatMatrix[] preActivations;
+	private transient FloatMatrix[] errors;
+	private transient FloatMatrix[] gradients;
+	private transient FloatMatrix targets;
+
+	/** averaged deltas and the state of an optimizer other than SGD, the state of weights i at 2*i and of biases i at 2*i+1 */
+	private transient FloatMatrix[] weightDeltas;
+	private transient FloatMatrix[] biasDeltas;
+	private transient float[][] optimizerState;
+	private transient long optimizerSteps;
+
+	private FloatLayers(FloatMatrix[] weights, FloatMatrix[] biases) {
+		this.weights = weights;
+		this.biases = biases;
+	}
+
+	/**
+	 * Creates float layers with all weights and biases 0
+	 */
+	FloatLayers(int[] layers) {
+		this(new FloatMatrix[layers.length-1], new FloatMatrix[layers.length-1]);
+
+		for(int i = 0; i < this.weights.length; i++) {
+			this.weights[i] = new FloatMatrix(layers[i+1], layers[i]);
+			this.biases[i] = new FloatMatrix(layers[i+1], 1);
+		}
+	}
+
+	/**
+	 * Rounds the given double weights and biases to floats
+	 */
+	static FloatLayers of(Matrix[] weights, Matrix[] biases) {
+
+		FloatMatrix[] w = new FloatMatrix[weights.length];
+		FloatMatrix[] b = new FloatMatrix[biases.length];
+		for(int i = 0; i < w.length; i++) {
+			w[i] = FloatMatrix.of(weights[i]);
+			b[i] = FloatMatrix.of(biases[i]);
+		}
+
+		return new FloatLayers(w, b);
+	}
+
+	/**
+	 * Creates a copy which doesnt share anything with these layers
+	 */
+	FloatLayers copy() {
+
+		FloatMatrix[] w = new FloatMatrix[this.weights.length];
+		FloatMatrix[] b = new FloatMatrix[this.biases.length];
+		for(int i = 0; i < w.length; i++) {
+			w[i] = this.weights[i].clone();
+			b[i] = this.biases[i].clone();
+		}
+
+		return new FloatLayers(w, b);
+	}
+
+	/**
+	 * The float version of {@link FrozenNetwork#feedForward}
+	 * @param layers - one column vector per layer from {@link FrozenNetwork.Workspace}
+	 */
+	void feedForward(Activation[] activations, double[] input_array, double[] output_array, FloatMatrix[] layers) {
+
+		float[] in = layers[0].toArray();
+		for(int i = 0; i < input_array.length; i++)
+			in[i] = (float)input_array[i];
+
+		this.feedForward(activations, layers);
+
+		float[] out = layers[layers.length-1].toArray();
+		for(int i = 0; i < output_array.length; i++)
+			output_array[i] = out[i];
+	}
+
+	/**
+	 * Feeds the inputs in layers[0] through every layer, works for any amount of columns
+	 */
+	void feedForward(Activation[] activations, FloatMatrix[] layers) {
+
+		for(int i = 1; i < layers.length; i++)
+			FloatMatrix.mulAdd(this.weights[i-1], layers[i-1], this.biases[i-1], activations[i-1].floatKernel, layers[i]);
+	}
+
+	/**
+	 * Prepares the buffers for a batch of the given size, the buffers only get allocated again when the size changes.
+	 * Afterwards {@link #inputs()} and {@link #targets()} have one column per training set.
+	 */
+	void batch(int size) {
+
+		if(this.outputs != null && this.targets.getColumns() == size) return;
+
+		this.outputs = new FloatMatrix[this.weights.length+1];
+		this.preActivations = new FloatMatrix[this.weights.length];
+		this.errors = new FloatMatrix[this.weights.length];
+		this.gradients = new FloatMatrix[this.weights.length];
+
+		this.outputs[0] = new FloatMatrix(this.weights[0].getColumns(), size);
+		for(int i = 0; i < this.weights.length; i++) {
+			this.outputs[i+1] = new FloatMatrix(this.weights[i].getRows(), size);
+			this.preActivations[i] = new FloatMatrix(this.weights[i].getRows(), size);
+			this.errors[i] = new FloatMatrix(this.weights[i].getRows(), size);
+			this.gradients[i] = new FloatMatrix(this.weights[i].getRows(), size);
+		}
+		this.targets = new FloatMatrix(this.weights[this.weights.length-1].getRows(), size);
+	}
+
+	FloatMatrix inputs() {
+		return this.outputs[0];
+	}
+
+	FloatMatrix targets() {
+		return this.targets;
+	}
+
+	/**
+	 * Drops the state of the optimizer, the next update starts from scratch
+	 */
+	void resetOptimizer() {
+		this.optimizerState = null;
+		this.optimizerSteps = 0;
+	}
+
+	/**
+	 * Trains with the batch in {@link #inputs()} and {@link #targets()}, the gradients get averaged over the batch.
+	 * Does the same steps as the double precision training of {@link NeuralNetwork}, the values before the activation function are kept as well.
+	 * @param recorder - marks the phases of the step, null if nothing gets measured
+	 */
+	void train(Activation[] activations, Optimizer optimizer, double learningRate, TrainingRecorder recorder) {
+
+		if(recorder != null) recorder.forward();
+		for(int i = 1; i < this.outputs.length; i++) {
+			FloatMatrix pre = this.preActivations[i-1];
+			FloatMatrix.mulAdd(this.weights[i-1], this.outputs[i-1], this.biases[i-1], null, pre);
+			System.arraycopy(pre.toArray(), 0, this.outputs[i].toArray(), 0, pre.getRows()*pre.getColumns());
+			this.outputs[i].apply(activations[i-1].floatKernel);
+		}
+
+		if(recorder != null) recorder.backward();
+		FloatMatrix last = this.errors[this.errors.length-1];
+		System.arraycopy(this.targets.toArray(), 0, last.toArray(), 0, last.getRows()*last.getColumns());
+		last.sub(this.outputs[this.outputs.length-1]);
+
+		for(int i = this.errors.length-1; i > 0; i--)
+			FloatMatrix.mulTransposeA(this.weights[i], this.errors[i], this.errors[i-1]);
+
+		boolean sgd = Optimizers.isSgd(optimizer);
+		float scale = (float)((sgd ? learningRate : 1.0) / this.targets.getColumns());
+		for(int i = this.gradients.length-1; i >= 0; i--) {
+			FloatMatrix g = this.gradients[i];
+			FloatMatrix values = activations[i].derivativeOfOutputs ? this.outputs[i+1] : this.preActivations[i];
+			System.arraycopy(values.toArray(), 0, g.toArray(), 0, g.getRows()*g.getColumns());
+			g.apply(activations[i].floatDerivative);
+			g.hadamardProduct(this.errors[i]);
+			g.mul(scale);
+		}
+
+		if(recorder != null) recorder.update();
+		for(int i = this.gradients.length-1; i >= 0; i--) {
+			if(sgd) {
+				this.weights[i].addMulTransposeB(this.gradients[i], this.outputs[i], 1.0f);
+				this.biases[i].addRowSums(this.gradients[i]);
+			}else {
+				this.averageDeltas(i, this.gradients[i]);
+			}
+		}
+
+		if(!sgd)
+			this.optimize(optimizer, learningRate);
+	}
+
+	/**
+	 * Returns the mean squared error of the outputs of the last batch
+	 * @return - the loss of the last step
+	 */
+	double loss() {
+
+		float[] error = this.errors[this.errors.length-1].toArray();
+		double sum = 0.0;
+		for(int j = 0; j < error.length; j++)
+			sum += (double)error[j] * error[j];
+
+		return sum / error.length;
+	}
+
+	/**
+	 * Calculates the deltas of the weights and biases of one layer from its gradients already averaged over the batch
+	 */
+	private void averageDeltas(int layer, FloatMatrix gradients) {
+
+		if(this.weightDeltas == null) {
+			this.weightDeltas = new FloatMatrix[this.weights.length];
+			this.biasDeltas = new FloatMatrix[this.weights.length];
+			for(int i = 0; i < this.weights.length; i++) {
+				this.weightDeltas[i] = new FloatMatrix(this.weights[i].getRows(), this.weights[i].getColumns());
+				this.biasDeltas[i] = new FloatMatrix(this.biases[i].getRows(), 1);
+			}
+		}
+
+		FloatMatrix.mulTransposeB(gradients, this.outputs[layer], this.weightDeltas[layer]);
+		Arrays.fill(this.biasDeltas[layer].toArray(), 0.0f);
+		this.biasDeltas[layer].addRowSums(gradients);
+	}
+
+	/**
+	 * The float version of {@link NeuralNetwork#optimize}, applies the deltas of every layer with the optimizer
+	 */
+	private void optimize(Optimizer optimizer, double learningRate) {
+
+		if(this.optimizerState == null) {
+			int size = optimizer.getStateSize();
+			this.optimizerState = new float[2*this.weights.length][];
+			for(int i = 0; i < this.weights.length; i++) {
+				this.optimizerState[2*i] = new float[size * this.weights[i].getRows() * this.weights[i].getColumns()];
+				this.optimizerState[2*i+1] = new float[size * this.biases[i].getRows()];
+			}
+		}
+
+		long step = ++this.optimizerSteps;
+		for(int i = 0; i < this.weights.length; i++) {
+			FloatMatrix w = this.weights[i];
+			FloatMatrix b = this.biases[i];
+			optimizer.update(w.toArray(), this.weightDeltas[i].toArray(), this.optimizerState[2*i], w.getRows() * w.getColumns(), learningRate, step);
+			optimizer.update(b.toArray(), this.biasDeltas[i].toArray(), this.optimizerState[2*i+1], b.getRows(), learningRate, step);
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package schiemannjeremy.nn;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import schiemannjeremy.linearalgebra.FloatMatrix;
+import schiemannjeremy.linearalgebra.LinearAlgebraBackend;
+import schiemannjeremy.linearalgebra.LinearAlgebraBackends;
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * An immutable snapshot of a {@link NeuralNetwork} which can only predict. </br>
+ *
+ * The weights and biases are copied once when the snapshot gets created and are never written afterwards,
+ * so any number of threads can call predict on the same instance at the same time. </br>
+ * Snapshots are created with {@link NeuralNetwork#freeze()} or {@link NeuralNetwork#publishSnapshot()}
+ * and keep the {@link Precision} of the network.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class FrozenNetwork implements Serializable{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -3120541763990715263L;
+	private final int[] LAYERS;
+	private final Matrix[] weights;
+	private final Matrix[] biases;
+	private final ActivationFunction[] funcs;
+	private final FloatLayers floats;
+	private transient Activation[] activations;
+	private transient LinearAlgebraBackend backend;
+
+	/**
+	 * Creates the snapshot, the given matrices must not be changed afterwards
+	 * @param backend - the backend of the network or null for the default one
+	 */
+	FrozenNetwork(int[] layers, Matrix[] weights, Matrix[] biases, ActivationFunction[] funcs, LinearAlgebraBackend backend) {
+		this.LAYERS = layers;
+		this.weights = weights;
+		this.biases = biases;
+		this.funcs = funcs;
+		this.floats = null;
+		this.backend = backend;
+	}
+
+	/**
+	 * Creates the snapshot of a network with {@link Precision#FLOAT}, the given layers must not be changed afterwards
+	 */
+	FrozenNetwork(int[] layers, FloatLayers floats, ActivationFunction[] funcs) {
+		this.LAYERS = layers;
+		this.weights = null;
+		this.biases = null;
+		this.funcs = funcs;
+		this.floats = floats;
+	}
+
+	/**
+	 * Feeds the give data to the neural network and return the result
+	 * @param input_array - an array containing every value for the inputs
+	 * @return an array containing every output
+	 * @throws IllegalArgumentException when the size of the input array doesnt match the inputs of the neural network
+	 */
+	public double[] predict(double[] input_array) {
+
+		double[] output_array = new double[this.LAYERS[this.LAYERS.length-1]];
+		this.predict(input_array, output_array, this.newWorkspace());
+
+		return output_array;
+	}
+
+	/**
+	 * Feeds the give data to the neural network and writes the result into the output array. </br>
+	 * The workspace can be reused for any amount of calls, but only by one thread at a time.
+	 * @param input_array - an array containing every value for the inputs
+	 * @param output_array - an array which gets filled with every output
+	 * @param workspace - a workspace created by {@link #newWorkspace()}
+	 * @throws IllegalArgumentException when the size of the input or output array doesnt match the inputs or outputs of the neural network
+	 */
+	public void predict(double[] input_array, double[] output_array, Workspace workspace) {
+
+		if(!workspace.fits(this.LAYERS, this.getPrecision())) throw new IllegalArgumentException("Workspace belongs to a different network");
+
+		Activation[] activations = this.activations();
+
+		if(this.floats != null) {
+			feedForward(this.floats, this.LAYERS, activations, input_array, output_array, workspace);
+			return;
+		}
+
+		feedForward(this.getBackend(), this.LAYERS, this.weights, this.biases, activations, input_array, output_array, workspace);
+	}
+
+	/**
+	 * Feeds a batch through the network, layers[0] holds the inputs with one column per training set and
+	 * every further layer gets its values. Only for snapshots with {@link Precision#DOUBLE}, used by {@link Evaluator}.
+	 * @param layers - one matrix per layer, all with the same amount of columns
+	 */
+	void feedForward(Matrix[] layers) {
+
+		Activation[] activations = this.activations();
+		LinearAlgebraBackend backend = this.getBackend();
+
+		for(int i = 1; i < layers.length; i++)
+			backend.mulAdd(this.weights[i-1], layers[i-1], this.biases[i-1], activations[i-1].kernel, layers[i]);
+	}
+
+	/**
+	 * The float version of {@link #feedForward(Matrix[])}, only for snapshots with {@link Precision#FLOAT}
+	 */
+	void feedForward(FloatMatrix[] layers) {
+		this.floats.feedForward(this.activations(), layers);
+	}
+
+	private Activation[] activations() {
+
+		Activation[] activations = this.activations;
+		if(activations == null)
+			this.activations = activations = Activation.of(this.funcs);
+
+		return activations;
+	}
+
+	/**
+	 * Creates a workspace which holds the values of every layer during {@link #predict(double[], double[], Workspace)}
+	 * @return - a new workspace
+	 */
+	public Workspace newWorkspace() {
+		return new Workspace(this.LAYERS, this.getPrecision());
+	}
+
+	public Precision getPrecision() {
+		return this.floats != null ? Precision.FLOAT : Precision.DOUBLE;
+	}
+
+	/**
+	 * Returns the amount of neurons per layer
+	 * @return - a copy of the layer sizes
+	 */
+	public int[] getLayers() {
+		return this.LAYERS.clone();
+	}
+
+	/**
+	 * @param layer - index of the layer, from 1 for the first hidden layer up to the output layer
+	 * @return - the activation function of the layer
+	 */
+	public ActivationFunction getActivationFunction(int layer) {
+		return this.funcs[layer-1];
+	}
+
+	/**
+	 * @return - the activation functions of every layer except the input layer
+	 */
+	public ActivationFunction[] getActivationFunctions() {
+		return this.funcs.clone();
+	}
+
+	/**
+	 * Returns the implementation of the matrix operations, the one of the network this snapshot was taken from
+	 * or the default one if this snapshot got deserialized
+	 * @return - the backend
+	 */
+	public LinearAlgebraBackend getBackend() {
+
+		LinearAlgebraBackend backend = this.backend;
+		return backend != null ? backend : LinearAlgebraBackends.getDefault();
+	}
+
+	/**
+	 * The feed forward pass shared by this class and {@link NeuralNetwork#predict(double[], double[])} </br>
+	 * Every layer gets computed with one fused {@link LinearAlgebraBackend#mulAdd} call applying the activation of the layer.
+	 */
+	static void feedForward(LinearAlgebraBackend backend, int[] LAYERS, Matrix[] weights, Matrix[] biases, Activation[] activations, double[] input_array, double[] output_array, Workspace workspace) {
+
+		if(input_array.length != LAYERS[0]) throw new IllegalArgumentException("" + LAYERS[0] + " inputs excpected, but " + input_array.length + " received");
+		if(output_array.length != LAYERS[LAYERS.length-1]) throw new IllegalArgumentException("" + LAYERS[LAYERS.length-1] + " outputs excpected, but space for " + output_array.length + " given");
+
+		Matrix[] layers = workspace.layers;
+		System.arraycopy(input_array, 0, layers[0].toArray(), 0, input_array.length);
+
+		for(int i = 1; i < layers.length; i++)
+			backend.mulAdd(weights[i-1], layers[i-1], biases[i-1], activations[i-1].kernel, layers[i]);
+
+		System.arraycopy(layers[layers.length-1].toArray(), 0, output_array, 0, output_array.length);
+	}
+
+	/**
+	 * The float version of {@link #feedForward(LinearAlgebraBackend, int[], Matrix[], Matrix[], Activation[], double[], double[], Workspace)}
+	 */
+	static void feedForward(FloatLayers floats, int[] LAYERS, Activation[] activations, double[] input_array, double[] output_array, Workspace workspace) {
+
+		if(input_array.length != LAYERS[0]) throw new IllegalArgumentException("" + LAYERS[0] + " inputs excpected, but " + input_array.length + " received");
+		if(output_array.length != LAYERS[LAYERS.length-1]) throw new IllegalArgumentException("" + LAYERS[LAYERS.length-1] + " outputs excpected, but space for " + output_array.length + " given");
+
+		floats.feedForward(activations, input_array, output_array, workspace.floatLayers);
+	}
+
+	/**
+	 * Holds one column vector per layer in the precision of the network, used by one thread at a time
+	 */
+	public static final class Workspace {
+
+		private final int[] sizes;
+		private final Matrix[] layers;
+		private final FloatMatrix[] floatLayers;
+
+		Workspace(int[] layers) {
+			this(layers, Precision.DOUBLE);
+		}
+
+		Workspace(int[] layers, Precision precision) {
+			this.sizes = layers.clone();
+			this.layers = precision == Precision.DOUBLE ? new Matrix[layers.length] : null;
+			this.floatLayers = precision == Precision.FLOAT ? new FloatMatrix[layers.length] : null;
+
+			for(int i = 0; i < layers.length; i++) {
+				if(this.layers != null)
+					this.layers[i] = new Matrix(layers[i], 1);
+				else
+					this.floatLayers[i] = new FloatMatrix(layers[i], 1);
+			}
+		}
+
+		Matrix[] layers() {
+			return this.layers;
+		}
+
+		boolean fits(int[] layers) {
+			return this.fits(layers, Precision.DOUBLE);
+		}
+
+		boolean fits(int[] layers, Precision precision) {
+
+			if((precision == Precision.DOUBLE) != (this.layers != null)) return false;
+
+			return Arrays.equals(layers, this.sizes);
+		}
+	}
+}
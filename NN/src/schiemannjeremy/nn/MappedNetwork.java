@@ -0,0 +1,172 @@
+package schiemannjeremy.nn;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import schiemannjeremy.linearalgebra.Matrix;
+import schiemannjeremy.linearalgebra.OffHeapMatrix;
+
+/**
+ * A network which predicts straight from a model file written by {@link NeuralNetwork#save(NeuralNetwork, File)}. </br>
+ *
+ * The weights and biases of every layer are read-only memory mappings of the file wrapped in {@link OffHeapMatrix} objects,
+ * nothing of them gets copied onto the Java heap. The operating system loads the pages when they are first used
+ * and every process mapping the same file shares them, so many inference processes can serve one large model with a single copy in memory. </br>
+ * Like {@link FrozenNetwork} it can only predict and any number of threads can use it at the same time. Closing it makes the network unusable,
+ * the mappings themselves get freed once they are unreachable, Java 17 has no way to unmap them earlier.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class MappedNetwork implements Closeable {
+
+	private final File file;
+	private final int[] LAYERS;
+	private final OffHeapMatrix[] weights;
+	private final OffHeapMatrix[] biases;
+	private final ActivationFunction[] funcs;
+	private final Activation[] activations;
+
+	private MappedNetwork(File file, int[] layers, OffHeapMatrix[] weights, OffHeapMatrix[] biases, ActivationFunction[] funcs) {
+		this.file = file;
+		this.LAYERS = layers;
+		this.weights = weights;
+		this.biases = biases;
+		this.funcs = funcs;
+		this.activations = Activation.of(funcs);
+	}
+
+	/**
+	 * Maps the model file
+	 * @param file - a file written by {@link NeuralNetwork#save(NeuralNetwork, File)}
+	 * @return - the network
+	 * @throws IOException if the file doesnt exist, isnt a model file of double precision or is truncated
+	 */
+	public static MappedNetwork open(File file) throws IOException {
+
+		//the mappings stay valid after the channel is closed
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ModelFile.Header header = ModelFile.readHeader(channel, file);
+			if(header.precision != Precision.DOUBLE) throw new IOException("Only models with double precision can be mapped, " + file + " has " + header.precision);
+			int[] layers = header.layers;
+
+			OffHeapMatrix[] weights = new OffHeapMatrix[layers.length-1];
+			OffHeapMatrix[] biases = new OffHeapMatrix[layers.length-1];
+			for(int i = 0; i < weights.length; i++) {
+				MappedByteBuffer mapped = ModelFile.mapLayer(channel, header, i, FileChannel.MapMode.READ_ONLY, file);
+				weights[i] = OffHeapMatrix.wrap(mapped, layers[i+1], layers[i]);
+				biases[i] = OffHeapMatrix.wrap(mapped.position(8 * layers[i+1] * layers[i]), layers[i+1], 1);
+			}
+
+			return new MappedNetwork(file, layers, weights, biases, header.funcs);
+		}
+	}
+
+	/**
+	 * Feeds the give data to the neural network and return the result
+	 * @param input_array - an array containing every value for the inputs
+	 * @return an array containing every output
+	 * @throws IllegalArgumentException when the size of the input array doesnt match the inputs of the neural network
+	 * @throws IllegalStateException if the network is closed
+	 */
+	public double[] predict(double[] input_array) {
+
+		double[] output_array = new double[this.LAYERS[this.LAYERS.length-1]];
+		this.predict(input_array, output_array, this.newWorkspace());
+
+		return output_array;
+	}
+
+	/**
+	 * Feeds the give data to the neural network and writes the result into the output array. </br>
+	 * The workspace can be reused for any amount of calls, but only by one thread at a time.
+	 * @param input_array - an array containing every value for the inputs
+	 * @param output_array - an array which gets filled with every output
+	 * @param workspace - a workspace created by {@link #newWorkspace()}
+	 * @throws IllegalArgumentException when the size of the input or output array doesnt match the inputs or outputs of the neural network
+	 * @throws IllegalStateException if the network is closed
+	 */
+	public void predict(double[] input_array, double[] output_array, FrozenNetwork.Workspace workspace) {
+
+		if(!workspace.fits(this.LAYERS)) throw new IllegalArgumentException("Workspace belongs to a different network");
+		if(input_array.length != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + input_array.length + " received");
+		if(output_array.length != this.LAYERS[this.LAYERS.length-1]) throw new IllegalArgumentException("" + this.LAYERS[this.LAYERS.length-1] + " outputs excpected, but space for " + output_array.length + " given");
+
+		Matrix[] layers = workspace.layers();
+		System.arraycopy(input_array, 0, layers[0].toArray(), 0, input_array.length);
+
+		for(int i = 1; i < layers.length; i++)
+			OffHeapMatrix.mulAdd(this.weights[i-1], layers[i-1], this.biases[i-1], this.activations[i-1].kernel, layers[i]);
+
+		System.arraycopy(layers[layers.length-1].toArray(), 0, output_array, 0, output_array.length);
+	}
+
+	/**
+	 * Creates a workspace which holds the values of every layer during {@link #predict(double[], double[], FrozenNetwork.Workspace)}
+	 * @return - a new workspace
+	 */
+	public FrozenNetwork.Workspace newWorkspace() {
+		return new FrozenNetwork.Workspace(this.LAYERS);
+	}
+
+	/**
+	 * Copies the weights and biases onto the heap into a network which can be trained
+	 * @return - the network
+	 * @throws IllegalStateException if the network is closed
+	 */
+	public NeuralNetwork toNeuralNetwork() {
+
+		NeuralNetwork nn = new NeuralNetwork(this.LAYERS.clone());
+		for(int i = 0; i < this.funcs.length; i++)
+			nn.setActivationFunction(i+1, this.funcs[i]);
+		for(int i = 0; i < this.weights.length; i++) {
+			nn.weights()[i] = this.weights[i].toMatrix();
+			nn.biases()[i] = this.biases[i].toMatrix();
+		}
+
+		return nn;
+	}
+
+	/**
+	 * Returns the amount of neurons per layer
+	 * @return - a copy of the layer sizes
+	 */
+	public int[] getLayers() {
+		return this.LAYERS.clone();
+	}
+
+	/**
+	 * @param layer - index of the layer, from 1 for the first hidden layer up to the output layer
+	 * @return - the activation function of the layer
+	 */
+	public ActivationFunction getActivationFunction(int layer) {
+		return this.funcs[layer-1];
+	}
+
+	/**
+	 * @return - the activation functions of every layer except the input layer
+	 */
+	public ActivationFunction[] getActivationFunctions() {
+		return this.funcs.clone();
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Drops the references to the mappings, the network cant predict afterwards. </br>
+	 * The mappings get freed once nothing else references them, which is up to the garbage collector.
+	 */
+	@Override
+	public void close() {
+
+		for(int i = 0; i < this.weights.length; i++) {
+			this.weights[i].close();
+			this.biases[i].close();
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package schiemannjeremy.nn;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * TrainingData which lives in a file instead of the heap, for datasets that dont fit into memory. </br>
+ *
+ * The file starts with a little-endian header <code>int magic ("SNTD"), int version, int inputs, int outputs, long size</code>,
+ * followed by one fixed-width record per training set holding its inputs and then its outputs as little-endian doubles. </br>
+ * Training sets get appended to the end of the file with {@link #add(TrainingSet)}. Reading happens through memory mappings
+ * of chunks of the file, so only the parts which are used get loaded by the operating system and
+ * {@link #getTrainingSet(int)} only materializes the requested training set. </br>
+ * This is the format used for files with the ending ".ntd".
+ * @author Jeremy Schiemann
+ *
+ */
+public class MappedTrainingData extends TrainingData implements Closeable{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -6915093263404788216L;
+
+	static final int MAGIC = 0x44544E53; // "SNTD" in little-endian
+	static final int VERSION = 1;
+	private static final int HEADER = 24;
+	private static final int SIZE_POSITION = 16;
+
+	/** Size of one mapped chunk of records */
+	private static final long CHUNK_BYTES = 64L << 20;
+
+	private final File file;
+	private final int inputs;
+	private final int outputs;
+
+	/** only used while holding the lock of this object, read-only until the first {@link #add(TrainingSet)} */
+	private transient FileChannel channel;
+	private transient boolean writable;
+	private transient int recordsPerChunk;
+	private transient volatile int size;
+
+	/** replaced as a whole whenever a chunk gets mapped, so readers dont need the lock */
+	private transient volatile Mappings mappings;
+
+	private MappedTrainingData(File file, int inputs, int outputs, FileChannel channel, boolean writable, int size) {
+		this.file = file;
+		this.inputs = inputs;
+		this.outputs = outputs;
+		this.init(channel, writable, size);
+	}
+
+	private void init(FileChannel channel, boolean writable, int size) {
+		this.channel = channel;
+		this.writable = writable;
+		this.size = size;
+		this.recordsPerChunk = (int)Math.max(1, CHUNK_BYTES / this.recordBytes());
+		this.mappings = Mappings.EMPTY;
+	}
+
+	/**
+	 * Creates a new empty file for training sets with the given amount of inputs and outputs. </br>
+	 * An existing file gets overwritten.
+	 * @param file - the file
+	 * @param inputs - amount of inputs of every training set
+	 * @param outputs - amount of outputs of every training set
+	 * @return - the empty training data
+	 * @throws IOException if the file cant be created
+	 */
+	public static MappedTrainingData create(File file, int inputs, int outputs) throws IOException {
+
+		if(inputs <= 0 || outputs <= 0) throw new IllegalArgumentException("need at least one input and one output");
+
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(inputs).putInt(outputs).putLong(0);
+		header.flip();
+		while(header.hasRemaining())
+			channel.write(header, header.position());
+
+		return new MappedTrainingData(file, inputs, outputs, channel, true, 0);
+	}
+
+	/**
+	 * Opens an existing file, training sets can be read and appended. </br>
+	 * The file only gets opened for reading, so read-only files work as long as nothing gets added.
+	 * Write access is requested with the first {@link #add(TrainingSet)}.
+	 * @param file - the file
+	 * @return - the training data in the file
+	 * @throws IOException if the file doesnt exist or isnt in the right format
+	 */
+	public static MappedTrainingData open(File file) throws IOException {
+
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining() && channel.read(header, header.position()) >= 0);
+			header.flip();
+
+			if(header.remaining() < HEADER || header.getInt() != MAGIC) throw new IOException(file + " is no training data file");
+
+			int version = header.getInt();
+			if(version < 1 || version > VERSION) throw new IOException("Unsupported training data file version " + version + ", supported up to " + VERSION);
+
+			int inputs = header.getInt();
+			int outputs = header.getInt();
+			long size = header.getLong();
+
+			if(size > Integer.MAX_VALUE || HEADER + size * 8 * (inputs+outputs) > channel.size()) throw new IOException(file + " is truncated or corrupted");
+
+			return new MappedTrainingData(file, inputs, outputs, channel, false, (int)size);
+
+		}catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks if the file starts with the magic number of this format
+	 */
+	static boolean isTrainingDataFile(File file) throws IOException {
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while(magic.hasRemaining() && channel.read(magic) >= 0);
+
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Appends the training set to the end of the file
+	 * @param trainingSet - the TrainingSet object that should be added
+	 * @return - true if operation was successful
+	 * @throws IllegalArgumentException if the amount of inputs or outputs doesnt match the file
+	 * @throws UncheckedIOException if writing fails, e.g. because the file is read-only
+	 */
+	@Override
+	public synchronized boolean add(TrainingSet trainingSet) {
+
+		if(trainingSet.getInputs().length != this.inputs) throw new IllegalArgumentException("" + this.inputs + " inputs excpected, but " + trainingSet.getInputs().length + " received");
+		if(trainingSet.getOutputs().length != this.outputs) throw new IllegalArgumentException("" + this.outputs + " outputs excpected, but " + trainingSet.getOutputs().length + " received");
+
+		ByteBuffer record = ByteBuffer.allocate(this.recordBytes()).order(ByteOrder.LITTLE_ENDIAN);
+		record.asDoubleBuffer().put(trainingSet.getInputs()).put(trainingSet.getOutputs());
+
+		ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		count.putLong(0, this.size + 1L);
+
+		try {
+			if(!this.writable) {
+				//existing mappings stay valid when the channel they were created from gets closed
+				FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				this.channel.close();
+				this.channel = channel;
+				this.writable = true;
+			}
+
+			long position = HEADER + (long)this.size * this.recordBytes();
+			while(record.hasRemaining())
+				position += this.channel.write(record, position);
+			while(count.hasRemaining())
+				this.channel.write(count, SIZE_POSITION + count.position());
+
+		}catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Reads the TrainingSet Object at the specified location from the file
+	 * @param index - the locations
+	 * @return - the TrainingSet object
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	@Override
+	public TrainingSet getTrainingSet(int index) {
+
+		if(index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.size);
+
+		double[] inputs = new double[this.inputs];
+		double[] outputs = new double[this.outputs];
+		this.read(index, inputs, outputs);
+
+		return new TrainingSet(inputs, outputs);
+	}
+
+	/**
+	 * returns a random TrainingSet Object.
+	 * @return - the TrainingSet Object
+	 */
+	@Override
+	public TrainingSet getRandomSet() {
+		return this.getTrainingSet(ThreadLocalRandom.current().nextInt(this.size));
+	}
+
+	/**
+	 * Reads the training set at the given index into the given arrays without allocating anything
+	 * @param index - the location
+	 * @param inputs - gets filled with the inputs
+	 * @param outputs - gets filled with the outputs
+	 * @throws IllegalArgumentException if the arrays dont have the length of the inputs and outputs
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	@Override
+	public void read(int index, double[] inputs, double[] outputs) {
+
+		if(index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.size);
+		if(inputs.length != this.inputs) throw new IllegalArgumentException("" + inputs.length + " inputs excpected, but " + this.inputs + " stored");
+		if(outputs.length != this.outputs) throw new IllegalArgumentException("" + outputs.length + " outputs excpected, but " + this.outputs + " stored");
+
+		DoubleBuffer chunk = this.chunk(index / this.recordsPerChunk, index % this.recordsPerChunk + 1);
+		int position = (index % this.recordsPerChunk) * (this.inputs + this.outputs);
+
+		chunk.get(position, inputs, 0, this.inputs);
+		chunk.get(position + this.inputs, outputs, 0, this.outputs);
+	}
+
+	/**
+	 * Returns the mapping of the given chunk which contains at least the given amount of records. </br>
+	 * Only takes the lock if the chunk has to be mapped, the buffers are only read with absolute gets so threads can share them.
+	 */
+	private DoubleBuffer chunk(int chunk, int records) {
+
+		Mappings mappings = this.mappings;
+		if(chunk < mappings.chunks.length && mappings.records[chunk] >= records)
+			return mappings.chunks[chunk];
+
+		return this.map(chunk, records);
+	}
+
+	private synchronized DoubleBuffer map(int chunk, int records) {
+
+		Mappings mappings = this.mappings;
+		if(chunk < mappings.chunks.length && mappings.records[chunk] >= records)
+			return mappings.chunks[chunk];
+
+		DoubleBuffer[] chunks = Arrays.copyOf(mappings.chunks, Math.max(chunk+1, mappings.chunks.length));
+		int[] chunkRecords = Arrays.copyOf(mappings.records, chunks.length);
+
+		//map as much of the chunk as exists right now, remapped once appended records are needed
+		int available = (int)Math.min(this.recordsPerChunk, (long)this.size - (long)chunk * this.recordsPerChunk);
+		try {
+			chunks[chunk] = this.channel.map(FileChannel.MapMode.READ_ONLY, HEADER + (long)chunk * this.recordsPerChunk * this.recordBytes(), (long)available * this.recordBytes())
+					.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		chunkRecords[chunk] = available;
+
+		this.mappings = new Mappings(chunks, chunkRecords);
+		return chunks[chunk];
+	}
+
+	public int getInputs() {
+		return this.inputs;
+	}
+
+	public int getOutputs() {
+		return this.outputs;
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	private int recordBytes() {
+		return 8 * (this.inputs + this.outputs);
+	}
+
+	/**
+	 * Closes the file, the training data cant be used afterwards
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.mappings = Mappings.EMPTY;
+		this.channel.close();
+	}
+
+	/**
+	 * Only the file gets serialized, it gets opened again when deserializing
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+		in.defaultReadObject();
+
+		MappedTrainingData opened = open(this.file);
+		this.init(opened.channel, opened.writable, opened.size);
+	}
+
+	/**
+	 * The mapped chunks and how many records each of them holds, never changed after creation
+	 */
+	private static final class Mappings {
+
+		static final Mappings EMPTY = new Mappings(new DoubleBuffer[0], new int[0]);
+
+		final DoubleBuffer[] chunks;
+		final int[] records;
+
+		Mappings(DoubleBuffer[] chunks, int[] records) {
+			this.chunks = chunks;
+			this.records = records;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package schiemannjeremy.nn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import schiemannjeremy.linearalgebra.FloatMatrix;
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * Reads and writes the binary model format used by {@link NeuralNetwork#save(NeuralNetwork, File)}. </br>
+ *
+ * All values are little-endian: </br>
+ * <code>int magic ("SNNM"), int version, int precision, int layerCount, int[layerCount] layers, int[layerCount-1] activationIds</code> </br>
+ * The precision is the ordinal of {@link Precision}, version 1 files dont have it and are always double precision.
+ * Every layer except the input layer has an activation id, files before version 3 have a single one for all layers.
+ * If an activation id is -1 the function isnt built-in and follows right after the id as <code>int length, byte[length]</code> in Java serialization. </br>
+ * After padding to a multiple of 8 bytes, every layer follows as its weights row after row and then its biases, all as doubles or floats. </br>
+ * The layers get read through memory mappings, the values are copied into the matrices with bulk reads straight from the page cache.
+ * {@link MappedNetwork} predicts straight from the mappings without copying them.
+ * @author Jeremy Schiemann
+ *
+ */
+final class ModelFile {
+
+	static final int MAGIC = 0x4D4E4E53; // "SNNM" in little-endian
+	static final int VERSION = 3;
+
+	private ModelFile() {}
+
+	/**
+	 * Checks if the file starts with the magic number of this format
+	 */
+	static boolean isModelFile(File file) throws IOException {
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while(magic.hasRemaining() && channel.read(magic) >= 0);
+
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	static void write(NeuralNetwork neuralNetwork, File file) throws IOException {
+
+		int[] layers = neuralNetwork.layers();
+		Matrix[] weights = neuralNetwork.weights();
+		Matrix[] biases = neuralNetwork.biases();
+		FloatLayers floats = neuralNetwork.floats();
+
+		ActivationFunction[] funcs = neuralNetwork.getActivationFunctions();
+		int[] activationIds = new int[funcs.length];
+		byte[][] custom = new byte[funcs.length][];
+
+		int header = 4 * (4 + layers.length);
+		for(int i = 0; i < funcs.length; i++) {
+			activationIds[i] = ActivationFunctions.idOf(funcs[i]);
+			custom[i] = activationIds[i] < 0 ? serialize(funcs[i]) : new byte[0];
+			header += 4 + (activationIds[i] < 0 ? 4 + custom[i].length : 0);
+		}
+		header = (header + 7) & ~7;
+
+		ByteBuffer buffer = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(neuralNetwork.getPrecision().ordinal());
+		buffer.putInt(layers.length);
+		for(int l : layers)
+			buffer.putInt(l);
+		for(int i = 0; i < funcs.length; i++) {
+			buffer.putInt(activationIds[i]);
+			if(activationIds[i] < 0) {
+				buffer.putInt(custom[i].length);
+				buffer.put(custom[i]);
+			}
+		}
+		buffer.rewind();
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, buffer);
+
+			for(int i = 0; i < layers.length-1; i++) {
+				writeFully(channel, floats != null ? toBytes(floats.weights[i]) : toBytes(weights[i]));
+				writeFully(channel, floats != null ? toBytes(floats.biases[i]) : toBytes(biases[i]));
+			}
+		}
+	}
+
+	static NeuralNetwork read(File file) throws IOException {
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Header header = readHeader(channel, file);
+
+			NeuralNetwork nn = new NeuralNetwork(header.layers);
+			nn.setActivationFunction(header.funcs[0]);
+			for(int i = 1; i < header.funcs.length; i++)
+				if(header.funcs[i] != header.funcs[0])
+					nn.setActivationFunction(i+1, header.funcs[i]);
+
+			if(header.precision == Precision.FLOAT) {
+				nn.setPrecision(Precision.FLOAT);
+				FloatLayers floats = nn.floats();
+				for(int i = 0; i < floats.weights.length; i++) {
+					FloatBuffer values = mapLayer(channel, header, i, FileChannel.MapMode.READ_ONLY, file).asFloatBuffer();
+					values.get(floats.weights[i].toArray());
+					values.get(floats.biases[i].toArray());
+				}
+
+				return nn;
+			}
+
+			Matrix[] weights = nn.weights();
+			Matrix[] biases = nn.biases();
+			for(int i = 0; i < weights.length; i++) {
+				DoubleBuffer values = mapLayer(channel, header, i, FileChannel.MapMode.READ_ONLY, file).asDoubleBuffer();
+				values.get(weights[i].toArray());
+				values.get(biases[i].toArray());
+			}
+
+			return nn;
+		}
+	}
+
+	/**
+	 * The part of a model file in front of the weights
+	 */
+	static final class Header {
+
+		final int[] layers;
+		/** the activation function of every layer except the input layer */
+		final ActivationFunction[] funcs;
+		final Precision precision;
+
+		/** position of the weights of the first layer */
+		final long data;
+
+		Header(int[] layers, ActivationFunction[] funcs, Precision precision, long data) {
+			this.layers = layers;
+			this.funcs = funcs;
+			this.precision = precision;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Reads everything in front of the weights
+	 * @throws IOException if the file isnt a model file of a supported version or if it is truncated
+	 */
+	static Header readHeader(FileChannel channel, File file) throws IOException {
+
+		ByteBuffer start = read(channel, 0, 12, file);
+		if(start.getInt() != MAGIC) throw new IOException(file + " is no model file");
+
+		int version = start.getInt();
+		if(version < 1 || version > VERSION) throw new IOException("Unsupported model file version " + version + ", supported up to " + VERSION);
+
+		long position = 12;
+		Precision precision = Precision.DOUBLE;
+		if(version >= 2) {
+			int id = start.getInt();
+			if(id < 0 || id >= Precision.values().length) throw new IOException("Unknown precision " + id);
+
+			precision = Precision.values()[id];
+			start = read(channel, position, 4, file);
+			position += 4;
+		}
+
+		int count = start.getInt();
+		if(count < 2 || count > 1 << 16) throw new IOException(file + " is corrupted");
+
+		ByteBuffer rest = read(channel, position, 4*count, file);
+		int[] layers = new int[count];
+		for(int i = 0; i < layers.length; i++)
+			layers[i] = rest.getInt();
+
+		position += 4L*count;
+
+		//older versions store one function for every layer
+		ActivationFunction[] funcs = new ActivationFunction[count-1];
+		for(int i = 0; i < funcs.length; i++) {
+			if(i > 0 && version < 3) {
+				funcs[i] = funcs[0];
+				continue;
+			}
+
+			int activationId = read(channel, position, 4, file).getInt();
+			position += 4;
+
+			if(activationId < 0) {
+				int length = read(channel, position, 4, file).getInt();
+				byte[] custom = new byte[length];
+				read(channel, position + 4, length, file).get(custom);
+				funcs[i] = deserialize(custom);
+				position += 4 + length;
+			}else {
+				funcs[i] = ActivationFunctions.byId(activationId);
+				if(funcs[i] == null) throw new IOException("Unknown activation function id " + activationId);
+			}
+		}
+
+		return new Header(layers, funcs, precision, (position + 7) & ~7);
+	}
+
+	/**
+	 * Maps the weights of the given layer followed by its biases, in the precision of the header. </br>
+	 * Every layer gets its own mapping, so only a single layer has to fit into the 2 GB limit of a mapping and not the whole model.
+	 * @throws IOException if the file is too short
+	 */
+	static MappedByteBuffer mapLayer(FileChannel channel, Header header, int layer, FileChannel.MapMode mode, File file) throws IOException {
+
+		int bytes = header.precision.getBytes();
+		long position = header.data;
+		for(int i = 0; i < layer; i++)
+			position += (long)bytes * header.layers[i+1] * (header.layers[i] + 1);
+
+		long size = (long)bytes * header.layers[layer+1] * (header.layers[layer] + 1);
+		if(size > Integer.MAX_VALUE) throw new IOException("Layer " + layer + " is too big to be mapped");
+		if(position + size > channel.size()) throw new IOException(file + " is truncated");
+
+		MappedByteBuffer mapped = channel.map(mode, position, size);
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+		return mapped;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length, File file) throws IOException {
+
+		if(length < 0) throw new IOException(file + " is corrupted");
+
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining())
+			if(channel.read(buffer, position + buffer.position()) < 0) throw new IOException(file + " is truncated");
+
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Converts the values of the matrix into little-endian bytes
+	 */
+	private static ByteBuffer toBytes(Matrix m) {
+
+		ByteBuffer bytes = ByteBuffer.allocate(8 * m.getRows() * m.getColumns()).order(ByteOrder.LITTLE_ENDIAN);
+		bytes.asDoubleBuffer().put(m.toArray(), 0, m.getRows() * m.getColumns());
+
+		return bytes;
+	}
+
+	/**
+	 * Converts the values of the float matrix into little-endian bytes
+	 */
+	private static ByteBuffer toBytes(FloatMatrix m) {
+
+		ByteBuffer bytes = ByteBuffer.allocate(4 * m.getRows() * m.getColumns()).order(ByteOrder.LITTLE_ENDIAN);
+		bytes.asFloatBuffer().put(m.toArray(), 0, m.getRows() * m.getColumns());
+
+		return bytes;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	private static byte[] serialize(ActivationFunction func) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream objO = new ObjectOutputStream(bytes)) {
+			objO.writeObject(func);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static ActivationFunction deserialize(byte[] custom) throws IOException {
+
+		try(ObjectInputStream objI = new ObjectInputStream(new ByteArrayInputStream(custom))) {
+			return (ActivationFunction)objI.readObject();
+		}catch (ClassNotFoundException e) {
+			throw new IOException("Class of the activation function not found", e);
+		}
+	}
+}
@@ -1,312 +1,790 @@
-package schiemannjeremy.nn;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-
-import schiemannjeremy.linearalgebra.Matrix;
-
-
-/**
- * NeuralNetwork class for constructing, training and predicting data </br>
- * @author Jeremy Schiemann
- *
- */
-public class NeuralNetwork implements Serializable{
-	
-	/**
-	 * 
-	 */
-	private static final long serialVersionUID = 6241970177328998671L;
-	private final int[] LAYERS;
-	private Matrix[] weights;
-	private Matrix[] biases;
-	
-	
-	private Matrix[] errors;
-	private Matrix[] gradients;
-	private Matrix[] outputs;
-	private Matrix[] outputsWithoutActivationFunction;
-	private Matrix[] weightDeltas;
-	
-	
-	private ActivationFunction func;
-	
-	/**
-	 * Constructs a new NeuralNetwork with any amount of layers > 2 </br>
-	 * The first value will be the amount of input neurons, last value will be the amount of output neurons. <br/>
-	 * Everything in between will be the amount of hidden neurons </br> </br>
-	 * 
-	 * By default the activation function will be sigmoid ({@link schiemannjeremy.nn.ActivationFunction#SIGMOID}). </br>
-	 * Weights will be 0, but can be randomized with {@link #randomizeWeights(int, int)} </br>
-	 * Biases will be 0, but can be randomized with {@link #randomizeBiases(int, int)} </br>
-	 * 
-	 * @param layers - an array with the number of nodes per layer, implemented argument of variable length
-	 */
-	public NeuralNetwork(int... layers) {
-		
-		if(layers.length < 2) throw new IllegalArgumentException("NeuralNetwork needs at least 2 Layers, one for input, one for output");
-		
-		this.LAYERS = layers;
-		
-		weights = new Matrix[this.LAYERS.length-1];
-		biases = new Matrix[this.LAYERS.length-1];
-		
-		for(int i = 0; i < this.LAYERS.length-1; i++) {
-			weights[i] = new Matrix(this.LAYERS[i+1], this.LAYERS[i]);
-			biases[i] = new Matrix(this.LAYERS[i+1], 1);
-		}
-		
-		this.func = ActivationFunction.SIGMOID;
-	}
-	
-	/**
-	 * Set the activation function used by the neurons </br>
-	 * Most common ones are already implemented in the ActivationFunction interface itself.
-	 * @see schiemannjeremy.nn.ActivationFunction
-	 * @param func - an ActivationFunction 
-	 */
-	public void setActivationFunction(ActivationFunction func) {
-		this.func = func;
-	}
-	
-	public ActivationFunction getActivationFunction() {
-		return this.func;
-	}
-	
-	/**
-	 * Randomizes the weights in the give range excluding the upper limit.
-	 * @param from - lower limit
-	 * @param to - upper limit
-	 * @throws IllegalArgumentException when the lower limit is higher than the upper limit
-	 */
-	public void randomizeWeights(int from, int to) {
-		
-		if(from > to) throw new IllegalArgumentException("lower limit must be less than upper limit");
-		
-		for(Matrix m : this.weights)
-			m.randomize(from, to, false);
-		
-	}
-	
-	/**
-	 * Randomizes the biases in the give range excluding the upper limit.
-	 * @param from - lower limit
-	 * @param to - upper limit
-	 * @throws IllegalArgumentException when the lower limit is higher than the upper limit
-	 */
-	public void randomizeBiases(int from, int to) {	
-		
-		if(from > to) throw new IllegalArgumentException("lower limit must be less than upper limit");
-		
-		for(Matrix m : this.biases)
-			m.randomize(from, to, false);
-	}
-
-	/**
-	 * Feeds the give data to the neural network and return the result
-	 * @param input_array - an array containing every value for the inputs
-	 * @return an array containing every output
-	 * @throws IllegalArgumentException when the size of the input array doesnt match the inputs of the neural network
-	 */
-	public double[] predict(double[] input_array) {
-		
-		if(input_array.length != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + input_array.length + " received");
-		
-		Matrix[] outputs = new Matrix[this.LAYERS.length];
-		outputs[0] = Matrix.fromArray(input_array);
-		
-		
-		for(int i = 1; i < outputs.length; i++) {
-			outputs[i] = Matrix.mul(this.weights[i-1], outputs[i-1]);
-			outputs[i].add(this.biases[i-1]);
-			outputs[i].map(x -> func.function(x));
-		}
-		
-		return outputs[outputs.length-1].toArray();
-
-	}
-	
-	/**
-	 *  Trains the neural network using backpropagation </br>
-	 * 	During each iteration the neural network gets trained with one randomly picked training set. </br>
-	 * 
-	 * @param trainingData - the data used for training
-	 * @param learningRate - the learning rate > 0
-	 * @param iterations - the amount of training iterations
-	 * @throws IllegalArgumentException if the learning rate is <= 0 or if the iterations are <= 0
-	 */
-	public void train(TrainingData trainingData, double learningRate, int iterations) {
-		
-		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
-		if(iterations <= 0) throw new IllegalArgumentException("must at least do one iteration");
-		
-		for(int i = 0; i < iterations; i++) {
-			this.train(trainingData.getRandomSet(), learningRate);					
-		}
-	}
-	
-	
-	/**
-	 * Trains the neural network with the given training set and learning rate
-	 * @param trainingSet - a training set
-	 * @param learningRate - the learning rate
-	 * @throws IllegalArgumentException if the length of the inputs in the training set doesnt match the length of the inputs of the neural network or if the learning rate is <= 0
-	 */
-	public void train(TrainingSet trainingSet, double learningRate) {
-		if(trainingSet.getInputs().length != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + trainingSet.getInputs().length + " received");
-		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
-		
-		Matrix targets = Matrix.fromArray(trainingSet.getOutputs());
-		this.outputs = new Matrix[this.LAYERS.length];
-		this.outputs[0] = Matrix.fromArray(trainingSet.getInputs());
-		
-		this.outputsWithoutActivationFunction = this.outputs;
-		
-		calcOutputs();
-		calcErrors(targets);
-		calcDeltaGradientsAndApply(learningRate);
-	}
-	
-
-
-	/**
-	 * Calculates the mean squared error of every TrainingSet contained in the TrainingData object
-	 * @param trainingData - The data used to calculate the error
-	 * @return - the error
-	 */
-	public double calculateError(TrainingData trainingData) {
-		
-		double mean = 0;
-	
-		for(int data = 0; data < trainingData.size(); data++) 
-			mean += this.calculateError(trainingData.getTrainingSet(data));
-			
-		return mean/trainingData.size()	;
-	}
-
-	
-	private double calculateError(TrainingSet trainingSet) {
-		
-		if(trainingSet.getInputs().length != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + trainingSet.getInputs().length + " received");
-
-		Matrix targets = Matrix.fromArray(trainingSet.getOutputs());
-		if(this.outputs == null)
-			this.outputs = new Matrix[this.LAYERS.length];
-		
-		this.outputs[0] = Matrix.fromArray(trainingSet.getInputs());
-		
-		//calc outputs
-		calcOutputs();
-		
-		//calc error
-		calcErrors(targets);
-		
-		double sum = 0.0;
-		for(int i = 0; i < this.errors[this.errors.length-1].toArray().length; i++) {
-			sum += Math.pow(this.errors[this.errors.length-1].toArray()[i], 2);
-		}
-		
-		sum /= this.errors[this.errors.length-1].toArray().length;
-		 
-		return Math.sqrt(sum);
-	}
-	
-	private void calcDeltaGradientsAndApply(double learningRate) {
-		
-		if(this.gradients == null)
-			this.gradients = new Matrix[this.outputs.length-1];
-		
-		if(this.weightDeltas == null)
-			this.weightDeltas = new Matrix[this.outputs.length-1];
-		
-		for(int i = this.outputs.length-2; i >= 0; i--) {
-			
-			//calc gradients
-			this.gradients[i] = Matrix.map(this.outputsWithoutActivationFunction[i+1], y -> func.derivatedFunction(y));
-			this.gradients[i].hadamardProduct(this.errors[i]);
-			this.gradients[i].mul(learningRate);
-			
-			//calc weight delta
-			this.weightDeltas[i] = Matrix.mul(this.gradients[i], Matrix.transpose(this.outputs[i]));
-			
-			//adjust weight and biases
-			this.weights[i].add(this.weightDeltas[i]);
-			this.biases[i].add(this.gradients[i]);
-			
-		}
-	}
-	
-	private void calcErrors(Matrix targets) {
-		
-		if(this.errors == null)
-			this.errors = new Matrix[outputs.length-1];
-		
-		this.errors[this.errors.length-1] = Matrix.sub(targets, this.outputs[this.outputs.length-1]);
-		
-		for(int i = this.errors.length-1; i > 0; i--) {
-			
-			this.errors[i-1] = Matrix.mul(Matrix.transpose(this.weights[i]), this.errors[i]);
-		}
-	}
-	
-
-	private void calcOutputs() {
-		
-		this.outputsWithoutActivationFunction = this.outputs;
-		
-		for(int i = 1; i < this.outputs.length; i++) {
-			this.outputs[i] = Matrix.mul(this.weights[i-1], this.outputs[i-1]);
-			this.outputs[i].add(this.biases[i-1]);
-			this.outputsWithoutActivationFunction[i] = this.outputs[i];
-			this.outputs[i].map(x -> func.function(x));
-		}
-	}
-	
-	/**
-	 * Will write the NeuralNetwork object to the given file. </br>
-	 * This method will create the necessary paths to create this file.
-	 * @param neuralNetwork - the object which should be stored
-	 * @param file - the file where the object should be stored
-	 * @throws IOException - if anything goes wrong during writing...
-	 */
-	public static void save(NeuralNetwork neuralNetwork, File file) throws IOException {
-		
-		if(!file.exists()) file.getParentFile().mkdirs();
-		
-		ObjectOutputStream objO = new ObjectOutputStream(new FileOutputStream(file));
-		objO.writeObject(neuralNetwork);
-		
-		objO.close();
-		
-	}
-
-	/**
-	 * Restores a saved NeuralNetwork object from a File
-	 * @param file - the file where the object is stored
-	 * @return - the restored NeuralNetwork object
-	 * @throws IOException if the file doesnt exist, something goes wrong and so on...
-	 */
-	public static NeuralNetwork restore(File file) throws IOException {
-		
-		ObjectInputStream objI = new ObjectInputStream(new FileInputStream(file));
-		
-		NeuralNetwork nn = null;
-		try {
-			nn = (NeuralNetwork)objI.readObject();
-			
-		}catch (ClassNotFoundException e) {
-			e.printStackTrace();
-		}
-		
-		objI.close();
-		
-		return nn;
-	}
-	
-	
-}
+package schiemannjeremy.nn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+import schiemannjeremy.linearalgebra.FloatMatrix;
+import schiemannjeremy.linearalgebra.LinearAlgebraBackend;
+import schiemannjeremy.linearalgebra.LinearAlgebraBackends;
+import schiemannjeremy.linearalgebra.Matrix;
+
+
+/**
+ * NeuralNetwork class for constructing, training and predicting data </br>
+ * @author Jeremy Schiemann
+ *
+ */
+public class NeuralNetwork implements Serializable{
+	
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6241970177328998671L;
+	private final int[] LAYERS;
+	private Matrix[] weights;
+	private Matrix[] biases;
+	
+	
+	private ActivationFunction func;
+	
+	/** the activation function of every layer except the input layer, null if every layer uses func */
+	private ActivationFunction[] funcs;
+	
+	/** the weights and biases if the precision is {@link Precision#FLOAT}, weights and biases are null then */
+	private FloatLayers floats;
+	
+	/** applies the gradients to the weights and biases, null in networks saved before there were optimizers which means SGD */
+	private Optimizer optimizer;
+	
+	/** the state of the optimizer in double precision, the weights of layer i at 2*i and its biases at 2*i+1 */
+	private transient double[][] optimizerState;
+	private transient long optimizerSteps;
+	
+	private transient volatile ThreadLocal<FrozenNetwork.Workspace> workspaces;
+	private transient volatile FrozenNetwork snapshot;
+	private transient Activation[] activations;
+	private transient TrainingWorkspace training;
+	
+	/** the order the training sets get trained in, kept between calls so epochs continue */
+	private transient EpochSampler sampler;
+	private transient LinearAlgebraBackend backend;
+	
+	/** gets the timings of the training steps, null if nothing gets measured */
+	private transient TrainingMonitor monitor;
+	
+	/**
+	 * Constructs a new NeuralNetwork with any amount of layers > 2 </br>
+	 * The first value will be the amount of input neurons, last value will be the amount of output neurons. <br/>
+	 * Everything in between will be the amount of hidden neurons </br> </br>
+	 * 
+	 * By default the activation function will be sigmoid ({@link schiemannjeremy.nn.ActivationFunction#SIGMOID}). </br>
+	 * Weights will be 0, but can be randomized with {@link #randomizeWeights(int, int)} </br>
+	 * Biases will be 0, but can be randomized with {@link #randomizeBiases(int, int)} </br>
+	 * 
+	 * @param layers - an array with the number of nodes per layer, implemented argument of variable length
+	 */
+	public NeuralNetwork(int... layers) {
+		
+		if(layers.length < 2) throw new IllegalArgumentException("NeuralNetwork needs at least 2 Layers, one for input, one for output");
+		
+		this.LAYERS = layers;
+		
+		weights = new Matrix[this.LAYERS.length-1];
+		biases = new Matrix[this.LAYERS.length-1];
+		
+		for(int i = 0; i < this.LAYERS.length-1; i++) {
+			weights[i] = new Matrix(this.LAYERS[i+1], this.LAYERS[i]);
+			biases[i] = new Matrix(this.LAYERS[i+1], 1);
+		}
+		
+		this.func = ActivationFunction.SIGMOID;
+	}
+	
+	/**
+	 * Set the activation function used by the neurons of every layer, replacing the ones set per layer </br>
+	 * Most common ones are already implemented in the ActivationFunction interface itself.
+	 * @see schiemannjeremy.nn.ActivationFunction
+	 * @param func - an ActivationFunction 
+	 */
+	public void setActivationFunction(ActivationFunction func) {
+		this.func = func;
+		this.funcs = null;
+		this.activations = null;
+	}
+	
+	/**
+	 * Set the activation function used by the neurons of one layer, e.g. ReLU for the hidden layers and identity for the output layer
+	 * @param layer - index of the layer, from 1 for the first hidden layer up to the output layer
+	 * @param func - an ActivationFunction
+	 * @throws IllegalArgumentException if there is no such layer
+	 */
+	public void setActivationFunction(int layer, ActivationFunction func) {
+		
+		if(layer < 1 || layer >= this.LAYERS.length) throw new IllegalArgumentException("layer must be between 1 and " + (this.LAYERS.length-1));
+		
+		if(this.funcs == null)
+			this.funcs = Activation.uniform(this.func, this.LAYERS.length-1);
+		
+		this.funcs[layer-1] = func;
+		this.activations = null;
+	}
+	
+	/**
+	 * Returns the activation function set with {@link #setActivationFunction(ActivationFunction)},
+	 * layers can have a different one set with {@link #setActivationFunction(int, ActivationFunction)}
+	 */
+	public ActivationFunction getActivationFunction() {
+		return this.func;
+	}
+	
+	/**
+	 * @param layer - index of the layer, from 1 for the first hidden layer up to the output layer
+	 * @return - the activation function of the layer
+	 * @throws IllegalArgumentException if there is no such layer
+	 */
+	public ActivationFunction getActivationFunction(int layer) {
+		
+		if(layer < 1 || layer >= this.LAYERS.length) throw new IllegalArgumentException("layer must be between 1 and " + (this.LAYERS.length-1));
+		
+		return this.funcs != null ? this.funcs[layer-1] : this.func;
+	}
+	
+	/**
+	 * @return - the activation functions of every layer except the input layer
+	 */
+	public ActivationFunction[] getActivationFunctions() {
+		return this.funcs != null ? this.funcs.clone() : Activation.uniform(this.func, this.LAYERS.length-1);
+	}
+	
+	/**
+	 * Sets the implementation of the matrix operations used for training and predicting. </br>
+	 * The backend doesnt get saved, restored networks use the default backend.
+	 * @see schiemannjeremy.linearalgebra.LinearAlgebraBackends
+	 * @param backend - the backend or null for the default one
+	 */
+	public void setBackend(LinearAlgebraBackend backend) {
+		this.backend = backend;
+	}
+	
+	/**
+	 * Returns the implementation of the matrix operations used by this network
+	 * @return - the backend set with {@link #setBackend(LinearAlgebraBackend)} or the default one
+	 */
+	public LinearAlgebraBackend getBackend() {
+		
+		LinearAlgebraBackend backend = this.backend;
+		return backend != null ? backend : LinearAlgebraBackends.getDefault();
+	}
+	
+	/**
+	 * Sets the floating point type the weights are stored in and training and predicting compute with. </br>
+	 * The current weights and biases get converted, switching to {@link Precision#FLOAT} rounds them to floats. </br>
+	 * Inputs and outputs stay double arrays, they get converted at the edges of the network.
+	 * In float precision the matrix operations run on {@link FloatMatrix} instead of the {@link LinearAlgebraBackend},
+	 * and {@link ParallelTrainer} cant train the network.
+	 * @param precision - the precision, {@link Precision#DOUBLE} by default
+	 */
+	public void setPrecision(Precision precision) {
+		
+		if(precision == this.getPrecision()) return;
+		
+		if(precision == Precision.FLOAT) {
+			this.floats = FloatLayers.of(this.weights, this.biases);
+			this.weights = null;
+			this.biases = null;
+		}else {
+			this.weights = new Matrix[this.floats.weights.length];
+			this.biases = new Matrix[this.floats.biases.length];
+			for(int i = 0; i < this.weights.length; i++) {
+				this.weights[i] = this.floats.weights[i].toMatrix();
+				this.biases[i] = this.floats.biases[i].toMatrix();
+			}
+			this.floats = null;
+		}
+		
+		this.training = null;
+		this.workspaces = null;
+		this.optimizerState = null;
+		this.optimizerSteps = 0;
+	}
+	
+	public Precision getPrecision() {
+		return this.floats != null ? Precision.FLOAT : Precision.DOUBLE;
+	}
+	
+	/**
+	 * Sets the rule the training applies the gradients with, see {@link Optimizer} for the available ones. </br>
+	 * The state of the previous optimizer gets dropped. The state isnt saved with the network either,
+	 * so an optimizer starts from scratch again after loading.
+	 * @param optimizer - the optimizer, {@link Optimizer#sgd()} by default
+	 * @throws IllegalArgumentException if the optimizer is null
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		
+		if(optimizer == null) throw new IllegalArgumentException("optimizer must not be null");
+		
+		this.optimizer = optimizer;
+		this.optimizerState = null;
+		this.optimizerSteps = 0;
+		if(this.floats != null)
+			this.floats.resetOptimizer();
+	}
+	
+	public Optimizer getOptimizer() {
+		return this.optimizer != null ? this.optimizer : Optimizer.sgd();
+	}
+	
+	/**
+	 * Attaches a monitor which measures every training step of this network, see {@link TrainingMonitor}. </br>
+	 * Without a monitor the training doesnt measure anything, unless a flight recording wants the events of the training.
+	 * The monitor isnt saved with the network.
+	 * @param monitor - the monitor or null to detach the current one
+	 */
+	public void setMonitor(TrainingMonitor monitor) {
+		this.monitor = monitor;
+	}
+	
+	/**
+	 * @return - the monitor set with {@link #setMonitor(TrainingMonitor)} or null
+	 */
+	public TrainingMonitor getMonitor() {
+		return this.monitor;
+	}
+	
+	/**
+	 * Randomizes the weights in the give range excluding the upper limit.
+	 * @param from - lower limit
+	 * @param to - upper limit
+	 * @throws IllegalArgumentException when the lower limit is higher than the upper limit
+	 */
+	public void randomizeWeights(int from, int to) {
+		
+		if(from > to) throw new IllegalArgumentException("lower limit must be less than upper limit");
+		
+		if(this.floats != null) {
+			for(FloatMatrix m : this.floats.weights)
+				m.randomize(from, to, false);
+			return;
+		}
+		
+		for(Matrix m : this.weights)
+			m.randomize(from, to, false);
+		
+	}
+	
+	/**
+	 * Randomizes the biases in the give range excluding the upper limit.
+	 * @param from - lower limit
+	 * @param to - upper limit
+	 * @throws IllegalArgumentException when the lower limit is higher than the upper limit
+	 */
+	public void randomizeBiases(int from, int to) {	
+		
+		if(from > to) throw new IllegalArgumentException("lower limit must be less than upper limit");
+		
+		if(this.floats != null) {
+			for(FloatMatrix m : this.floats.biases)
+				m.randomize(from, to, false);
+			return;
+		}
+		
+		for(Matrix m : this.biases)
+			m.randomize(from, to, false);
+	}
+
+	/**
+	 * Feeds the give data to the neural network and return the result
+	 * @param input_array - an array containing every value for the inputs
+	 * @return an array containing every output
+	 * @throws IllegalArgumentException when the size of the input array doesnt match the inputs of the neural network
+	 */
+	public double[] predict(double[] input_array) {
+		
+		double[] output_array = new double[this.LAYERS[this.LAYERS.length-1]];
+		this.predict(input_array, output_array);
+		
+		return output_array;
+
+	}
+	
+	/**
+	 * Feeds the give data to the neural network and writes the result into the output array. </br>
+	 * The values of the layers are kept in a workspace per thread which gets reused, 
+	 * so once a thread has called this method it doesnt allocate anything anymore.
+	 * @param input_array - an array containing every value for the inputs
+	 * @param output_array - an array which gets filled with every output
+	 * @throws IllegalArgumentException when the size of the input or output array doesnt match the inputs or outputs of the neural network
+	 */
+	public void predict(double[] input_array, double[] output_array) {
+		
+		if(this.floats != null) {
+			FrozenNetwork.feedForward(this.floats, this.LAYERS, this.activations(), input_array, output_array, this.workspace());
+			return;
+		}
+		
+		FrozenNetwork.feedForward(this.getBackend(), this.LAYERS, this.weights, this.biases, this.activations(), input_array, output_array, this.workspace());
+	}
+
+	/**
+	 * Returns the activation functions of every layer resolved into their loops
+	 */
+	Activation[] activations() {
+		
+		Activation[] activations = this.activations;
+		if(activations == null)
+			this.activations = activations = Activation.of(this.getActivationFunctions());
+		
+		return activations;
+	}
+
+	/**
+	 * Returns the inference workspace of the current thread
+	 */
+	private FrozenNetwork.Workspace workspace() {
+		
+		ThreadLocal<FrozenNetwork.Workspace> workspaces = this.workspaces;
+		if(workspaces == null) {
+			final int[] layers = this.LAYERS;
+			final Precision precision = this.getPrecision();
+			this.workspaces = workspaces = ThreadLocal.withInitial(() -> new FrozenNetwork.Workspace(layers, precision));
+		}
+		
+		return workspaces.get();
+	}
+	
+	/**
+	 * Creates an immutable copy of the current weights, biases and activation function which can only predict. </br>
+	 * The copy can be shared by any number of threads and isnt affected by further training.
+	 * @return - the snapshot
+	 */
+	public FrozenNetwork freeze() {
+		
+		if(this.floats != null)
+			return new FrozenNetwork(this.LAYERS.clone(), this.floats.copy(), this.getActivationFunctions());
+		
+		Matrix[] weights = new Matrix[this.weights.length];
+		Matrix[] biases = new Matrix[this.biases.length];
+		
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = this.weights[i].clone();
+			biases[i] = this.biases[i].clone();
+		}
+		
+		return new FrozenNetwork(this.LAYERS.clone(), weights, biases, this.getActivationFunctions(), this.backend);
+	}
+	
+	/**
+	 * Creates a new snapshot with {@link #freeze()} and publishes it, so that {@link #getSnapshot()} returns it from now on. </br>
+	 * Once a snapshot got published, every call to one of the train methods taking {@link TrainingData} publishes a new one when it is done.
+	 * @return - the published snapshot
+	 */
+	public FrozenNetwork publishSnapshot() {
+		
+		FrozenNetwork snapshot = this.freeze();
+		this.snapshot = snapshot;
+		
+		return snapshot;
+	}
+	
+	/**
+	 * Returns the last published snapshot, publishes the first one if there is none yet. </br>
+	 * Safe to call from any thread while another thread trains this network.
+	 * @return - the last published snapshot
+	 */
+	public FrozenNetwork getSnapshot() {
+		
+		FrozenNetwork snapshot = this.snapshot;
+		return snapshot != null ? snapshot : this.publishSnapshot();
+	}
+	
+	/**
+	 *  Trains the neural network using backpropagation </br>
+	 * 	During each iteration the neural network gets trained with one training set. The training sets get picked
+	 *  in a shuffled order, see {@link EpochSampler}, and every one of them gets used once before any of them is used again,
+	 *  also across calls with the same training data. </br>
+	 * 
+	 * @param trainingData - the data used for training
+	 * @param learningRate - the learning rate > 0
+	 * @param iterations - the amount of training iterations
+	 * @throws IllegalArgumentException if the learning rate is <= 0 or if the iterations are <= 0
+	 */
+	public void train(TrainingData trainingData, double learningRate, int iterations) {
+		
+		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
+		if(iterations <= 0) throw new IllegalArgumentException("must at least do one iteration");
+		
+		TrainingRecorder recorder = TrainingRecorder.start(this.monitor);
+		
+		if(trainingData instanceof PackedTrainingData) {
+			
+			//train straight from the packed storage without creating TrainingSet objects
+			PackedTrainingData packed = (PackedTrainingData)trainingData;
+			EpochSampler sampler = this.sampler(packed.size());
+			for(int i = 0; i < iterations; i++) {
+				int index = sampler.next();
+				this.train(packed.inputRow(index), packed.outputRow(index), learningRate, recorder);
+			}
+			
+		}else {
+			EpochSampler sampler = this.sampler(trainingData.size());
+			for(int i = 0; i < iterations; i++) {
+				this.train(trainingData.getTrainingSet(sampler.next()), learningRate, recorder);					
+			}
+		}
+		
+		this.trainingFinished(recorder);
+	}
+	
+	
+	/**
+	 *  Trains the neural network using mini-batch backpropagation </br>
+	 *  During each iteration batchSize training sets get stacked as columns of one input matrix,
+	 *  so forward and backward pass run as matrix-matrix products. </br>
+	 *  The gradients get averaged over the batch and the weights get updated once per iteration. </br>
+	 *  The training sets get picked in a shuffled order, every epoch uses each of them once, see {@link EpochSampler}.
+	 *  With more than one iteration a background thread assembles the next batches while the current one trains.
+	 * 
+	 * @param trainingData - the data used for training
+	 * @param batchSize - the amount of training sets per iteration
+	 * @param learningRate - the learning rate > 0
+	 * @param iterations - the amount of training iterations
+	 * @throws IllegalArgumentException if the batch size, the learning rate or the iterations are <= 0 or if a training set doesnt match the layers of the neural network
+	 */
+	public void train(TrainingData trainingData, int batchSize, double learningRate, int iterations) {
+		
+		if(batchSize <= 0) throw new IllegalArgumentException("batch size must be >0");
+		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
+		if(iterations <= 0) throw new IllegalArgumentException("must at least do one iteration");
+		
+		TrainingRecorder recorder = TrainingRecorder.start(this.monitor);
+		
+		if(this.floats != null) {
+			this.trainFloat(trainingData, batchSize, learningRate, iterations, recorder);
+			this.trainingFinished(recorder);
+			return;
+		}
+		
+		TrainingWorkspace workspace = this.training(batchSize);
+		double[] inputs = workspace.outputs[0].toArray();
+		double[] targets = workspace.targets.toArray();
+		
+		try(BatchPrefetcher batches = this.batches(trainingData, batchSize, iterations)) {
+			for(int i = 0; i < iterations; i++) {
+				if(recorder != null) recorder.step();
+			
+				BatchPrefetcher.Batch batch = batches.take();
+				System.arraycopy(batch.inputs, 0, inputs, 0, inputs.length);
+				System.arraycopy(batch.targets, 0, targets, 0, targets.length);
+				batches.release(batch);
+				
+				this.trainStep(workspace, learningRate, recorder);
+			}
+		}
+		
+		this.trainingFinished(recorder);
+	}
+	
+	/**
+	 * Trains the neural network with one batch of training sets, the weights get updated once with the averaged gradients. </br>
+	 * Takes the samples as rows, so the views of {@link PackedTrainingData} can be passed in directly.
+	 * @param inputs - a "batch size by inputs"-matrix with the inputs of one training set per row
+	 * @param targets - a "batch size by outputs"-matrix with the expected outputs of one training set per row
+	 * @param learningRate - the learning rate > 0
+	 * @throws IllegalArgumentException if the matrices dont match the layers of the neural network or each other, or if the learning rate is <= 0
+	 */
+	public void train(Matrix inputs, Matrix targets, double learningRate) {
+		this.train(inputs, targets, learningRate, TrainingRecorder.start(this.monitor));
+	}
+	
+	/**
+	 * {@link #train(Matrix, Matrix, double)} with the recorder of the running train call
+	 */
+	private void train(Matrix inputs, Matrix targets, double learningRate, TrainingRecorder recorder) {
+		
+		if(inputs.getColumns() != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + inputs.getColumns() + " received");
+		if(targets.getColumns() != this.LAYERS[this.LAYERS.length-1]) throw new IllegalArgumentException("" + this.LAYERS[this.LAYERS.length-1] + " outputs excpected, but " + targets.getColumns() + " received");
+		if(inputs.getRows() != targets.getRows()) throw new IllegalArgumentException("inputs and targets must contain the same amount of training sets");
+		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
+		if(recorder != null) recorder.step();
+		
+		if(this.floats != null) {
+			this.floats.batch(inputs.getRows());
+			FloatMatrix in = this.floats.inputs();
+			FloatMatrix out = this.floats.targets();
+			for(int b = 0; b < inputs.getRows(); b++) {
+				for(int r = 0; r < in.getRows(); r++)
+					in.set(r, b, (float)inputs.get(b, r));
+				for(int r = 0; r < out.getRows(); r++)
+					out.set(r, b, (float)targets.get(b, r));
+			}
+			
+			this.trainFloatStep(learningRate, recorder);
+			return;
+		}
+		
+		TrainingWorkspace workspace = this.training(inputs.getRows());
+		Matrix in = workspace.outputs[0];
+		Matrix out = workspace.targets;
+		for(int b = 0; b < inputs.getRows(); b++) {
+			for(int r = 0; r < in.getRows(); r++)
+				in.set(r, b, inputs.get(b, r));
+			for(int r = 0; r < out.getRows(); r++)
+				out.set(r, b, targets.get(b, r));
+		}
+		
+		this.trainStep(workspace, learningRate, recorder);
+	}
+	
+	/**
+	 * Trains the neural network with the given training set and learning rate
+	 * @param trainingSet - a training set
+	 * @param learningRate - the learning rate
+	 * @throws IllegalArgumentException if the length of the inputs in the training set doesnt match the length of the inputs of the neural network or if the learning rate is <= 0
+	 */
+	public void train(TrainingSet trainingSet, double learningRate) {
+		this.train(trainingSet, learningRate, TrainingRecorder.start(this.monitor));
+	}
+	
+	/**
+	 * {@link #train(TrainingSet, double)} with the recorder of the running train call
+	 */
+	private void train(TrainingSet trainingSet, double learningRate, TrainingRecorder recorder) {
+		if(trainingSet.getInputs().length != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + trainingSet.getInputs().length + " received");
+		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
+		if(recorder != null) recorder.step();
+		
+		if(this.floats != null) {
+			this.floats.batch(1);
+			this.setColumn(this.floats.inputs(), 0, trainingSet.getInputs());
+			this.setColumn(this.floats.targets(), 0, trainingSet.getOutputs());
+			
+			this.trainFloatStep(learningRate, recorder);
+			return;
+		}
+		
+		if(trainingSet.getOutputs().length != this.LAYERS[this.LAYERS.length-1]) throw new IllegalArgumentException("" + this.LAYERS[this.LAYERS.length-1] + " outputs excpected, but " + trainingSet.getOutputs().length + " received");
+		
+		TrainingWorkspace workspace = this.training(1);
+		System.arraycopy(trainingSet.getInputs(), 0, workspace.outputs[0].toArray(), 0, this.LAYERS[0]);
+		System.arraycopy(trainingSet.getOutputs(), 0, workspace.targets.toArray(), 0, this.LAYERS[this.LAYERS.length-1]);
+		
+		this.trainStep(workspace, learningRate, recorder);
+	}
+	
+	/**
+	 * Trains with the batch in the inputs and targets of the workspace, the gradients get averaged over the batch. </br>
+	 * Only writes into the workspace, the weights and the biases.
+	 * @param recorder - marks the phases of the step, null if nothing gets measured
+	 */
+	private void trainStep(TrainingWorkspace workspace, double learningRate, TrainingRecorder recorder) {
+		
+		LinearAlgebraBackend backend = this.getBackend();
+		Activation[] activations = this.activations();
+		
+		if(recorder != null) recorder.forward();
+		workspace.forward(backend, this.weights, this.biases, activations);
+		if(recorder != null) recorder.backward();
+		workspace.backward(backend, this.weights, activations);
+		if(recorder != null) recorder.update();
+		
+		//plain SGD gets added to the weights directly, without the deltas in between
+		if(Optimizers.isSgd(this.getOptimizer())) {
+			workspace.addDeltas(backend, this.weights, this.biases, learningRate / workspace.batchSize());
+		}else {
+			workspace.averageDeltas(backend, this.weights);
+			this.optimize(workspace.weightDeltas, workspace.biasDeltas, learningRate);
+		}
+		
+		if(recorder != null) recorder.finish(workspace.batchSize(), workspace.loss());
+	}
+	
+	/**
+	 * The float version of {@link #trainStep(TrainingWorkspace, double, TrainingRecorder)}, trains with the batch in the float layers
+	 */
+	private void trainFloatStep(double learningRate, TrainingRecorder recorder) {
+		
+		this.floats.train(this.activations(), this.getOptimizer(), learningRate, recorder);
+		
+		if(recorder != null) recorder.finish(this.floats.targets().getColumns(), this.floats.loss());
+	}
+	
+	/**
+	 * Applies the deltas averaged over a batch to the weights and biases with the optimizer of this network
+	 * @param weightDeltas - the averaged deltas of the weights of every layer
+	 * @param biasDeltas - the averaged deltas of the biases of every layer
+	 */
+	void optimize(Matrix[] weightDeltas, Matrix[] biasDeltas, double learningRate) {
+		
+		Optimizer optimizer = this.getOptimizer();
+		if(this.optimizerState == null) {
+			int size = optimizer.getStateSize();
+			this.optimizerState = new double[2*this.weights.length][];
+			for(int i = 0; i < this.weights.length; i++) {
+				this.optimizerState[2*i] = new double[size * this.weights[i].getRows() * this.weights[i].getColumns()];
+				this.optimizerState[2*i+1] = new double[size * this.biases[i].getRows()];
+			}
+		}
+		
+		long step = ++this.optimizerSteps;
+		for(int i = 0; i < this.weights.length; i++) {
+			Matrix w = this.weights[i];
+			Matrix b = this.biases[i];
+			optimizer.update(w.toArray(), weightDeltas[i].toArray(), this.optimizerState[2*i], w.getRows() * w.getColumns(), learningRate, step);
+			optimizer.update(b.toArray(), biasDeltas[i].toArray(), this.optimizerState[2*i+1], b.getRows(), learningRate, step);
+		}
+	}
+	
+	/**
+	 * Returns the sampler for training data of the given size, a new one only gets created when the size changes
+	 */
+	private EpochSampler sampler(int size) {
+		
+		EpochSampler sampler = this.sampler;
+		if(sampler == null || sampler.size() != size)
+			this.sampler = sampler = new EpochSampler(size, new SplittableRandom());
+		
+		return sampler;
+	}
+	
+	/**
+	 * Starts assembling the batches of a training run, with a single batch there is nothing to prefetch
+	 */
+	private BatchPrefetcher batches(TrainingData trainingData, int batchSize, int iterations) {
+		
+		int depth = iterations > 1 ? BatchPrefetcher.DEPTH : 0;
+		return new BatchPrefetcher(trainingData, this.sampler(trainingData.size()), this.LAYERS[0], this.LAYERS[this.LAYERS.length-1], batchSize, iterations, depth);
+	}
+	
+	/**
+	 * Returns the training workspace for the given batch size, a new one only gets allocated when the batch size changes
+	 */
+	private TrainingWorkspace training(int batchSize) {
+		
+		TrainingWorkspace training = this.training;
+		if(training == null || training.batchSize() != batchSize)
+			this.training = training = new TrainingWorkspace(this.LAYERS, batchSize);
+		
+		return training;
+	}
+	
+
+
+	/**
+	 * The float version of {@link #train(TrainingData, int, double, int)}
+	 */
+	private void trainFloat(TrainingData trainingData, int batchSize, double learningRate, int iterations, TrainingRecorder recorder) {
+		
+		this.floats.batch(batchSize);
+		float[] inputs = this.floats.inputs().toArray();
+		float[] targets = this.floats.targets().toArray();
+		
+		try(BatchPrefetcher batches = this.batches(trainingData, batchSize, iterations)) {
+			for(int i = 0; i < iterations; i++) {
+				if(recorder != null) recorder.step();
+			
+				BatchPrefetcher.Batch batch = batches.take();
+				for(int j = 0; j < inputs.length; j++)
+					inputs[j] = (float)batch.inputs[j];
+				for(int j = 0; j < targets.length; j++)
+					targets[j] = (float)batch.targets[j];
+				batches.release(batch);
+				
+				this.trainFloatStep(learningRate, recorder);
+			}
+		}
+	}
+	
+	/**
+	 * Rounds the values to floats and writes them into the given column of m
+	 */
+	private void setColumn(FloatMatrix m, int column, double[] values) {
+		
+		if(values.length != m.getRows()) throw new IllegalArgumentException("" + m.getRows() + " values excpected, but " + values.length + " received");
+		
+		for(int r = 0; r < values.length; r++)
+			m.set(r, column, (float)values[r]);
+	}
+
+	/**
+	 * Calculates the root mean squared error of every TrainingSet contained in the TrainingData object and returns their mean. </br>
+	 * Runs in parallel on a snapshot of the network, see {@link Evaluator} for further metrics like the accuracy.
+	 * @param trainingData - The data used to calculate the error
+	 * @return - the error
+	 * @throws IllegalArgumentException if a training set doesnt match the layers of the neural network
+	 */
+	public double calculateError(TrainingData trainingData) {
+		
+		return new Evaluator().evaluate(this, trainingData).getMeanError();
+	}
+	
+	/**
+	 * Ends the recording of a train method taking {@link TrainingData}, then calls {@link #trainingFinished()}
+	 */
+	private void trainingFinished(TrainingRecorder recorder) {
+		
+		if(recorder != null)
+			recorder.finishRun(this.getPrecision(), this.getOptimizer());
+		
+		this.trainingFinished();
+	}
+	
+	/**
+	 * Gets called by every train method taking {@link TrainingData} when it is done
+	 */
+	void trainingFinished() {
+		
+		if(this.snapshot != null)
+			this.publishSnapshot();
+	}
+	
+	int[] layers() {
+		return this.LAYERS;
+	}
+	
+	/**
+	 * The double weights, null if the precision is {@link Precision#FLOAT}
+	 */
+	Matrix[] weights() {
+		return this.weights;
+	}
+	
+	Matrix[] biases() {
+		return this.biases;
+	}
+	
+	/**
+	 * The float weights and biases, null if the precision is {@link Precision#DOUBLE}
+	 */
+	FloatLayers floats() {
+		return this.floats;
+	}
+	
+	/**
+	 * Will write the NeuralNetwork object to the given file. </br>
+	 * This method will create the necessary paths to create this file. </br>
+	 * The file uses a versioned little-endian binary format containing the layers, the activation functions, the precision and the raw weights and biases.
+	 * @param neuralNetwork - the object which should be stored
+	 * @param file - the file where the object should be stored
+	 * @throws IOException - if anything goes wrong during writing...
+	 */
+	public static void save(NeuralNetwork neuralNetwork, File file) throws IOException {
+		
+		if(!file.exists()) file.getParentFile().mkdirs();
+		
+		ModelFile.write(neuralNetwork, file);
+		
+	}
+
+	/**
+	 * Restores a saved NeuralNetwork object from a File </br>
+	 * The file gets memory-mapped, files written by older versions using Java serialization can still be restored.
+	 * @param file - the file where the object is stored
+	 * @return - the restored NeuralNetwork object
+	 * @throws IOException if the file doesnt exist, something goes wrong and so on...
+	 */
+	public static NeuralNetwork restore(File file) throws IOException {
+		
+		if(ModelFile.isModelFile(file))
+			return ModelFile.read(file);
+		
+		ObjectInputStream objI = new ObjectInputStream(new FileInputStream(file));
+		
+		NeuralNetwork nn = null;
+		try {
+			nn = (NeuralNetwork)objI.readObject();
+			
+		}catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+		
+		objI.close();
+		
+		return nn;
+	}
+	
+	
+}
@@ -0,0 +1,90 @@
+package schiemannjeremy.nn;
+
+import java.io.Serializable;
+
+/**
+ * The rule which turns the gradients of a training step into changes of the weights and biases. </br>
+ * The default is plain stochastic gradient descent, the others keep state per weight and mostly reach
+ * the same error in far fewer iterations. Set on a network with {@link NeuralNetwork#setOptimizer(Optimizer)}. </br>
+ * The state of every weight and bias matrix is one flat array of {@link #getStateSize()} values per parameter,
+ * owned by the network and passed into every update. An update reads and writes the parameters, the gradients
+ * and the state in a single pass.
+ * @author Jeremy Schiemann
+ *
+ */
+public interface Optimizer extends Serializable {
+
+	/**
+	 * @return - how many values of state the optimizer needs per parameter
+	 */
+	public int getStateSize();
+
+	/**
+	 * Updates the parameters of one weight or bias matrix
+	 * @param params - the weights or biases
+	 * @param delta - for every parameter the negative gradient of the error averaged over the batch, the direction plain SGD would step in
+	 * @param state - {@link #getStateSize()} * length values, 0 before the first update. The state of parameter i is at i, length + i and so on
+	 * @param length - the amount of parameters
+	 * @param learningRate - the learning rate passed to the train method
+	 * @param step - the number of this update, starting with 1
+	 */
+	public void update(double[] params, double[] delta, double[] state, int length, double learningRate, long step);
+
+	/**
+	 * The float version of {@link #update(double[], double[], double[], int, double, long)}, for networks with {@link Precision#FLOAT}
+	 */
+	public void update(float[] params, float[] delta, float[] state, int length, double learningRate, long step);
+
+	/**
+	 * Plain stochastic gradient descent: params += learningRate * delta
+	 */
+	public static Optimizer sgd() {
+		return Optimizers.SGD;
+	}
+
+	/**
+	 * Gradient descent with momentum, the steps keep a part of the previous ones: </br>
+	 * v = momentum * v + delta, params += learningRate * v
+	 * @param momentum - the part of the previous velocity kept, e.g. 0.9
+	 */
+	public static Optimizer momentum(double momentum) {
+		return new Optimizers.Momentum(momentum, false);
+	}
+
+	/**
+	 * Gradient descent with Nesterov momentum, which looks ahead along the velocity: </br>
+	 * v = momentum * v + delta, params += learningRate * (momentum * v + delta)
+	 * @param momentum - the part of the previous velocity kept, e.g. 0.9
+	 */
+	public static Optimizer nesterov(double momentum) {
+		return new Optimizers.Momentum(momentum, true);
+	}
+
+	/**
+	 * RMSProp, divides the steps by a moving average of the squared gradients: </br>
+	 * s = decay * s + (1 - decay) * delta^2, params += learningRate * delta / (sqrt(s) + 1e-8)
+	 * @param decay - the part of the previous average kept, e.g. 0.9
+	 */
+	public static Optimizer rmsProp(double decay) {
+		return new Optimizers.RmsProp(decay);
+	}
+
+	/**
+	 * Adam with the usual beta1 = 0.9 and beta2 = 0.999, typically used with learning rates around 0.001
+	 * @see #adam(double, double)
+	 */
+	public static Optimizer adam() {
+		return adam(0.9, 0.999);
+	}
+
+	/**
+	 * Adam, moving averages of the gradients and their squares with bias correction: </br>
+	 * m = beta1 * m + (1 - beta1) * delta, v = beta2 * v + (1 - beta2) * delta^2, </br>
+	 * params += learningRate * sqrt(1 - beta2^step) / (1 - beta1^step) * m / (sqrt(v) + 1e-8)
+	 * @param beta1 - the part of the previous average of the gradients kept
+	 * @param beta2 - the part of the previous average of the squared gradients kept
+	 */
+	public static Optimizer adam(double beta1, double beta2) {
+		return new Optimizers.Adam(beta1, beta2);
+	}
+}
@@ -0,0 +1,195 @@
+package schiemannjeremy.nn;
+
+import schiemannjeremy.linearalgebra.ArrayMath;
+
+/**
+ * The optimizers created by the factory methods of {@link Optimizer}. </br>
+ * Every update is one loop over the parameters which reads the gradient and the state once and writes the parameter
+ * and the state once. RMSProp and Adam run on {@link ArrayMath}, because the JIT doesnt vectorize their square roots and divisions.
+ * @author Jeremy Schiemann
+ *
+ */
+final class Optimizers {
+
+	static final Optimizer SGD = new Sgd();
+
+	/** added to the divisor of RMSProp and Adam, so parameters without any gradient yet dont get divided by 0 */
+	private static final double EPSILON = 1e-8;
+
+	private Optimizers() {}
+
+	/**
+	 * Checks if the optimizer is plain SGD, which networks apply fused into the computation of the weight gradients
+	 */
+	static boolean isSgd(Optimizer optimizer) {
+		return optimizer instanceof Sgd;
+	}
+
+	static final class Sgd implements Optimizer {
+
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = -2306339846471562512L;
+
+		@Override
+		public int getStateSize() {
+			return 0;
+		}
+
+		@Override
+		public void update(double[] params, double[] delta, double[] state, int length, double learningRate, long step) {
+			for(int i = 0; i < length; i++)
+				params[i] += learningRate * delta[i];
+		}
+
+		@Override
+		public void update(float[] params, float[] delta, float[] state, int length, double learningRate, long step) {
+			float lr = (float)learningRate;
+			for(int i = 0; i < length; i++)
+				params[i] += lr * delta[i];
+		}
+
+		private Object readResolve() {
+			return SGD;
+		}
+	}
+
+	static final class Momentum implements Optimizer {
+
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = 3975271383420381658L;
+		private final double momentum;
+		private final boolean nesterov;
+
+		Momentum(double momentum, boolean nesterov) {
+
+			if(momentum < 0 || momentum >= 1) throw new IllegalArgumentException("momentum must be in [0, 1)");
+
+			this.momentum = momentum;
+			this.nesterov = nesterov;
+		}
+
+		@Override
+		public int getStateSize() {
+			return 1;
+		}
+
+		@Override
+		public void update(double[] params, double[] delta, double[] state, int length, double learningRate, long step) {
+
+			double mu = this.momentum;
+			if(this.nesterov) {
+				for(int i = 0; i < length; i++) {
+					double v = mu * state[i] + delta[i];
+					state[i] = v;
+					params[i] += learningRate * (mu * v + delta[i]);
+				}
+			}else {
+				for(int i = 0; i < length; i++) {
+					double v = mu * state[i] + delta[i];
+					state[i] = v;
+					params[i] += learningRate * v;
+				}
+			}
+		}
+
+		@Override
+		public void update(float[] params, float[] delta, float[] state, int length, double learningRate, long step) {
+
+			float mu = (float)this.momentum;
+			float lr = (float)learningRate;
+			if(this.nesterov) {
+				for(int i = 0; i < length; i++) {
+					float v = mu * state[i] + delta[i];
+					state[i] = v;
+					params[i] += lr * (mu * v + delta[i]);
+				}
+			}else {
+				for(int i = 0; i < length; i++) {
+					float v = mu * state[i] + delta[i];
+					state[i] = v;
+					params[i] += lr * v;
+				}
+			}
+		}
+	}
+
+	static final class RmsProp implements Optimizer {
+
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = -8447734405853326193L;
+		private final double decay;
+
+		RmsProp(double decay) {
+
+			if(decay < 0 || decay >= 1) throw new IllegalArgumentException("decay must be in [0, 1)");
+
+			this.decay = decay;
+		}
+
+		@Override
+		public int getStateSize() {
+			return 1;
+		}
+
+		@Override
+		public void update(double[] params, double[] delta, double[] state, int length, double learningRate, long step) {
+
+			ArrayMath.rmsProp(params, delta, state, length, this.decay, learningRate, EPSILON);
+		}
+
+		@Override
+		public void update(float[] params, float[] delta, float[] state, int length, double learningRate, long step) {
+
+			ArrayMath.rmsProp(params, delta, state, length, (float)this.decay, (float)learningRate, (float)EPSILON);
+		}
+	}
+
+	static final class Adam implements Optimizer {
+
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = 1519436093420935716L;
+		private final double beta1;
+		private final double beta2;
+
+		Adam(double beta1, double beta2) {
+
+			if(beta1 < 0 || beta1 >= 1 || beta2 < 0 || beta2 >= 1) throw new IllegalArgumentException("betas must be in [0, 1)");
+
+			this.beta1 = beta1;
+			this.beta2 = beta2;
+		}
+
+		@Override
+		public int getStateSize() {
+			return 2;
+		}
+
+		/**
+		 * The learning rate with the bias correction of both averages for the given step
+		 */
+		private double correctedRate(double learningRate, long step) {
+			return learningRate * Math.sqrt(1.0 - Math.pow(this.beta2, step)) / (1.0 - Math.pow(this.beta1, step));
+		}
+
+		@Override
+		public void update(double[] params, double[] delta, double[] state, int length, double learningRate, long step) {
+
+			//the first moments are at [0, length), the second ones at [length, 2*length)
+			ArrayMath.adam(params, delta, state, length, this.beta1, this.beta2, this.correctedRate(learningRate, step), EPSILON);
+		}
+
+		@Override
+		public void update(float[] params, float[] delta, float[] state, int length, double learningRate, long step) {
+
+			ArrayMath.adam(params, delta, state, length, (float)this.beta1, (float)this.beta2, (float)this.correctedRate(learningRate, step), (float)EPSILON);
+		}
+	}
+}
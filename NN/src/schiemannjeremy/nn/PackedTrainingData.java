@@ -0,0 +1,201 @@
+package schiemannjeremy.nn;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * TrainingData which stores all inputs in one contiguous double array and all outputs in another one. </br>
+ *
+ * The inputs of the training set i are at <code>inputs[i*inputCount ... (i+1)*inputCount)</code>, same for the outputs.
+ * Compared to one {@link TrainingSet} with two arrays per sample this saves three objects per training set
+ * and keeps neighbouring samples next to each other in memory. </br>
+ * {@link #inputRow(int)} and {@link #inputBatch(int, int)} return matrices sharing the storage, which can be passed
+ * to {@link NeuralNetwork#train(Matrix, Matrix, double)} without copying any values.
+ * @author Jeremy Schiemann
+ *
+ */
+public class PackedTrainingData extends TrainingData{
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -1190425402385521037L;
+	private final int inputCount;
+	private final int outputCount;
+	private double[] inputs;
+	private double[] outputs;
+	private int size;
+
+	/**
+	 * Constructs an empty PackedTrainingData object for training sets with the given amount of inputs and outputs
+	 * @param inputCount - amount of inputs of every training set
+	 * @param outputCount - amount of outputs of every training set
+	 * @param capacity - amount of training sets which fit in before the storage has to grow
+	 * @throws IllegalArgumentException if the amount of inputs or outputs is <= 0 or the capacity is < 0
+	 */
+	public PackedTrainingData(int inputCount, int outputCount, int capacity) {
+
+		if(inputCount <= 0 || outputCount <= 0) throw new IllegalArgumentException("need at least one input and one output");
+		if(capacity < 0) throw new IllegalArgumentException("capacity cant be negative");
+
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+		this.inputs = new double[inputCount * capacity];
+		this.outputs = new double[outputCount * capacity];
+	}
+
+	/**
+	 * Constructs an empty PackedTrainingData object for training sets with the given amount of inputs and outputs
+	 * @param inputCount - amount of inputs of every training set
+	 * @param outputCount - amount of outputs of every training set
+	 */
+	public PackedTrainingData(int inputCount, int outputCount) {
+		this(inputCount, outputCount, 16);
+	}
+
+	/**
+	 * Copies all training sets of the given training data into the packed layout
+	 * @param trainingData - the training data to copy, must contain at least one training set
+	 * @return - the packed copy
+	 * @throws IllegalArgumentException if the training data is empty or the training sets have different sizes
+	 */
+	public static PackedTrainingData of(TrainingData trainingData) {
+
+		if(trainingData.size() == 0) throw new IllegalArgumentException("training data is empty");
+
+		TrainingSet first = trainingData.getTrainingSet(0);
+		PackedTrainingData packed = new PackedTrainingData(first.getInputs().length, first.getOutputs().length, trainingData.size());
+
+		for(TrainingSet trainingSet : trainingData)
+			packed.add(trainingSet);
+
+		return packed;
+	}
+
+	/**
+	 * Copies the values of the training set into the packed storage
+	 * @param trainingSet - the TrainingSet object that should be added
+	 * @return - true if operation was successful
+	 * @throws IllegalArgumentException if the amount of inputs or outputs doesnt match
+	 */
+	@Override
+	public boolean add(TrainingSet trainingSet) {
+
+		if(trainingSet.getInputs().length != this.inputCount) throw new IllegalArgumentException("" + this.inputCount + " inputs excpected, but " + trainingSet.getInputs().length + " received");
+		if(trainingSet.getOutputs().length != this.outputCount) throw new IllegalArgumentException("" + this.outputCount + " outputs excpected, but " + trainingSet.getOutputs().length + " received");
+
+		if((this.size+1) * this.inputCount > this.inputs.length) {
+			int capacity = Math.max(16, this.size + (this.size >> 1));
+			this.inputs = Arrays.copyOf(this.inputs, capacity * this.inputCount);
+			this.outputs = Arrays.copyOf(this.outputs, capacity * this.outputCount);
+		}
+
+		System.arraycopy(trainingSet.getInputs(), 0, this.inputs, this.size * this.inputCount, this.inputCount);
+		System.arraycopy(trainingSet.getOutputs(), 0, this.outputs, this.size * this.outputCount, this.outputCount);
+		this.size++;
+
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a copy of the TrainingSet at the specified location </br>
+	 * Use {@link #read(int, double[], double[])} or the views to avoid the copy.
+	 * @param index - the locations
+	 * @return - the TrainingSet object
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	@Override
+	public TrainingSet getTrainingSet(int index) {
+
+		double[] inputs = new double[this.inputCount];
+		double[] outputs = new double[this.outputCount];
+		this.read(index, inputs, outputs);
+
+		return new TrainingSet(inputs, outputs);
+	}
+
+	/**
+	 * returns a copy of a random TrainingSet.
+	 * @return - the TrainingSet Object
+	 */
+	@Override
+	public TrainingSet getRandomSet() {
+		return this.getTrainingSet(ThreadLocalRandom.current().nextInt(this.size));
+	}
+
+	@Override
+	public void read(int index, double[] inputs, double[] outputs) {
+
+		this.check(index, 1);
+		if(inputs.length != this.inputCount) throw new IllegalArgumentException("" + inputs.length + " inputs excpected, but " + this.inputCount + " stored");
+		if(outputs.length != this.outputCount) throw new IllegalArgumentException("" + outputs.length + " outputs excpected, but " + this.outputCount + " stored");
+
+		System.arraycopy(this.inputs, index * this.inputCount, inputs, 0, this.inputCount);
+		System.arraycopy(this.outputs, index * this.outputCount, outputs, 0, this.outputCount);
+	}
+
+	/**
+	 * Returns the inputs of one training set as a "1 by inputs"-matrix sharing the storage
+	 * @param index - the location
+	 * @return - the view
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public Matrix inputRow(int index) {
+		return this.inputBatch(index, 1);
+	}
+
+	/**
+	 * Returns the outputs of one training set as a "1 by outputs"-matrix sharing the storage
+	 * @param index - the location
+	 * @return - the view
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public Matrix outputRow(int index) {
+		return this.outputBatch(index, 1);
+	}
+
+	/**
+	 * Returns the inputs of count consecutive training sets as a "count by inputs"-matrix sharing the storage, one training set per row
+	 * @param from - the location of the first training set
+	 * @param count - the amount of training sets
+	 * @return - the view
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	public Matrix inputBatch(int from, int count) {
+
+		this.check(from, count);
+		return new Matrix(this.inputs.length / this.inputCount, this.inputCount, this.inputs).subMatrix(from, 0, count, this.inputCount);
+	}
+
+	/**
+	 * Returns the outputs of count consecutive training sets as a "count by outputs"-matrix sharing the storage, one training set per row
+	 * @param from - the location of the first training set
+	 * @param count - the amount of training sets
+	 * @return - the view
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	public Matrix outputBatch(int from, int count) {
+
+		this.check(from, count);
+		return new Matrix(this.outputs.length / this.outputCount, this.outputCount, this.outputs).subMatrix(from, 0, count, this.outputCount);
+	}
+
+	public int getInputCount() {
+		return this.inputCount;
+	}
+
+	public int getOutputCount() {
+		return this.outputCount;
+	}
+
+	private void check(int from, int count) {
+		if(from < 0 || count < 0 || from + count > this.size) throw new IndexOutOfBoundsException("Range [" + from + ", " + (from+count) + ") out of bounds for size " + this.size);
+	}
+}
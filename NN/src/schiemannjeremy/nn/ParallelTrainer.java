@@ -0,0 +1,377 @@
+package schiemannjeremy.nn;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import schiemannjeremy.linearalgebra.LinearAlgebraBackend;
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * Trains a {@link NeuralNetwork} with several threads at once. </br>
+ *
+ * Every worker thread goes through the {@link TrainingData} in its own shuffled order, see {@link EpochSampler},
+ * and keeps its own outputs, errors and gradients in a private workspace. </br>
+ * Two modes are available: </br>
+ * {@link #trainHogwild(TrainingData, double, int)} lets every worker apply its updates to the shared weights and biases without any locking.
+ * Updates of different workers can overwrite each other now and then, which SGD tolerates well, and in exchange the workers never wait. </br>
+ * {@link #trainSynchronous(TrainingData, int, double, int)} splits every mini-batch between the workers,
+ * averages their gradients once all of them are done and applies one update per batch, just like
+ * {@link NeuralNetwork#train(TrainingData, int, double, int)} does on one thread.
+ * @author Jeremy Schiemann
+ *
+ */
+public class ParallelTrainer {
+
+	private final NeuralNetwork network;
+	private final int threads;
+
+	/** the samplers of the workers get split off this one */
+	private final SplittableRandom random = new SplittableRandom();
+
+	/**
+	 * Creates a trainer for the given network
+	 * @param network - the network to train
+	 * @param threads - the amount of worker threads
+	 * @throws IllegalArgumentException if the amount of threads is <= 0
+	 */
+	public ParallelTrainer(NeuralNetwork network, int threads) {
+
+		if(threads <= 0) throw new IllegalArgumentException("need at least one thread");
+
+		this.network = network;
+		this.threads = threads;
+	}
+
+	/**
+	 * Creates a trainer for the given network which uses one thread per available processor
+	 * @param network - the network to train
+	 */
+	public ParallelTrainer(NeuralNetwork network) {
+		this(network, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Trains the network lock-free (Hogwild) </br>
+	 * Every worker trains with one training set per iteration and applies its update directly to the shared weights.
+	 * @param trainingData - the data used for training
+	 * @param learningRate - the learning rate > 0
+	 * @param iterations - the total amount of training sets, split evenly between the workers
+	 * @return - how many training sets every worker processed per second
+	 * @throws IllegalArgumentException if the learning rate or the iterations are <= 0
+	 * @throws IllegalStateException if the network has {@link Precision#FLOAT} or an optimizer other than {@link Optimizer#sgd()}
+	 */
+	public Statistics trainHogwild(TrainingData trainingData, double learningRate, int iterations) {
+
+		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
+		if(iterations <= 0) throw new IllegalArgumentException("must at least do one iteration");
+		if(this.network.getPrecision() != Precision.DOUBLE) throw new IllegalStateException("only networks with double precision can be trained in parallel");
+		if(!Optimizers.isSgd(this.network.getOptimizer())) throw new IllegalStateException("Hogwild only supports SGD, use trainSynchronous for other optimizers");
+
+		final int[] layers = this.network.layers();
+		final Matrix[] weights = this.network.weights();
+		final Matrix[] biases = this.network.biases();
+		final Activation[] activations = this.network.activations();
+		final LinearAlgebraBackend backend = this.network.getBackend();
+
+		final EpochSampler[] samplers = this.samplers(trainingData.size());
+
+		Statistics statistics = this.run(worker -> {
+			TrainingWorkspace workspace = new TrainingWorkspace(layers);
+			EpochSampler sampler = samplers[worker];
+			int samples = share(iterations, this.threads, worker);
+
+			for(int i = 0; i < samples; i++) {
+				if(Thread.currentThread().isInterrupted()) throw new InterruptedException();
+
+				TrainingSet trainingSet = trainingData.getTrainingSet(sampler.next());
+				check(layers, trainingSet);
+
+				workspace.forward(backend, weights, biases, activations, trainingSet.getInputs());
+				workspace.backward(backend, weights, activations, trainingSet.getOutputs());
+				workspace.addDeltas(backend, weights, biases, learningRate);
+			}
+
+			return samples;
+		});
+
+		this.network.trainingFinished();
+		return statistics;
+	}
+
+	/**
+	 * Trains the network with synchronous data-parallel mini-batches </br>
+	 * Every batch gets split between the workers, their gradients get summed up and the averaged update gets applied once per batch with the optimizer of the network.
+	 * @param trainingData - the data used for training
+	 * @param batchSize - the amount of training sets per batch
+	 * @param learningRate - the learning rate > 0
+	 * @param iterations - the amount of batches
+	 * @return - how many training sets every worker processed per second
+	 * @throws IllegalArgumentException if the batch size, the learning rate or the iterations are <= 0
+	 * @throws IllegalStateException if the network has {@link Precision#FLOAT}
+	 */
+	public Statistics trainSynchronous(TrainingData trainingData, int batchSize, double learningRate, int iterations) {
+
+		if(batchSize <= 0) throw new IllegalArgumentException("batch size must be >0");
+		if(learningRate <= 0) throw new IllegalArgumentException("learning rate must be >0");
+		if(iterations <= 0) throw new IllegalArgumentException("must at least do one iteration");
+		if(this.network.getPrecision() != Precision.DOUBLE) throw new IllegalStateException("only networks with double precision can be trained in parallel");
+
+		final int[] layers = this.network.layers();
+		final Matrix[] weights = this.network.weights();
+		final Matrix[] biases = this.network.biases();
+		final Activation[] activations = this.network.activations();
+		final LinearAlgebraBackend backend = this.network.getBackend();
+
+		//gradient sums of every worker
+		final Matrix[][] weightSums = new Matrix[this.threads][];
+		final Matrix[][] biasSums = new Matrix[this.threads][];
+		for(int t = 0; t < this.threads; t++) {
+			weightSums[t] = new Matrix[weights.length];
+			biasSums[t] = new Matrix[biases.length];
+			for(int i = 0; i < weights.length; i++) {
+				weightSums[t][i] = new Matrix(weights[i].getRows(), weights[i].getColumns());
+				biasSums[t][i] = new Matrix(biases[i].getRows(), 1);
+			}
+		}
+
+		final boolean sgd = Optimizers.isSgd(this.network.getOptimizer());
+
+		//set by the first worker which fails, the others stop at their next barrier
+		final AtomicBoolean failed = new AtomicBoolean();
+
+		//runs on the last worker reaching the barrier while all others wait, a batch with a failed worker doesnt get applied
+		final CyclicBarrier barrier = new CyclicBarrier(this.threads, () -> {
+			if(failed.get()) return;
+
+			if(sgd) {
+				for(int t = 0; t < this.threads; t++) {
+					for(int i = 0; i < weights.length; i++) {
+						backend.axpy(learningRate / batchSize, weightSums[t][i], weights[i]);
+						backend.axpy(learningRate / batchSize, biasSums[t][i], biases[i]);
+					}
+				}
+			}else {
+				//the sums of all workers get averaged in the ones of the first worker
+				for(int i = 0; i < weights.length; i++) {
+					for(int t = 1; t < this.threads; t++) {
+						backend.axpy(1.0, weightSums[t][i], weightSums[0][i]);
+						backend.axpy(1.0, biasSums[t][i], biasSums[0][i]);
+					}
+					backend.scale(weightSums[0][i], 1.0 / batchSize);
+					backend.scale(biasSums[0][i], 1.0 / batchSize);
+				}
+				this.network.optimize(weightSums[0], biasSums[0], learningRate);
+			}
+
+			for(int t = 0; t < this.threads; t++) {
+				for(int i = 0; i < weights.length; i++) {
+					backend.scale(weightSums[t][i], 0);
+					backend.scale(biasSums[t][i], 0);
+				}
+			}
+		});
+
+		final EpochSampler[] samplers = this.samplers(trainingData.size());
+
+		Statistics statistics = this.run(worker -> {
+			TrainingWorkspace workspace = new TrainingWorkspace(layers);
+			EpochSampler sampler = samplers[worker];
+			int share = share(batchSize, this.threads, worker);
+
+			try {
+				for(int i = 0; i < iterations; i++) {
+					for(int b = 0; b < share; b++) {
+						TrainingSet trainingSet = trainingData.getTrainingSet(sampler.next());
+						check(layers, trainingSet);
+
+						workspace.forward(backend, weights, biases, activations, trainingSet.getInputs());
+						workspace.backward(backend, weights, activations, trainingSet.getOutputs());
+						workspace.addDeltas(backend, weightSums[worker], biasSums[worker], 1.0);
+					}
+
+					if(failed.get()) throw new BrokenBarrierException();
+					barrier.await();
+				}
+			}catch (RuntimeException | Error e) {
+				failed.set(true);
+				breakBarrier(barrier);
+				throw e;
+			}
+
+			return share * iterations;
+		});
+
+		this.network.trainingFinished();
+		return statistics;
+	}
+
+	/**
+	 * Breaks the barrier for good: workers waiting at it and every later await throw a BrokenBarrierException.
+	 * Unlike {@link CyclicBarrier#reset()}, which starts a new generation late workers would wait at forever,
+	 * a timed out await leaves the barrier broken. If the calling worker is the last one missing the barrier trips instead,
+	 * the barrier action skips the batch and the others stop before their next await.
+	 */
+	private static void breakBarrier(CyclicBarrier barrier) {
+
+		try {
+			barrier.await(0, TimeUnit.NANOSECONDS);
+		}catch (TimeoutException | BrokenBarrierException e) {
+			//broken as intended
+		}catch (InterruptedException e) {
+			//interrupting a waiting worker breaks the barrier as well
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Runs the worker on every thread and measures how fast each of them was. </br>
+	 * After the first failed worker the others get interrupted, the threads are daemons so a stuck worker never keeps the JVM alive.
+	 */
+	private Statistics run(Worker worker) {
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "parallel-trainer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			CompletionService<double[]> completion = new ExecutorCompletionService<>(executor);
+			for(int t = 0; t < this.threads; t++) {
+				final int index = t;
+				completion.submit(() -> {
+					long start = System.nanoTime();
+					int samples = worker.train(index);
+					return new double[] {index, samples, (System.nanoTime() - start) / 1e9};
+				});
+			}
+
+			double[] samples = new double[this.threads];
+			double[] seconds = new double[this.threads];
+			Throwable failure = null;
+			for(int t = 0; t < this.threads; t++) {
+				try {
+					double[] result = completion.take().get();
+					samples[(int)result[0]] = result[1];
+					seconds[(int)result[0]] = result[2];
+				}catch (ExecutionException e) {
+					//interrupt the others, but still wait for them so none of them touches the network after returning
+					if(failure == null)
+						executor.shutdownNow();
+
+					//prefer the exception which caused the others to fail
+					if(failure == null || (isFollowUp(failure) && !isFollowUp(e.getCause())))
+						failure = e.getCause();
+				}
+			}
+
+			if(failure instanceof RuntimeException) throw (RuntimeException)failure;
+			if(failure instanceof Error) throw (Error)failure;
+			if(failure != null) throw new IllegalStateException("training failed", failure);
+
+			return new Statistics(samples, seconds);
+
+		}catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("training got interrupted", e);
+		}finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return - true if a worker failed only because another one did
+	 */
+	private static boolean isFollowUp(Throwable failure) {
+		return failure instanceof BrokenBarrierException || failure instanceof InterruptedException;
+	}
+
+	/**
+	 * Creates one sampler per worker, split off the random number generator of this trainer before the workers start
+	 */
+	private EpochSampler[] samplers(int size) {
+
+		EpochSampler[] samplers = new EpochSampler[this.threads];
+		for(int t = 0; t < this.threads; t++)
+			samplers[t] = new EpochSampler(size, this.random.split());
+
+		return samplers;
+	}
+
+	/**
+	 * Splits the amount as evenly as possible and returns the part of the given worker
+	 */
+	private static int share(int amount, int workers, int worker) {
+		return amount / workers + (worker < amount % workers ? 1 : 0);
+	}
+
+	private static void check(int[] layers, TrainingSet trainingSet) {
+		if(trainingSet.getInputs().length != layers[0]) throw new IllegalArgumentException("" + layers[0] + " inputs excpected, but " + trainingSet.getInputs().length + " received");
+		if(trainingSet.getOutputs().length != layers[layers.length-1]) throw new IllegalArgumentException("" + layers[layers.length-1] + " outputs excpected, but " + trainingSet.getOutputs().length + " received");
+	}
+
+	/**
+	 * The work one thread does, returns the amount of training sets it processed
+	 */
+	private interface Worker {
+		int train(int worker) throws InterruptedException, BrokenBarrierException;
+	}
+
+	/**
+	 * The throughput of every worker during one call of a train method
+	 */
+	public static final class Statistics {
+
+		private final double[] samples;
+		private final double[] seconds;
+
+		Statistics(double[] samples, double[] seconds) {
+			this.samples = samples;
+			this.seconds = seconds;
+		}
+
+		public int getThreads() {
+			return this.samples.length;
+		}
+
+		/**
+		 * Returns how many training sets the given worker processed per second
+		 * @param thread - the index of the worker
+		 * @return - training sets per second
+		 */
+		public double getSamplesPerSecond(int thread) {
+			return this.samples[thread] / this.seconds[thread];
+		}
+
+		/**
+		 * Returns the sum of {@link #getSamplesPerSecond(int)} over all workers
+		 * @return - training sets per second
+		 */
+		public double getTotalSamplesPerSecond() {
+
+			double total = 0;
+			for(int t = 0; t < this.samples.length; t++)
+				total += this.getSamplesPerSecond(t);
+
+			return total;
+		}
+
+		@Override
+		public String toString() {
+
+			String s = String.format("%d threads, %.0f samples/s total", this.samples.length, this.getTotalSamplesPerSecond());
+			for(int t = 0; t < this.samples.length; t++)
+				s += String.format("\n  thread %d: %.0f samples/s", t, this.getSamplesPerSecond(t));
+
+			return s;
+		}
+	}
+}
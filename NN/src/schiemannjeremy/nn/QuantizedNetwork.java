@@ -0,0 +1,326 @@
+package schiemannjeremy.nn;
+
+import java.io.Serializable;
+
+import schiemannjeremy.linearalgebra.Matrix;
+import schiemannjeremy.linearalgebra.QuantizedMatrix;
+
+/**
+ * An int8 copy of a trained {@link NeuralNetwork} which can only predict. </br>
+ *
+ * {@link #quantize(NeuralNetwork, TrainingData)} stores every weight matrix as a {@link QuantizedMatrix} with one scale per row.
+ * The inputs of every layer get quantized as well, with one scale per layer which is calibrated by running sample data
+ * through the original network and recording the largest absolute value every layer receives. </br>
+ * Predicting multiplies int8 weights with int8 inputs and sums them up as ints, only the sums get scaled back to double,
+ * the biases and the activation function are applied in double. The weights take an eighth of the memory of double weights. </br>
+ * Inputs and outputs stay double arrays like in {@link FrozenNetwork}, any number of threads can predict at the same time.
+ * How much accuracy the quantization costs gets measured on the calibration data, see {@link #getCalibrationDelta()}.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class QuantizedNetwork implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 5157425329390873213L;
+	private final int[] LAYERS;
+	private final QuantizedMatrix[] weights;
+	private final Matrix[] biases;
+
+	/** the scale of the quantized inputs of every weight layer */
+	private final double[] inputScales;
+	private final ActivationFunction[] funcs;
+	private AccuracyDelta calibrationDelta;
+	private transient Activation[] activations;
+
+	private QuantizedNetwork(int[] layers, QuantizedMatrix[] weights, Matrix[] biases, double[] inputScales, ActivationFunction[] funcs) {
+		this.LAYERS = layers;
+		this.weights = weights;
+		this.biases = biases;
+		this.inputScales = inputScales;
+		this.funcs = funcs;
+	}
+
+	/**
+	 * Quantizes the weights of the network to int8 and calibrates the scales of the layer inputs on the given data. </br>
+	 * The calibration data should cover the range of inputs the network sees in use, values outside the calibrated range get clamped.
+	 * @param neuralNetwork - the trained network, doesnt get changed
+	 * @param calibration - sample data, only the inputs are needed for the calibration
+	 * @return - the quantized network
+	 * @throws IllegalArgumentException if the calibration data is empty or doesnt match the layers of the network
+	 */
+	public static QuantizedNetwork quantize(NeuralNetwork neuralNetwork, TrainingData calibration) {
+
+		if(calibration.size() == 0) throw new IllegalArgumentException("need at least one training set for the calibration");
+
+		int[] layers = neuralNetwork.layers().clone();
+		Matrix[] weights = new Matrix[layers.length-1];
+		Matrix[] biases = new Matrix[layers.length-1];
+		for(int i = 0; i < weights.length; i++) {
+			if(neuralNetwork.getPrecision() == Precision.FLOAT) {
+				weights[i] = neuralNetwork.floats().weights[i].toMatrix();
+				biases[i] = neuralNetwork.floats().biases[i].toMatrix();
+			}else {
+				weights[i] = neuralNetwork.weights()[i];
+				biases[i] = neuralNetwork.biases()[i].clone();
+			}
+		}
+
+		double[] max = calibrate(layers, weights, biases, neuralNetwork.activations(), calibration);
+
+		QuantizedMatrix[] quantized = new QuantizedMatrix[weights.length];
+		double[] inputScales = new double[weights.length];
+		for(int i = 0; i < weights.length; i++) {
+			quantized[i] = QuantizedMatrix.quantize(weights[i]);
+			inputScales[i] = QuantizedMatrix.scale(max[i]);
+		}
+
+		QuantizedNetwork network = new QuantizedNetwork(layers, quantized, biases, inputScales, neuralNetwork.getActivationFunctions());
+		network.calibrationDelta = network.compare(neuralNetwork, calibration);
+
+		return network;
+	}
+
+	/**
+	 * Runs every training set through the double weights and returns the largest absolute input value of every weight layer
+	 */
+	private static double[] calibrate(int[] layers, Matrix[] weights, Matrix[] biases, Activation[] activations, TrainingData calibration) {
+
+		double[] max = new double[weights.length];
+		Matrix[] values = new Matrix[layers.length];
+		for(int i = 0; i < layers.length; i++)
+			values[i] = new Matrix(layers[i], 1);
+
+		double[] inputs = values[0].toArray();
+		double[] outputs = new double[layers[layers.length-1]];
+
+		for(int s = 0; s < calibration.size(); s++) {
+			calibration.read(s, inputs, outputs);
+
+			for(int i = 0; i < weights.length; i++) {
+				for(double v : values[i].toArray())
+					max[i] = Math.max(max[i], Math.abs(v));
+
+				Matrix.mulAdd(weights[i], values[i], biases[i], activations[i].kernel, values[i+1]);
+			}
+		}
+
+		return max;
+	}
+
+	/**
+	 * Feeds the give data to the neural network and return the result
+	 * @param input_array - an array containing every value for the inputs
+	 * @return an array containing every output
+	 * @throws IllegalArgumentException when the size of the input array doesnt match the inputs of the neural network
+	 */
+	public double[] predict(double[] input_array) {
+
+		double[] output_array = new double[this.LAYERS[this.LAYERS.length-1]];
+		this.predict(input_array, output_array, this.newWorkspace());
+
+		return output_array;
+	}
+
+	/**
+	 * Feeds the give data to the neural network and writes the result into the output array. </br>
+	 * The workspace can be reused for any amount of calls, but only by one thread at a time.
+	 * @param input_array - an array containing every value for the inputs
+	 * @param output_array - an array which gets filled with every output
+	 * @param workspace - a workspace created by {@link #newWorkspace()}
+	 * @throws IllegalArgumentException when the size of the input or output array doesnt match the inputs or outputs of the neural network
+	 */
+	public void predict(double[] input_array, double[] output_array, Workspace workspace) {
+
+		if(!workspace.fits(this.LAYERS)) throw new IllegalArgumentException("Workspace belongs to a different network");
+		if(input_array.length != this.LAYERS[0]) throw new IllegalArgumentException("" + this.LAYERS[0] + " inputs excpected, but " + input_array.length + " received");
+		if(output_array.length != this.LAYERS[this.LAYERS.length-1]) throw new IllegalArgumentException("" + this.LAYERS[this.LAYERS.length-1] + " outputs excpected, but space for " + output_array.length + " given");
+
+		Activation[] activations = this.activations;
+		if(activations == null)
+			this.activations = activations = Activation.of(this.funcs);
+
+		double[] values = input_array;
+		for(int i = 0; i < this.weights.length; i++) {
+			QuantizedMatrix.quantize(values, this.inputScales[i], workspace.quantized[i]);
+			this.weights[i].mulAdd(workspace.quantized[i], this.inputScales[i], this.biases[i], activations[i].kernel, workspace.values[i]);
+			values = workspace.values[i].toArray();
+		}
+
+		System.arraycopy(values, 0, output_array, 0, output_array.length);
+	}
+
+	/**
+	 * Creates a workspace which holds the values of every layer during {@link #predict(double[], double[], Workspace)}
+	 * @return - a new workspace
+	 */
+	public Workspace newWorkspace() {
+		return new Workspace(this.LAYERS);
+	}
+
+	/**
+	 * Calculates the error like {@link NeuralNetwork#calculateError(TrainingData)}
+	 * @param trainingData - The data used to calculate the error
+	 * @return - the error
+	 */
+	public double calculateError(TrainingData trainingData) {
+		return this.compare(null, trainingData).getQuantizedError();
+	}
+
+	/**
+	 * Measures how far the outputs of this network are off from the outputs of the given network and from the expected outputs
+	 * @param reference - usually the network this one got quantized from, or null to only calculate the error of this network
+	 * @param trainingData - the data to compare on
+	 * @return - the differences
+	 */
+	public AccuracyDelta compare(NeuralNetwork reference, TrainingData trainingData) {
+
+		int outputs = this.LAYERS[this.LAYERS.length-1];
+		double[] inputs = new double[this.LAYERS[0]];
+		double[] expected = new double[outputs];
+		double[] quantized = new double[outputs];
+		double[] full = new double[outputs];
+		Workspace workspace = this.newWorkspace();
+
+		double sumDelta = 0, maxDelta = 0, referenceError = 0, quantizedError = 0;
+		for(int s = 0; s < trainingData.size(); s++) {
+			trainingData.read(s, inputs, expected);
+			this.predict(inputs, quantized, workspace);
+			quantizedError += rms(expected, quantized);
+
+			if(reference == null) continue;
+
+			reference.predict(inputs, full);
+			referenceError += rms(expected, full);
+			for(int j = 0; j < outputs; j++) {
+				double delta = Math.abs(full[j] - quantized[j]);
+				sumDelta += delta;
+				maxDelta = Math.max(maxDelta, delta);
+			}
+		}
+
+		int samples = trainingData.size();
+		return new AccuracyDelta(sumDelta / ((double)samples * outputs), maxDelta, referenceError / samples, quantizedError / samples);
+	}
+
+	private static double rms(double[] expected, double[] actual) {
+
+		double sum = 0.0;
+		for(int i = 0; i < expected.length; i++)
+			sum += Math.pow(expected[i] - actual[i], 2);
+
+		return Math.sqrt(sum / expected.length);
+	}
+
+	/**
+	 * Returns the comparison with the original network on the calibration data, measured by {@link #quantize(NeuralNetwork, TrainingData)}
+	 * @return - the differences
+	 */
+	public AccuracyDelta getCalibrationDelta() {
+		return this.calibrationDelta;
+	}
+
+	/**
+	 * Returns the amount of neurons per layer
+	 * @return - a copy of the layer sizes
+	 */
+	public int[] getLayers() {
+		return this.LAYERS.clone();
+	}
+
+	/**
+	 * @param layer - index of the layer, from 1 for the first hidden layer up to the output layer
+	 * @return - the activation function of the layer
+	 */
+	public ActivationFunction getActivationFunction(int layer) {
+		return this.funcs[layer-1];
+	}
+
+	/**
+	 * @return - the activation functions of every layer except the input layer
+	 */
+	public ActivationFunction[] getActivationFunctions() {
+		return this.funcs.clone();
+	}
+
+	/**
+	 * The differences between the outputs of a quantized network and the network it got quantized from
+	 */
+	public static final class AccuracyDelta implements Serializable {
+
+		private static final long serialVersionUID = -6190587283950811014L;
+		private final double meanAbsoluteDelta;
+		private final double maxAbsoluteDelta;
+		private final double referenceError;
+		private final double quantizedError;
+
+		AccuracyDelta(double meanAbsoluteDelta, double maxAbsoluteDelta, double referenceError, double quantizedError) {
+			this.meanAbsoluteDelta = meanAbsoluteDelta;
+			this.maxAbsoluteDelta = maxAbsoluteDelta;
+			this.referenceError = referenceError;
+			this.quantizedError = quantizedError;
+		}
+
+		/**
+		 * @return - the mean absolute difference between the outputs of both networks
+		 */
+		public double getMeanAbsoluteDelta() {
+			return this.meanAbsoluteDelta;
+		}
+
+		/**
+		 * @return - the largest absolute difference between an output of both networks
+		 */
+		public double getMaxAbsoluteDelta() {
+			return this.maxAbsoluteDelta;
+		}
+
+		/**
+		 * @return - the error of the original network like {@link NeuralNetwork#calculateError(TrainingData)}
+		 */
+		public double getReferenceError() {
+			return this.referenceError;
+		}
+
+		/**
+		 * @return - the error of the quantized network
+		 */
+		public double getQuantizedError() {
+			return this.quantizedError;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("mean |delta| %.6f, max |delta| %.6f, error %.6f -> %.6f", this.meanAbsoluteDelta, this.maxAbsoluteDelta, this.referenceError, this.quantizedError);
+		}
+	}
+
+	/**
+	 * Holds the quantized inputs and the outputs of every layer, used by one thread at a time
+	 */
+	public static final class Workspace {
+
+		private final byte[][] quantized;
+		private final Matrix[] values;
+
+		Workspace(int[] layers) {
+			this.quantized = new byte[layers.length-1][];
+			this.values = new Matrix[layers.length-1];
+			for(int i = 0; i < layers.length-1; i++) {
+				this.quantized[i] = new byte[layers[i]];
+				this.values[i] = new Matrix(layers[i+1], 1);
+			}
+		}
+
+		boolean fits(int[] layers) {
+
+			if(layers.length-1 != this.values.length) return false;
+
+			for(int i = 0; i < this.values.length; i++)
+				if(layers[i] != this.quantized[i].length || layers[i+1] != this.values[i].getRows()) return false;
+
+			return true;
+		}
+	}
+}
@@ -1,136 +1,205 @@
-package schiemannjeremy.nn;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import java.nio.file.FileStore;
-import java.nio.file.Files;
-import java.util.ArrayList;
-
-import javax.swing.filechooser.FileFilter;
-
-
-/**
- * A class that contains all the training sets for training the neural network.
- * @author Jeremy Schiemann
- *
- */
-public class TrainingData implements Serializable{
-	
-	/**
-	 * 
-	 */
-	private static final long serialVersionUID = 1862961912768893897L;
-	private static final String DATA_ENDING = ".ntd";
-	private ArrayList<TrainingSet> trainingSets;
-	
-	/**
-	 * Constructs a TrainingData object
-	 */
-	public TrainingData(){
-		this.trainingSets = new ArrayList<>();
-	}
-	
-	/**
-	 * Constructs a TrainingData object and adds the training sets.
-	 * @param training_data - the training sets which should be added.
-	 */
-	public TrainingData(TrainingSet[] training_data) {
-		
-		super();
-				
-		for(int i = 0; i < training_data.length; i++) {
-			this.add(training_data[i]);
-		}
-	}
-		
-	/**
-	 * Adds a new TrainingSet object to the collection
-	 * @param trainingSet - the TrainingSet object that should be added
-	 * @return - true if operation was successful
-	 */
-	public boolean add(TrainingSet trainingSet){
-		
-		if(this.trainingSets.add(trainingSet))
-			return true;
-		else 
-			return false;
-	}
-	
-	
-	/**
-	 * Returns the number of TrainingSet Objects in this list
-	 * @return returns the number of TrainingSet Objects in this list
-	 */
-	public int size() {
-		return this.trainingSets.size();
-	}
-	
-	/**
-	 * Returns the TrainingSet Object at the specified location
-	 * @param index - the locations
-	 * @return - the TrainingSet object
-	 * @throws IndexOutOfBoundsException if the index is out of range
-	 */
-	public TrainingSet getTrainingSet(int index){
-		
-		return this.trainingSets.get(index);
-	}
-	
-	/**
-	 * returns a random TrainingSet Object.
-	 * @return - the TrainingSet Object
-	 */
-	public TrainingSet getRandomSet(){
-		
-		int random = (int)(Math.random()*this.trainingSets.size());
-		return this.trainingSets.get(random);	
-	}
-	
-	
-	/**
-	 * Will write the TrainingData object to the given file. </br>
-	 * This method will create the necessary paths to create this file.
-	 * @param trainingData - the object which should be stored
-	 * @param file - the file where the object should be stored
-	 * @throws IOException - if anything goes wrong during writing...
-	 */
-	public static void save(TrainingData trainingData, File file) throws IOException {
-		
-		if(!file.exists()) file.getParentFile().mkdirs();
-		
-		ObjectOutputStream objO = new ObjectOutputStream(new FileOutputStream(file));
-		objO.writeObject(trainingData);
-		
-		objO.close();
-		
-	}
-
-	/**
-	 * Restores a saved TrainingData object from a File
-	 * @param file - the file where the object is stored
-	 * @return - the restored TrainingData object
-	 * @throws IOException if the file doesnt exist, something goes wrong and so on...
-	 */
-	public static TrainingData restore(File file) throws IOException {
-		
-		ObjectInputStream objI = new ObjectInputStream(new FileInputStream(file));
-		
-		TrainingData td = null;
-		try {
-			td = (TrainingData)objI.readObject();
-			
-		}catch (ClassNotFoundException e) {
-			e.printStackTrace();
-		}
-		
-		objI.close();
-		
-		return td;
-	}
-	
-}
+package schiemannjeremy.nn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.swing.filechooser.FileFilter;
+
+
+/**
+ * A class that contains all the training sets for training the neural network.
+ * @author Jeremy Schiemann
+ *
+ */
+public class TrainingData implements Serializable, Iterable<TrainingSet>{
+	
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1862961912768893897L;
+	private static final String DATA_ENDING = ".ntd";
+	private ArrayList<TrainingSet> trainingSets;
+	
+	/**
+	 * Constructs a TrainingData object
+	 */
+	public TrainingData(){
+		this.trainingSets = new ArrayList<>();
+	}
+	
+	/**
+	 * Constructs a TrainingData object and adds the training sets.
+	 * @param training_data - the training sets which should be added.
+	 */
+	public TrainingData(TrainingSet[] training_data) {
+		
+		this();
+				
+		for(int i = 0; i < training_data.length; i++) {
+			this.add(training_data[i]);
+		}
+	}
+		
+	/**
+	 * Adds a new TrainingSet object to the collection
+	 * @param trainingSet - the TrainingSet object that should be added
+	 * @return - true if operation was successful
+	 */
+	public boolean add(TrainingSet trainingSet){
+		
+		if(this.trainingSets.add(trainingSet))
+			return true;
+		else 
+			return false;
+	}
+	
+	
+	/**
+	 * Returns the number of TrainingSet Objects in this list
+	 * @return returns the number of TrainingSet Objects in this list
+	 */
+	public int size() {
+		return this.trainingSets.size();
+	}
+	
+	/**
+	 * Returns the TrainingSet Object at the specified location
+	 * @param index - the locations
+	 * @return - the TrainingSet object
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public TrainingSet getTrainingSet(int index){
+		
+		return this.trainingSets.get(index);
+	}
+	
+	/**
+	 * returns a random TrainingSet Object. </br>
+	 * Picks with replacement, to go through all training sets in a random order use an {@link EpochSampler}.
+	 * @return - the TrainingSet Object
+	 */
+	public TrainingSet getRandomSet(){
+		
+		return this.trainingSets.get(ThreadLocalRandom.current().nextInt(this.trainingSets.size()));
+	}
+	
+	
+	/**
+	 * Copies the inputs and outputs of the TrainingSet at the specified location into the given arrays. </br>
+	 * Lets the neural network read training data without depending on how it is stored.
+	 * @param index - the location
+	 * @param inputs - gets filled with the inputs
+	 * @param outputs - gets filled with the outputs
+	 * @throws IllegalArgumentException if the arrays dont have the length of the inputs and outputs
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public void read(int index, double[] inputs, double[] outputs) {
+		
+		TrainingSet trainingSet = this.getTrainingSet(index);
+		if(trainingSet.getInputs().length != inputs.length) throw new IllegalArgumentException("" + inputs.length + " inputs excpected, but " + trainingSet.getInputs().length + " received");
+		if(trainingSet.getOutputs().length != outputs.length) throw new IllegalArgumentException("" + outputs.length + " outputs excpected, but " + trainingSet.getOutputs().length + " received");
+		
+		System.arraycopy(trainingSet.getInputs(), 0, inputs, 0, inputs.length);
+		System.arraycopy(trainingSet.getOutputs(), 0, outputs, 0, outputs.length);
+	}
+	
+	/**
+	 * Returns an iterator going through every TrainingSet in order
+	 * @return - the iterator
+	 */
+	@Override
+	public Iterator<TrainingSet> iterator() {
+		
+		return new Iterator<TrainingSet>() {
+			
+			private int index = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return this.index < TrainingData.this.size();
+			}
+			
+			@Override
+			public TrainingSet next() {
+				if(!this.hasNext()) throw new NoSuchElementException();
+				return TrainingData.this.getTrainingSet(this.index++);
+			}
+		};
+	}
+	
+	/**
+	 * Will write the TrainingData object to the given file. </br>
+	 * This method will create the necessary paths to create this file. </br>
+	 * Files with the ending {@value #DATA_ENDING} get written in the format of {@link MappedTrainingData}, 
+	 * everything else using Java serialization.
+	 * @param trainingData - the object which should be stored
+	 * @param file - the file where the object should be stored
+	 * @throws IOException - if anything goes wrong during writing...
+	 */
+	public static void save(TrainingData trainingData, File file) throws IOException {
+		
+		if(!file.exists()) file.getParentFile().mkdirs();
+		
+		if(file.getName().endsWith(DATA_ENDING)) {
+			
+			//already stored in this file
+			if(trainingData instanceof MappedTrainingData && ((MappedTrainingData)trainingData).getFile().getCanonicalFile().equals(file.getCanonicalFile()))
+				return;
+			
+			if(trainingData.size() == 0) throw new IOException("Empty TrainingData cant be stored in the " + DATA_ENDING + " format");
+			
+			TrainingSet first = trainingData.getTrainingSet(0);
+			try(MappedTrainingData mapped = MappedTrainingData.create(file, first.getInputs().length, first.getOutputs().length)) {
+				for(TrainingSet trainingSet : trainingData)
+					mapped.add(trainingSet);
+			}
+			
+			return;
+		}
+		
+		ObjectOutputStream objO = new ObjectOutputStream(new FileOutputStream(file));
+		objO.writeObject(trainingData);
+		
+		objO.close();
+		
+	}
+
+	/**
+	 * Restores a saved TrainingData object from a File </br>
+	 * Files in the format of {@link MappedTrainingData} dont get loaded into memory but opened as MappedTrainingData.
+	 * @param file - the file where the object is stored
+	 * @return - the restored TrainingData object
+	 * @throws IOException if the file doesnt exist, something goes wrong and so on...
+	 */
+	public static TrainingData restore(File file) throws IOException {
+		
+		if(MappedTrainingData.isTrainingDataFile(file))
+			return MappedTrainingData.open(file);
+		
+		ObjectInputStream objI = new ObjectInputStream(new FileInputStream(file));
+		
+		TrainingData td = null;
+		try {
+			td = (TrainingData)objI.readObject();
+			
+		}catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+		
+		objI.close();
+		
+		return td;
+	}
+	
+}
@@ -0,0 +1,124 @@
+package schiemannjeremy.nn;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder events of the training. </br>
+ * One {@link Run} gets recorded per train method taking {@link TrainingData}. A {@link Step} per weight update is off by default,
+ * since small networks train hundreds of thousands of them per second. It can be turned on in the settings of a recording,
+ * e.g. with <code>-XX:StartFlightRecording:schiemannjeremy.TrainingStep#enabled=true</code>. </br>
+ * As long as no recording was ever started the event classes dont even get loaded.
+ * @author Jeremy Schiemann
+ *
+ */
+final class TrainingEvents {
+
+	private TrainingEvents() {
+	}
+
+	/**
+	 * @return - true if a recording wants training runs
+	 */
+	static boolean runsEnabled() {
+		return FlightRecorder.isInitialized() && new Run().isEnabled();
+	}
+
+	/**
+	 * @return - true if a recording wants every training step
+	 */
+	static boolean stepsEnabled() {
+		return FlightRecorder.isInitialized() && new Step().isEnabled();
+	}
+
+	@Name("schiemannjeremy.TrainingRun")
+	@Label("Training Run")
+	@Category({"Neural Network", "Training"})
+	@Description("A call of a train method taking training data")
+	@StackTrace(false)
+	static final class Run extends Event {
+
+		@Label("Precision")
+		String precision;
+
+		@Label("Optimizer")
+		String optimizer;
+
+		@Label("Steps")
+		long steps;
+
+		@Label("Samples")
+		long samples;
+
+		@Label("Samples per Second")
+		double samplesPerSecond;
+
+		@Label("Data Time")
+		@Timespan
+		long dataTime;
+
+		@Label("Forward Time")
+		@Timespan
+		long forwardTime;
+
+		@Label("Backward Time")
+		@Timespan
+		long backwardTime;
+
+		@Label("Update Time")
+		@Timespan
+		long updateTime;
+
+		@Label("Allocated")
+		@Description("Bytes allocated on the heap by the training thread, -1 if the JVM cant measure them")
+		@DataAmount
+		long allocated;
+
+		@Label("Loss")
+		@Description("Mean squared error of the last step")
+		double loss;
+	}
+
+	@Name("schiemannjeremy.TrainingStep")
+	@Label("Training Step")
+	@Category({"Neural Network", "Training"})
+	@Description("One weight update of a network")
+	@StackTrace(false)
+	@Enabled(false)
+	static final class Step extends Event {
+
+		@Label("Batch Size")
+		int batchSize;
+
+		@Label("Data Time")
+		@Timespan
+		long dataTime;
+
+		@Label("Forward Time")
+		@Timespan
+		long forwardTime;
+
+		@Label("Backward Time")
+		@Timespan
+		long backwardTime;
+
+		@Label("Update Time")
+		@Timespan
+		long updateTime;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocated;
+
+		@Label("Loss")
+		double loss;
+	}
+}
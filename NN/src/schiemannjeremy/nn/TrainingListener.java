@@ -0,0 +1,31 @@
+package schiemannjeremy.nn;
+
+/**
+ * Gets called by a {@link TrainingMonitor} while a network trains, on the training thread. </br>
+ * The monitor already contains the step when it gets passed in, e.g. {@link TrainingMonitor#getLoss()} is the loss of that step.
+ * Listeners should return quickly since the training waits for them, e.g. only print every 1000 steps:
+ *
+ * <pre>
+ * monitor.addListener(m -&gt; {
+ *     if(m.getSteps() % 1000 == 0) System.out.println(m);
+ * });
+ * </pre>
+ * @author Jeremy Schiemann
+ *
+ */
+@FunctionalInterface
+public interface TrainingListener {
+
+	/**
+	 * Gets called after every training step, that is after every weight update
+	 * @param monitor - the monitor of the network
+	 */
+	public void stepFinished(TrainingMonitor monitor);
+
+	/**
+	 * Gets called when a train method taking {@link TrainingData} is done
+	 * @param monitor - the monitor of the network
+	 */
+	public default void trainingFinished(TrainingMonitor monitor) {
+	}
+}
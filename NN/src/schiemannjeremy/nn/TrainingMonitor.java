@@ -0,0 +1,289 @@
+package schiemannjeremy.nn;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Collects what a network does while it trains: how long the steps spend in the phases of the training,
+ * the throughput, the allocations and the loss. </br>
+ * A monitor gets attached with {@link NeuralNetwork#setMonitor(TrainingMonitor)}, without one the training measures nothing.
+ * Every step is split into the phases data (taking the next batch and copying it into the network), forward (the outputs
+ * of every layer), backward (the errors and gradients of every layer) and update (applying the gradients to the weights and biases). </br>
+ * The values can be read from any thread, passed to {@link TrainingListener}s after every step
+ * or published over JMX with {@link #registerMBean(String)}. A monitor should only be attached to networks
+ * which arent trained at the same time.
+ * @author Jeremy Schiemann
+ *
+ */
+public final class TrainingMonitor implements TrainingMonitorMBean {
+
+	/** weight of the newest loss in the smoothed loss, it roughly averages the last 100 steps */
+	private static final double SMOOTHING = 0.01;
+
+	private volatile TrainingListener[] listeners = new TrainingListener[0];
+
+	/** the name the monitor is registered under, null if it isnt */
+	private ObjectName name;
+
+	/** only written by the training thread and published by the volatile write of steps, so readers have to read steps first */
+	private long samples;
+	private long dataTime;
+	private long forwardTime;
+	private long backwardTime;
+	private long updateTime;
+	private long allocatedBytes;
+	private long allocationSteps;
+	private double loss = Double.NaN;
+	private double smoothedLoss = Double.NaN;
+	private volatile long steps;
+
+	/** set by {@link #reset()}, the training thread clears the counters before it records the next step */
+	private volatile boolean resetRequested;
+
+	/**
+	 * Adds a listener which gets called on the training thread after every step
+	 * @param listener - the listener
+	 * @throws IllegalArgumentException if the listener is null
+	 */
+	public synchronized void addListener(TrainingListener listener) {
+
+		if(listener == null) throw new IllegalArgumentException("listener must not be null");
+
+		TrainingListener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length+1);
+		listeners[listeners.length-1] = listener;
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Removes a listener added with {@link #addListener(TrainingListener)}
+	 * @param listener - the listener
+	 */
+	public synchronized void removeListener(TrainingListener listener) {
+
+		TrainingListener[] listeners = this.listeners;
+		for(int i = 0; i < listeners.length; i++) {
+			if(listeners[i] == listener) {
+				TrainingListener[] removed = new TrainingListener[listeners.length-1];
+				System.arraycopy(listeners, 0, removed, 0, i);
+				System.arraycopy(listeners, i+1, removed, i, removed.length-i);
+				this.listeners = removed;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Registers this monitor with the platform MBean server as <code>schiemannjeremy.nn:type=TrainingMonitor,name=...</code>
+	 * @param name - the name which tells the monitors of a process apart
+	 * @throws IllegalArgumentException if the name cant be used in an ObjectName
+	 * @throws IllegalStateException if this monitor is registered already or another one uses the name
+	 */
+	public synchronized void registerMBean(String name) {
+
+		if(this.name != null) throw new IllegalStateException("monitor is registered as " + this.name + " already");
+
+		try {
+			ObjectName objectName = new ObjectName("schiemannjeremy.nn:type=TrainingMonitor,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.name = objectName;
+		}catch (MalformedObjectNameException e) {
+			throw new IllegalArgumentException("invalid name " + name, e);
+		}catch (InstanceAlreadyExistsException e) {
+			throw new IllegalStateException("a monitor named " + name + " is registered already", e);
+		}catch (JMException e) {
+			throw new IllegalStateException("monitor couldnt be registered", e);
+		}
+	}
+
+	/**
+	 * Removes this monitor from the platform MBean server, does nothing if it isnt registered
+	 */
+	public synchronized void unregisterMBean() {
+
+		if(this.name == null) return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+		}catch (JMException e) {
+			//unregistered by someone else already
+		}
+		this.name = null;
+	}
+
+	/**
+	 * Adds a training step, only called by the training thread
+	 * @param allocated - the bytes the step allocated on the heap, < 0 if the JVM cant measure them
+	 */
+	void record(int samples, long data, long forward, long backward, long update, long allocated, double loss) {
+
+		if(this.resetRequested) {
+			this.resetRequested = false;
+			this.clear();
+		}
+
+		this.samples += samples;
+		this.dataTime += data;
+		this.forwardTime += forward;
+		this.backwardTime += backward;
+		this.updateTime += update;
+		if(allocated >= 0) {
+			this.allocatedBytes += allocated;
+			this.allocationSteps++;
+		}
+		this.loss = loss;
+		this.smoothedLoss = Double.isNaN(this.smoothedLoss) ? loss : this.smoothedLoss + SMOOTHING * (loss - this.smoothedLoss);
+		this.steps = this.steps + 1;
+
+		for(TrainingListener listener : this.listeners)
+			listener.stepFinished(this);
+	}
+
+	/**
+	 * Tells the listeners that a train method is done, only called by the training thread
+	 */
+	void trainingFinished() {
+
+		for(TrainingListener listener : this.listeners)
+			listener.trainingFinished(this);
+	}
+
+	private void clear() {
+		this.samples = 0;
+		this.dataTime = 0;
+		this.forwardTime = 0;
+		this.backwardTime = 0;
+		this.updateTime = 0;
+		this.allocatedBytes = 0;
+		this.allocationSteps = 0;
+		this.loss = Double.NaN;
+		this.smoothedLoss = Double.NaN;
+		this.steps = 0;
+	}
+
+	/**
+	 * Starts all counters over with the next training step
+	 */
+	@Override
+	public void reset() {
+		this.resetRequested = true;
+	}
+
+	/**
+	 * @return - the amount of training steps, that is weight updates
+	 */
+	@Override
+	public long getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * @return - the amount of training sets the steps trained with
+	 */
+	@Override
+	public long getSamples() {
+		this.published();
+		return this.samples;
+	}
+
+	/**
+	 * @return - the nanoseconds spent on taking the batches and copying them into the network
+	 */
+	@Override
+	public long getDataTime() {
+		this.published();
+		return this.dataTime;
+	}
+
+	/**
+	 * @return - the nanoseconds spent on calculating the outputs of every layer
+	 */
+	@Override
+	public long getForwardTime() {
+		this.published();
+		return this.forwardTime;
+	}
+
+	/**
+	 * @return - the nanoseconds spent on calculating the errors and gradients of every layer
+	 */
+	@Override
+	public long getBackwardTime() {
+		this.published();
+		return this.backwardTime;
+	}
+
+	/**
+	 * @return - the nanoseconds spent on applying the gradients to the weights and biases
+	 */
+	@Override
+	public long getUpdateTime() {
+		this.published();
+		return this.updateTime;
+	}
+
+	/**
+	 * Returns the training sets per second of training, the time between train calls doesnt count
+	 * @return - the throughput
+	 */
+	@Override
+	public double getSamplesPerSecond() {
+
+		if(this.published() == 0) return Double.NaN;
+
+		long time = this.dataTime + this.forwardTime + this.backwardTime + this.updateTime;
+		return this.samples * 1e9 / time;
+	}
+
+	/**
+	 * @return - the bytes the training thread allocated on the heap per step on average, NaN if the JVM cant measure them
+	 */
+	@Override
+	public double getAllocatedBytesPerStep() {
+
+		if(this.published() == 0) return Double.NaN;
+
+		return this.allocationSteps > 0 ? (double)this.allocatedBytes / this.allocationSteps : Double.NaN;
+	}
+
+	/**
+	 * @return - the mean squared error of the outputs of the last step, before its update
+	 */
+	@Override
+	public double getLoss() {
+		this.published();
+		return this.loss;
+	}
+
+	/**
+	 * Returns the loss averaged exponentially over the last steps, it is less noisy than {@link #getLoss()} for small batches
+	 * @return - the smoothed loss
+	 */
+	@Override
+	public double getSmoothedLoss() {
+		this.published();
+		return this.smoothedLoss;
+	}
+
+	/**
+	 * Reads the volatile step counter, afterwards the other counters are at least as new as that step
+	 */
+	private long published() {
+		return this.steps;
+	}
+
+	@Override
+	public String toString() {
+
+		if(this.published() == 0) return "no steps";
+
+		long time = Math.max(1, this.dataTime + this.forwardTime + this.backwardTime + this.updateTime);
+		return String.format("%d steps, %d samples, %.0f samples/s, data %.1f%%, forward %.1f%%, backward %.1f%%, update %.1f%%, %.0f bytes/step, loss %.6f (smoothed %.6f)",
+				this.steps, this.samples, this.getSamplesPerSecond(), 100.0 * this.dataTime / time, 100.0 * this.forwardTime / time,
+				100.0 * this.backwardTime / time, 100.0 * this.updateTime / time, this.getAllocatedBytesPerStep(), this.loss, this.smoothedLoss);
+	}
+}
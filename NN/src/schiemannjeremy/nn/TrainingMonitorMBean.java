@@ -0,0 +1,32 @@
+package schiemannjeremy.nn;
+
+/**
+ * The attributes and operations of a {@link TrainingMonitor} registered with {@link TrainingMonitor#registerMBean(String)},
+ * e.g. for JConsole or VisualVM. Times are in nanoseconds.
+ * @author Jeremy Schiemann
+ *
+ */
+public interface TrainingMonitorMBean {
+
+	public long getSteps();
+
+	public long getSamples();
+
+	public long getDataTime();
+
+	public long getForwardTime();
+
+	public long getBackwardTime();
+
+	public long getUpdateTime();
+
+	public double getSamplesPerSecond();
+
+	public double getAllocatedBytesPerStep();
+
+	public double getLoss();
+
+	public double getSmoothedLoss();
+
+	public void reset();
+}
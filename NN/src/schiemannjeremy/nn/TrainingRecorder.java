@@ -0,0 +1,166 @@
+package schiemannjeremy.nn;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the phases of the training steps of one train call and hands them to the {@link TrainingMonitor}
+ * of the network and to the JDK Flight Recorder, see {@link TrainingEvents}. </br>
+ * Only gets created if something wants the values, otherwise the training passes null around and measures nothing.
+ * The phases get marked in order: {@link #step()}, {@link #forward()}, {@link #backward()}, {@link #update()} and {@link #finish(int, double)}.
+ * @author Jeremy Schiemann
+ *
+ */
+final class TrainingRecorder {
+
+	/** the flight recorder is an optional module, without it there are no events */
+	private static final boolean JFR = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+	private final TrainingMonitor monitor;
+	private final boolean steps;
+
+	/** null if no recording wants the run */
+	private final TrainingEvents.Run run;
+
+	private long started;
+	private long forwardStarted;
+	private long backwardStarted;
+	private long updateStarted;
+	private long allocated;
+
+	private TrainingRecorder(TrainingMonitor monitor, boolean steps, boolean runs) {
+
+		this.monitor = monitor;
+		this.steps = steps;
+
+		if(runs) {
+			this.run = new TrainingEvents.Run();
+			this.run.begin();
+		}else {
+			this.run = null;
+		}
+	}
+
+	/**
+	 * Starts recording a train call
+	 * @param monitor - the monitor of the network, null if it has none
+	 * @return - the recorder or null if neither the monitor nor a flight recording wants the values
+	 */
+	static TrainingRecorder start(TrainingMonitor monitor) {
+
+		boolean runs = JFR && TrainingEvents.runsEnabled();
+		boolean steps = JFR && TrainingEvents.stepsEnabled();
+		if(monitor == null && !runs && !steps) return null;
+
+		return new TrainingRecorder(monitor, steps, runs);
+	}
+
+	/**
+	 * Marks the start of a step, before its batch gets taken. The allocations get counted from here,
+	 * so the setup of a train call and the listeners dont count as allocations of the step
+	 */
+	void step() {
+		this.allocated = Allocations.current();
+		this.started = System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of the data phase, the batch is in the network
+	 */
+	void forward() {
+		this.forwardStarted = System.nanoTime();
+	}
+
+	void backward() {
+		this.backwardStarted = System.nanoTime();
+	}
+
+	void update() {
+		this.updateStarted = System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of a step and records it
+	 * @param batchSize - the amount of training sets of the step
+	 * @param loss - the mean squared error of the outputs of the step
+	 */
+	void finish(int batchSize, double loss) {
+
+		long finished = System.nanoTime();
+		long allocated = Allocations.current();
+		long bytes = allocated >= 0 && this.allocated >= 0 ? allocated - this.allocated : -1;
+
+		long data = this.forwardStarted - this.started;
+		long forward = this.backwardStarted - this.forwardStarted;
+		long backward = this.updateStarted - this.backwardStarted;
+		long update = finished - this.updateStarted;
+
+		if(this.run != null) {
+			this.run.steps++;
+			this.run.samples += batchSize;
+			this.run.dataTime += data;
+			this.run.forwardTime += forward;
+			this.run.backwardTime += backward;
+			this.run.updateTime += update;
+			this.run.allocated = bytes >= 0 && this.run.allocated >= 0 ? this.run.allocated + bytes : -1;
+			this.run.loss = loss;
+		}
+
+		if(this.steps) {
+			TrainingEvents.Step event = new TrainingEvents.Step();
+			event.batchSize = batchSize;
+			event.dataTime = data;
+			event.forwardTime = forward;
+			event.backwardTime = backward;
+			event.updateTime = update;
+			event.allocated = bytes;
+			event.loss = loss;
+			event.commit();
+		}
+
+		if(this.monitor != null)
+			this.monitor.record(batchSize, data, forward, backward, update, bytes, loss);
+	}
+
+	/**
+	 * Ends the recording of a train call taking {@link TrainingData}
+	 */
+	void finishRun(Precision precision, Optimizer optimizer) {
+
+		if(this.run != null) {
+			long time = this.run.dataTime + this.run.forwardTime + this.run.backwardTime + this.run.updateTime;
+			this.run.precision = precision.name();
+			this.run.optimizer = optimizer.getClass().getSimpleName();
+			this.run.samplesPerSecond = time > 0 ? this.run.samples * 1e9 / time : Double.NaN;
+			this.run.commit();
+		}
+
+		if(this.monitor != null)
+			this.monitor.trainingFinished();
+	}
+
+	/**
+	 * The heap allocations of the current thread, only loaded once a recorder is needed
+	 */
+	private static final class Allocations {
+
+		private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+		private Allocations() {}
+
+		private static com.sun.management.ThreadMXBean threads() {
+
+			if(!ModuleLayer.boot().findModule("jdk.management").isPresent()) return null;
+
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			return threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean)threads : null;
+		}
+
+		/**
+		 * @return - the bytes the current thread allocated so far, -1 if the JVM cant measure them
+		 */
+		static long current() {
+			return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+		}
+	}
+}
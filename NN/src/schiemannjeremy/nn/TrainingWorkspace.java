@@ -0,0 +1,200 @@
+package schiemannjeremy.nn;
+
+import java.util.Arrays;
+
+import schiemannjeremy.linearalgebra.LinearAlgebraBackend;
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * The buffers one thread needs to train a neural network with a batch of training sets, one column per training set. </br>
+ * Everything gets allocated once in the constructor, a training step only writes into these buffers
+ * and into the weights and biases it gets passed. </br>
+ * The values of every layer are kept before and after the activation function, so the derivative gets
+ * the real inputs of the function and not its outputs.
+ * @author Jeremy Schiemann
+ *
+ */
+final class TrainingWorkspace {
+
+	/** outputs of every layer, outputs[0] holds the inputs */
+	final Matrix[] outputs;
+
+	/** values of every layer except the input layer before the activation function, only filled for layers whose derivative needs them */
+	final Matrix[] preActivations;
+
+	/** errors of every layer except the input layer */
+	final Matrix[] errors;
+
+	/** gradients of every layer except the input layer */
+	final Matrix[] gradients;
+
+	/** expected outputs of the last layer */
+	final Matrix targets;
+
+	/** gradients of the weights and biases averaged over the batch, only allocated for optimizers other than SGD */
+	Matrix[] weightDeltas;
+	Matrix[] biasDeltas;
+
+	TrainingWorkspace(int[] layers) {
+		this(layers, 1);
+	}
+
+	TrainingWorkspace(int[] layers, int batchSize) {
+
+		this.outputs = new Matrix[layers.length];
+		this.preActivations = new Matrix[layers.length-1];
+		this.errors = new Matrix[layers.length-1];
+		this.gradients = new Matrix[layers.length-1];
+
+		this.outputs[0] = new Matrix(layers[0], batchSize);
+		for(int i = 1; i < layers.length; i++) {
+			this.outputs[i] = new Matrix(layers[i], batchSize);
+			this.preActivations[i-1] = new Matrix(layers[i], batchSize);
+			this.errors[i-1] = new Matrix(layers[i], batchSize);
+			this.gradients[i-1] = new Matrix(layers[i], batchSize);
+		}
+		this.targets = new Matrix(layers[layers.length-1], batchSize);
+	}
+
+	/**
+	 * @return - the amount of training sets per step
+	 */
+	int batchSize() {
+		return this.targets.getColumns();
+	}
+
+	/**
+	 * Calculates the outputs of every layer for the given inputs of a batch size of 1
+	 * @param activations - the activation of every layer
+	 */
+	void forward(LinearAlgebraBackend backend, Matrix[] weights, Matrix[] biases, Activation[] activations, double[] inputs) {
+
+		System.arraycopy(inputs, 0, this.outputs[0].toArray(), 0, inputs.length);
+		this.forward(backend, weights, biases, activations);
+	}
+
+	/**
+	 * Calculates the outputs of every layer for the inputs in outputs[0]. </br>
+	 * Layers whose derivative only needs the outputs get the activation fused into the multiplication like {@link FrozenNetwork},
+	 * the other ones keep the values before the activation in {@link #preActivations}.
+	 * @param activations - the activation of every layer
+	 */
+	void forward(LinearAlgebraBackend backend, Matrix[] weights, Matrix[] biases, Activation[] activations) {
+
+		for(int i = 1; i < this.outputs.length; i++) {
+			Activation activation = activations[i-1];
+			if(activation.derivativeOfOutputs) {
+				backend.mulAdd(weights[i-1], this.outputs[i-1], biases[i-1], activation.kernel, this.outputs[i]);
+				continue;
+			}
+
+			Matrix pre = this.preActivations[i-1];
+			backend.mulAdd(weights[i-1], this.outputs[i-1], biases[i-1], null, pre);
+			System.arraycopy(pre.toArray(), 0, this.outputs[i].toArray(), 0, pre.getRows()*pre.getColumns());
+			backend.apply(this.outputs[i], activation.kernel);
+		}
+	}
+
+	/**
+	 * Calculates the errors and the unscaled gradients of every layer for the given targets of a batch size of 1,
+	 * {@link #forward} has to be called before.
+	 */
+	void backward(LinearAlgebraBackend backend, Matrix[] weights, Activation[] activations, double[] targets) {
+
+		System.arraycopy(targets, 0, this.targets.toArray(), 0, targets.length);
+		this.backward(backend, weights, activations);
+	}
+
+	/**
+	 * Calculates the errors and the unscaled gradients of every layer for the targets in {@link #targets},
+	 * {@link #forward} has to be called before.
+	 */
+	void backward(LinearAlgebraBackend backend, Matrix[] weights, Activation[] activations) {
+
+		double[] last = this.outputs[this.outputs.length-1].toArray();
+		double[] targets = this.targets.toArray();
+		double[] error = this.errors[this.errors.length-1].toArray();
+		for(int j = 0; j < error.length; j++)
+			error[j] = targets[j] - last[j];
+
+		//errors of the previous layer are the errors of this layer multiplied with the transposed weights
+		for(int i = this.errors.length-1; i > 0; i--)
+			backend.mulTransposeA(weights[i], this.errors[i], this.errors[i-1]);
+
+		for(int i = 0; i < this.gradients.length; i++) {
+			Activation activation = activations[i];
+			double[] gradient = this.gradients[i].toArray();
+			if(activation.derivative != null) {
+				double[] values = (activation.derivativeOfOutputs ? this.outputs[i+1] : this.preActivations[i]).toArray();
+				System.arraycopy(values, 0, gradient, 0, gradient.length);
+				backend.apply(this.gradients[i], activation.derivative);
+			}else {
+				activation.function.derivative(this.preActivations[i].toArray(), this.outputs[i+1].toArray(), gradient, gradient.length);
+			}
+			backend.hadamardProduct(this.gradients[i], this.errors[i]);
+		}
+	}
+
+	/**
+	 * Returns the mean squared error of the outputs of the batch, {@link #backward} has to be called before
+	 * @return - the loss of the last step
+	 */
+	double loss() {
+
+		double[] error = this.errors[this.errors.length-1].toArray();
+		double sum = 0.0;
+		for(int j = 0; j < error.length; j++)
+			sum += error[j] * error[j];
+
+		return sum / error.length;
+	}
+
+	/**
+	 * Adds scale * gradient * transposed outputs of the previous layer to the weights and scale * gradient summed over the batch to the biases. </br>
+	 * The targets can be the weights and biases of the network or sums of several training steps.
+	 * With a batch size above 1 the gradients get scaled in place.
+	 */
+	void addDeltas(LinearAlgebraBackend backend, Matrix[] weights, Matrix[] biases, double scale) {
+
+		for(int i = 0; i < this.gradients.length; i++) {
+			backend.addMulTransposeB(weights[i], this.gradients[i], this.outputs[i], scale);
+
+			if(this.batchSize() == 1) {
+				backend.axpy(scale, this.gradients[i], biases[i]);
+			}else {
+				backend.scale(this.gradients[i], scale);
+				backend.addRowSums(biases[i], this.gradients[i]);
+			}
+		}
+	}
+
+	/**
+	 * Calculates the deltas of the weights and biases averaged over the batch into {@link #weightDeltas} and {@link #biasDeltas},
+	 * for optimizers which need them on their own instead of added to the weights. The gradients get scaled in place.
+	 */
+	void averageDeltas(LinearAlgebraBackend backend, Matrix[] weights) {
+
+		if(this.weightDeltas == null) {
+			this.weightDeltas = new Matrix[weights.length];
+			this.biasDeltas = new Matrix[weights.length];
+			for(int i = 0; i < weights.length; i++) {
+				this.weightDeltas[i] = new Matrix(weights[i].getRows(), weights[i].getColumns());
+				this.biasDeltas[i] = new Matrix(weights[i].getRows(), 1);
+			}
+		}
+
+		for(int i = 0; i < this.gradients.length; i++) {
+			if(this.batchSize() > 1)
+				backend.scale(this.gradients[i], 1.0 / this.batchSize());
+
+			backend.mulTransposeB(this.gradients[i], this.outputs[i], this.weightDeltas[i]);
+
+			if(this.batchSize() == 1) {
+				System.arraycopy(this.gradients[i].toArray(), 0, this.biasDeltas[i].toArray(), 0, this.biasDeltas[i].getRows());
+			}else {
+				Arrays.fill(this.biasDeltas[i].toArray(), 0.0);
+				backend.addRowSums(this.biasDeltas[i], this.gradients[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package schiemannjeremy.linearalgebra;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Edge cases of {@link Gemm}
+ * @author Jeremy Schiemann
+ *
+ */
+class GemmTest {
+
+	/**
+	 * Without an inner dimension c is just the bias, the function still has to be applied to it
+	 */
+	@Test
+	void multiplyAddWithoutInnerDimensionAppliesFunction() {
+
+		for(int n = 1; n <= 3; n++) {
+			double[] bias = {-1, 2};
+			double[] c = new double[2*n];
+			Gemm.multiplyAdd(new double[0], 0, 0, new double[0], 0, n, c, 0, n, bias, 0, 1, (values, from, to) -> {
+				for(int i = from; i < to; i++)
+					values[i] *= 10;
+			}, 2, n, 0);
+
+			double[] expected = new double[2*n];
+			for(int j = 0; j < n; j++) {
+				expected[j] = -10;
+				expected[n+j] = 20;
+			}
+			assertArrayEquals(expected, c, "n = " + n);
+		}
+
+		for(int n = 1; n <= 3; n++) {
+			float[] bias = {-1, 2};
+			float[] c = new float[2*n];
+			Gemm.multiplyAdd(new float[0], 0, 0, new float[0], 0, n, c, 0, n, bias, 0, 1, (values, from, to) -> {
+				for(int i = from; i < to; i++)
+					values[i] *= 10;
+			}, 2, n, 0);
+
+			float[] expected = new float[2*n];
+			for(int j = 0; j < n; j++) {
+				expected[j] = -10;
+				expected[n+j] = 20;
+			}
+			assertArrayEquals(expected, c, "n = " + n);
+		}
+	}
+}
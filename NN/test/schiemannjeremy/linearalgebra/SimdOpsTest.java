@@ -0,0 +1,261 @@
+package schiemannjeremy.linearalgebra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+
+/**
+ * Compares every kernel of {@link SimdOps} with the plain loops of {@link ScalarOps}. </br>
+ * The lengths go from 0 to two vectors and one element, so the vector loops, the scalar tails and everything in between get hit.
+ * The arrays have values in front of and behind the range, which must stay untouched.
+ * Results may differ by a few ulps, the vector kernels add and round in a different order.
+ * @author Jeremy Schiemann
+ *
+ */
+class SimdOpsTest {
+
+	private static final VectorOps SCALAR = new ScalarOps();
+	private static final VectorOps SIMD = new SimdOps();
+
+	private static final int LANES = DoubleVector.SPECIES_PREFERRED.length();
+	private static final int FLOAT_LANES = FloatVector.SPECIES_PREFERRED.length();
+
+	/** offsets of the ranges, different ones so the arrays are misaligned to each other */
+	private static final int OFF = 3, OFF2 = 1;
+
+	private static final double ULPS = 4;
+
+	@Test
+	void dot() {
+
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			Random random = new Random(len);
+			double[] a = random(random, len, -1, 1), b = random(random, len, -1, 1);
+
+			double scale = 0;
+			for(int i = 0; i < len; i++)
+				scale += Math.abs(a[OFF+i] * b[OFF2+i]);
+
+			assertEquals(SCALAR.dot(a, OFF, b, OFF2, len), SIMD.dot(a, OFF, b, OFF2, len), (len + 1) * Math.ulp(scale), "length " + len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			Random random = new Random(len);
+			float[] a = randomFloats(random, len, -1, 1), b = randomFloats(random, len, -1, 1);
+
+			float scale = 0;
+			for(int i = 0; i < len; i++)
+				scale += Math.abs(a[OFF+i] * b[OFF2+i]);
+
+			assertEquals(SCALAR.dot(a, OFF, b, OFF2, len), SIMD.dot(a, OFF, b, OFF2, len), (len + 1) * Math.ulp(scale), "length " + len);
+		}
+	}
+
+	@Test
+	void axpy() {
+
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			Random random = new Random(len);
+			double[] x = random(random, len, -1, 1), y = random(random, len, -1, 1);
+			double[] expected = y.clone(), actual = y.clone();
+
+			SCALAR.axpy(0.3, x, OFF2, expected, OFF, len);
+			SIMD.axpy(0.3, x, OFF2, actual, OFF, len);
+
+			assertClose(expected, actual, 1, len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			Random random = new Random(len);
+			float[] x = randomFloats(random, len, -1, 1), y = randomFloats(random, len, -1, 1);
+			float[] expected = y.clone(), actual = y.clone();
+
+			SCALAR.axpy(0.3f, x, OFF2, expected, OFF, len);
+			SIMD.axpy(0.3f, x, OFF2, actual, OFF, len);
+
+			assertClose(expected, actual, 1, len);
+		}
+	}
+
+	@Test
+	void axpy4() {
+
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			Random random = new Random(len);
+			double[] b = random(random, len, -1, 1);
+			//four rows of length len with a gap between them, the range of random() is just the first one
+			double[] c = random(random, 4*len + 3*OFF, -1, 1);
+			double[] expected = c.clone(), actual = c.clone();
+			int c0 = OFF, c1 = c0 + len + OFF, c2 = c1 + len + OFF, c3 = c2 + len + OFF;
+
+			SCALAR.axpy4(0.1, -0.2, 0.3, -0.4, b, OFF2, expected, c0, c1, c2, c3, len);
+			SIMD.axpy4(0.1, -0.2, 0.3, -0.4, b, OFF2, actual, c0, c1, c2, c3, len);
+
+			assertClose(expected, actual, 1, len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			Random random = new Random(len);
+			float[] b = randomFloats(random, len, -1, 1);
+			float[] c = randomFloats(random, 4*len + 3*OFF, -1, 1);
+			float[] expected = c.clone(), actual = c.clone();
+			int c0 = OFF, c1 = c0 + len + OFF, c2 = c1 + len + OFF, c3 = c2 + len + OFF;
+
+			SCALAR.axpy4(0.1f, -0.2f, 0.3f, -0.4f, b, OFF2, expected, c0, c1, c2, c3, len);
+			SIMD.axpy4(0.1f, -0.2f, 0.3f, -0.4f, b, OFF2, actual, c0, c1, c2, c3, len);
+
+			assertClose(expected, actual, 1, len);
+		}
+	}
+
+	@Test
+	void sigmoid() {
+
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			double[] x = random(new Random(len), len, -20, 20);
+			double[] expected = new double[x.length], actual = new double[x.length];
+
+			SCALAR.sigmoid(x, OFF, expected, OFF, len);
+			SIMD.sigmoid(x, OFF, actual, OFF, len);
+
+			assertClose(expected, actual, 0, len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			float[] x = randomFloats(new Random(len), len, -20, 20);
+			float[] expected = new float[x.length], actual = new float[x.length];
+
+			SCALAR.sigmoid(x, OFF, expected, OFF, len);
+			SIMD.sigmoid(x, OFF, actual, OFF, len);
+
+			assertClose(expected, actual, 0, len);
+		}
+	}
+
+	@Test
+	void tanh() {
+
+		//every other value is tiny, so the digits of small values get compared as well
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			double[] x = random(new Random(len), len, -5, 5);
+			for(int i = OFF; i < OFF+len; i += 2)
+				x[i] *= 1e-9;
+			double[] expected = new double[x.length], actual = new double[x.length];
+
+			SCALAR.tanh(x, OFF, expected, OFF, len);
+			SIMD.tanh(x, OFF, actual, OFF, len);
+
+			assertClose(expected, actual, 0, len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			float[] x = randomFloats(new Random(len), len, -5, 5);
+			for(int i = OFF; i < OFF+len; i += 2)
+				x[i] *= 1e-5f;
+			float[] expected = new float[x.length], actual = new float[x.length];
+
+			SCALAR.tanh(x, OFF, expected, OFF, len);
+			SIMD.tanh(x, OFF, actual, OFF, len);
+
+			assertClose(expected, actual, 0, len);
+		}
+	}
+
+	@Test
+	void rmsProp() {
+
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			Random random = new Random(len);
+			double[] p = random(random, len, -1, 1), g = random(random, len, -1, 1), s = random(random, len, 0, 1);
+			double[] p0 = p.clone(), s0 = s.clone(), p1 = p.clone(), s1 = s.clone();
+
+			SCALAR.rmsProp(p0, OFF, g, OFF2, s0, OFF, len, 0.9, 0.01, 1e-8);
+			SIMD.rmsProp(p1, OFF, g, OFF2, s1, OFF, len, 0.9, 0.01, 1e-8);
+
+			assertClose(s0, s1, 0, len);
+			assertClose(p0, p1, 1, len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			Random random = new Random(len);
+			float[] p = randomFloats(random, len, -1, 1), g = randomFloats(random, len, -1, 1), s = randomFloats(random, len, 0, 1);
+			float[] p0 = p.clone(), s0 = s.clone(), p1 = p.clone(), s1 = s.clone();
+
+			SCALAR.rmsProp(p0, OFF, g, OFF2, s0, OFF, len, 0.9f, 0.01f, 1e-8f);
+			SIMD.rmsProp(p1, OFF, g, OFF2, s1, OFF, len, 0.9f, 0.01f, 1e-8f);
+
+			assertClose(s0, s1, 0, len);
+			assertClose(p0, p1, 1, len);
+		}
+	}
+
+	@Test
+	void adam() {
+
+		for(int len = 0; len <= 2*LANES+1; len++) {
+			Random random = new Random(len);
+			double[] p = random(random, len, -1, 1), g = random(random, len, -1, 1), m = random(random, len, -1, 1), v = random(random, len, 0, 1);
+			double[] p0 = p.clone(), m0 = m.clone(), v0 = v.clone(), p1 = p.clone(), m1 = m.clone(), v1 = v.clone();
+
+			SCALAR.adam(p0, OFF, g, OFF2, m0, OFF, v0, OFF, len, 0.9, 0.999, 0.01, 1e-8);
+			SIMD.adam(p1, OFF, g, OFF2, m1, OFF, v1, OFF, len, 0.9, 0.999, 0.01, 1e-8);
+
+			assertClose(m0, m1, 1, len);
+			assertClose(v0, v1, 0, len);
+			assertClose(p0, p1, 1, len);
+		}
+
+		for(int len = 0; len <= 2*FLOAT_LANES+1; len++) {
+			Random random = new Random(len);
+			float[] p = randomFloats(random, len, -1, 1), g = randomFloats(random, len, -1, 1), m = randomFloats(random, len, -1, 1), v = randomFloats(random, len, 0, 1);
+			float[] p0 = p.clone(), m0 = m.clone(), v0 = v.clone(), p1 = p.clone(), m1 = m.clone(), v1 = v.clone();
+
+			SCALAR.adam(p0, OFF, g, OFF2, m0, OFF, v0, OFF, len, 0.9f, 0.999f, 0.01f, 1e-8f);
+			SIMD.adam(p1, OFF, g, OFF2, m1, OFF, v1, OFF, len, 0.9f, 0.999f, 0.01f, 1e-8f);
+
+			assertClose(m0, m1, 1, len);
+			assertClose(v0, v1, 0, len);
+			assertClose(p0, p1, 1, len);
+		}
+	}
+
+	/**
+	 * @param len - the length of the range, there are {@link #OFF} more values in front of it and behind it
+	 */
+	private static double[] random(Random random, int len, double from, double to) {
+
+		double[] values = new double[OFF + len + OFF];
+		for(int i = 0; i < values.length; i++)
+			values[i] = from + (to - from) * random.nextDouble();
+
+		return values;
+	}
+
+	private static float[] randomFloats(Random random, int len, float from, float to) {
+
+		float[] values = new float[OFF + len + OFF];
+		for(int i = 0; i < values.length; i++)
+			values[i] = from + (to - from) * random.nextFloat();
+
+		return values;
+	}
+
+	/**
+	 * Every value may differ by {@link #ULPS} ulps of its magnitude
+	 * @param floor - the smallest magnitude the ulps are taken of, values which can cancel out need one so they arent compared to a few ulps of almost 0
+	 */
+	private static void assertClose(double[] expected, double[] actual, double floor, int len) {
+		for(int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], actual[i], ULPS * Math.ulp(Math.max(Math.abs(expected[i]), floor)), "length " + len + " index " + i);
+	}
+
+	private static void assertClose(float[] expected, float[] actual, float floor, int len) {
+		for(int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], actual[i], (float)ULPS * Math.ulp(Math.max(Math.abs(expected[i]), floor)), "length " + len + " index " + i);
+	}
+}
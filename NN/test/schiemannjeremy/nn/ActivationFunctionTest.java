@@ -0,0 +1,37 @@
+package schiemannjeremy.nn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the array methods of the built-in functions agree with the scalar ones
+ * @author Jeremy Schiemann
+ *
+ */
+class ActivationFunctionTest {
+
+	private static final ActivationFunction[] BUILT_IN = {ActivationFunction.IDENTITY, ActivationFunction.BINARY_STEP, ActivationFunction.SIGMOID,
+			ActivationFunction.TAN_H, ActivationFunction.ARC_TAN, ActivationFunction.SOFTSIGN, ActivationFunction.RELU, ActivationFunction.LEAKY_RELU,
+			ActivationFunction.SINUSOID, ActivationFunction.SINC, ActivationFunction.GAUSSIAN};
+
+	/** 0 is in there since the piecewise functions switch there */
+	private static final double[] X = {-3, -1, -0.25, 0, 0.25, 1, 3};
+
+	@Test
+	void arraysMatchScalars() {
+
+		for(int f = 0; f < BUILT_IN.length; f++) {
+			ActivationFunction func = BUILT_IN[f];
+			double[] y = new double[X.length], derivative = new double[X.length];
+
+			func.apply(X, y, 0, X.length);
+			func.derivative(X, y, derivative, 0, X.length);
+
+			for(int i = 0; i < X.length; i++) {
+				assertEquals(func.function(X[i]), y[i], 1e-12 * Math.abs(y[i]), "function " + f + " at " + X[i]);
+				assertEquals(func.derivatedFunction(X[i]), derivative[i], 1e-12 * Math.abs(derivative[i]), "derivative " + f + " at " + X[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package schiemannjeremy.nn;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import schiemannjeremy.linearalgebra.Matrix;
+
+/**
+ * Checks that the hot paths dont allocate once they are warmed up, measured with the allocated bytes of the current thread. </br>
+ * Every check runs a few rounds and takes the lowest one, so a JIT compilation which lands in one round cant fail it.
+ * @author Jeremy Schiemann
+ *
+ */
+class AllocationTest {
+
+	private static final int ROUNDS = 5;
+
+	/** bytes per operation a round may allocate, a single leftover temporary matrix is thousands */
+	private static final double CEILING = 16;
+
+	@Test
+	void elementWiseOperationsDontAllocate() {
+
+		Matrix a = new Matrix(64, 64).randomize(-1, 1, false);
+		Matrix b = new Matrix(64, 64).randomize(-1, 1, false);
+
+		double perCall = minAllocated(2000, () -> {
+			a.add(b);
+			a.sub(b);
+			a.hadamardProduct(b);
+			a.mul(0.5);
+			a.mapDouble(x -> x * 0.5);
+			a.mapDouble((x, i, j) -> x + i - j);
+		});
+
+		assertTrue(perCall < CEILING, "element-wise operations allocated " + perCall + " bytes per call");
+	}
+
+	@Test
+	void trainingDoesntAllocate() {
+
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork nn = network(precision);
+			TrainingData trainingData = trainingData(256);
+
+			double perStep = minAllocated(20, () -> nn.train(trainingData, 0.01, 1000)) / 1000;
+
+			assertTrue(perStep < CEILING, precision + " training allocated " + perStep + " bytes per training set");
+		}
+	}
+
+	/**
+	 * Batches of 32, through the background prefetcher of train(TrainingData, ...) and as matrices with one training set per row
+	 */
+	@Test
+	void batchedTrainingDoesntAllocate() {
+
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork nn = network(precision);
+			TrainingData trainingData = trainingData(256);
+
+			//starting the prefetcher costs a few kilobytes per call, the difference of two lengths leaves only the steps
+			double perStep = (minAllocated(5, () -> nn.train(trainingData, 32, 0.01, 400)) - minAllocated(5, () -> nn.train(trainingData, 32, 0.01, 200))) / 200;
+			assertTrue(perStep < CEILING, precision + " batched training allocated " + perStep + " bytes per step");
+
+			Matrix inputs = new Matrix(32, 16).randomize(0, 1, false);
+			Matrix targets = new Matrix(32, 4).randomize(0, 1, false);
+			double perBatch = minAllocated(200, () -> nn.train(inputs, targets, 0.01));
+			assertTrue(perBatch < CEILING, precision + " training with matrices allocated " + perBatch + " bytes per batch");
+		}
+	}
+
+	/**
+	 * Warms the operation up, then measures rounds of calls
+	 * @return - the bytes per call of the round which allocated the least
+	 */
+	static double minAllocated(int calls, Runnable operation) {
+
+		com.sun.management.ThreadMXBean threads = threads();
+		long thread = Thread.currentThread().getId();
+
+		for(int i = 0; i < 10 * calls; i++)
+			operation.run();
+
+		long min = Long.MAX_VALUE;
+		for(int r = 0; r < ROUNDS; r++) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			for(int i = 0; i < calls; i++)
+				operation.run();
+			min = Math.min(min, threads.getThreadAllocatedBytes(thread) - before);
+		}
+
+		return (double)min / calls;
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean, "JVM cant measure allocations");
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(), "JVM cant measure allocations");
+
+		return threads;
+	}
+
+	static NeuralNetwork network(Precision precision) {
+
+		NeuralNetwork nn = new NeuralNetwork(16, 32, 4);
+		nn.setActivationFunction(ActivationFunction.TAN_H);
+		nn.setActivationFunction(2, ActivationFunction.SIGMOID);
+		nn.setPrecision(precision);
+		nn.randomizeWeights(-1, 1);
+		nn.randomizeBiases(-1, 1);
+
+		return nn;
+	}
+
+	static TrainingData trainingData(int size) {
+
+		Random random = new Random(3);
+		TrainingData trainingData = new TrainingData();
+		for(int i = 0; i < size; i++) {
+			double[] inputs = new double[16];
+			double[] outputs = new double[4];
+			for(int j = 0; j < inputs.length; j++)
+				inputs[j] = random.nextDouble();
+			for(int j = 0; j < outputs.length; j++)
+				outputs[j] = random.nextDouble();
+
+			trainingData.add(new TrainingSet(inputs, outputs));
+		}
+
+		return trainingData;
+	}
+}
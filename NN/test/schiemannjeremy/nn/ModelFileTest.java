@@ -0,0 +1,137 @@
+package schiemannjeremy.nn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Saves and restores networks through {@link NeuralNetwork#save(NeuralNetwork, File)} and {@link NeuralNetwork#restore(File)}
+ * @author Jeremy Schiemann
+ *
+ */
+class ModelFileTest {
+
+	private static final double[][] INPUTS = {{0, 0, 0}, {1, 0, 1}, {0.25, -0.5, 0.75}};
+
+	/**
+	 * A function which isnt built-in, so it gets saved with Java serialization
+	 */
+	static class ScaledTanh implements ActivationFunction {
+
+		private static final long serialVersionUID = 1L;
+
+		final double scale;
+
+		ScaledTanh(double scale) {
+			this.scale = scale;
+		}
+
+		@Override
+		public double function(double x) {
+			return Math.tanh(this.scale * x);
+		}
+
+		@Override
+		public double derivatedFunction(double y) {
+			double f = Math.tanh(this.scale * y);
+			return this.scale * (1.0 - f * f);
+		}
+	}
+
+	@TempDir
+	File dir;
+
+	@Test
+	void roundTripKeepsLayersAndActivations() throws IOException {
+
+		for(Precision precision : Precision.values()) {
+			NeuralNetwork nn = new NeuralNetwork(3, 6, 5, 2);
+			nn.setActivationFunction(ActivationFunction.RELU);
+			nn.setActivationFunction(2, new ScaledTanh(0.5));
+			nn.setActivationFunction(3, ActivationFunction.SIGMOID);
+			nn.setPrecision(precision);
+			nn.randomizeWeights(-1, 1);
+			nn.randomizeBiases(-1, 1);
+			nn.train(trainingData(), 0.05, 200);
+
+			File file = new File(this.dir, precision + ".snn");
+			NeuralNetwork.save(nn, file);
+			assertTrue(ModelFile.isModelFile(file));
+
+			NeuralNetwork restored = NeuralNetwork.restore(file);
+
+			assertEquals(precision, restored.getPrecision());
+			assertSame(ActivationFunction.RELU, restored.getActivationFunction(1));
+			assertEquals(0.5, assertInstanceOf(ScaledTanh.class, restored.getActivationFunction(2)).scale);
+			assertSame(ActivationFunction.SIGMOID, restored.getActivationFunction(3));
+			for(double[] in : INPUTS)
+				assertArrayEquals(nn.predict(in), restored.predict(in), precision + " prediction changed");
+
+			train(nn, 10);
+			train(restored, 10);
+			for(double[] in : INPUTS)
+				assertArrayEquals(nn.predict(in), restored.predict(in), precision + " training changed");
+		}
+	}
+
+	/**
+	 * baseline-network.ser was written by the Java serialization of the first version,
+	 * a 3-5-4-2 network with TAN_H and the predictions below for {@link #INPUTS}
+	 */
+	@Test
+	void restoresJavaSerializedNetworks() throws IOException, URISyntaxException {
+
+		double[][] expected = {
+				{-0.5327489566591939, -0.3373013529659788},
+				{0.29004004403524936, 0.6014264872978294},
+				{-0.21096253134254966, 0.3691870305800841}};
+
+		File file = new File(ModelFileTest.class.getResource("baseline-network.ser").toURI());
+		assertFalse(ModelFile.isModelFile(file));
+
+		NeuralNetwork nn = NeuralNetwork.restore(file);
+
+		assertSame(ActivationFunction.TAN_H.getClass(), nn.getActivationFunction().getClass());
+		for(int i = 0; i < INPUTS.length; i++)
+			assertArrayEquals(expected[i], nn.predict(INPUTS[i]), 1e-12);
+
+		double error = nn.calculateError(trainingData());
+		train(nn, 100);
+		assertTrue(nn.calculateError(trainingData()) < error, "restored network doesnt train");
+	}
+
+	/**
+	 * Trains every set of the training data in order, so two networks with the same weights stay the same
+	 */
+	private static void train(NeuralNetwork nn, int epochs) {
+
+		TrainingData trainingData = trainingData();
+		for(int e = 0; e < epochs; e++)
+			for(int i = 0; i < trainingData.size(); i++)
+				nn.train(trainingData.getTrainingSet(i), 0.05);
+	}
+
+	/**
+	 * The training data the baseline network was trained with
+	 */
+	private static TrainingData trainingData() {
+
+		TrainingData trainingData = new TrainingData();
+		for(int i = 0; i < 8; i++) {
+			double x = i & 1, y = (i >> 1) & 1, z = (i >> 2) & 1;
+			trainingData.add(new TrainingSet(new double[] {x, y, z}, new double[] {(x + y + z) / 3 - 0.5, x * z - y / 2}));
+		}
+
+		return trainingData;
+	}
+}